@@ -22,6 +22,7 @@ public class Constants
 	public static final String EBMS_DEFAULT_LANGUAGE = "en-US";
 
 	public static final String NSURI_SOAP_ENVELOPE = "http://schemas.xmlsoap.org/soap/envelope/";
+	public static final String NSURI_EBMS = "http://www.oasis-open.org/committees/ebxml-msg/schema/msg-header-2_0.xsd";
 	public static final String NSURI_SOAP_NEXT_ACTOR = "http://schemas.xmlsoap.org/soap/actor/next";
 	public static final String CID = "cid:";
 	
@@ -17,21 +17,36 @@ package nl.clockwork.ebms;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
 import javax.mail.util.ByteArrayDataSource;
 
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.cxf.io.CachedOutputStream;
 
 import lombok.val;
+import lombok.var;
+import nl.clockwork.ebms.dao.AttachmentStore;
 import nl.clockwork.ebms.model.CachedEbMSAttachment;
 import nl.clockwork.ebms.model.EbMSAttachment;
 import nl.clockwork.ebms.model.PlainEbMSAttachment;
+import nl.clockwork.ebms.model.StoredEbMSAttachment;
 
 public class EbMSAttachmentFactory
 {
+	private static final String[] DIGEST_ALGORITHMS = {"SHA-1","SHA-256"};
+	private static AttachmentStore attachmentStore;
+
 	public static void init(String attachmentOutputDirectory, int attachmentMemoryTreshold, String attachmentCipherTransformation)
 	{
 		if (StringUtils.isNotEmpty(attachmentOutputDirectory))
@@ -41,6 +56,11 @@ public class EbMSAttachmentFactory
 			CachedOutputStream.setDefaultCipherTransformation(attachmentCipherTransformation);
 	}
 
+	public static void init(AttachmentStore attachmentStore)
+	{
+		EbMSAttachmentFactory.attachmentStore = attachmentStore;
+	}
+
 	public static EbMSAttachment createEbMSAttachment(String contentId, DataSource ds)
 	{
 		return new PlainEbMSAttachment(contentId,ds);
@@ -67,6 +87,21 @@ public class EbMSAttachmentFactory
 		return createEbMSAttachment(contentId,result);
 	}
 
+	public static EbMSAttachment createStoredEbMSAttachment(String filename, String contentId, String contentType, AttachmentStore attachmentStore, String digest)
+	{
+		return new StoredEbMSAttachment(filename,contentId,contentType,attachmentStore,digest,-1,Collections.emptyMap());
+	}
+
+	public static EbMSAttachment createSpooledEbMSAttachment(String filename, String contentId, String contentType, InputStream content) throws IOException
+	{
+		val messageDigests = createMessageDigests();
+		if (attachmentStore == null)
+			return createCachedEbMSAttachment(filename,contentId,contentType,content,messageDigests);
+		val in = new CountingInputStream(digest(content,messageDigests));
+		val digest = attachmentStore.store(in);
+		return new StoredEbMSAttachment(filename,contentId,contentType,attachmentStore,digest,in.getByteCount(),toMap(messageDigests));
+	}
+
 	public static EbMSAttachment createCachedEbMSAttachment(String contentId, DataHandler dataHandler) throws IOException
 	{
 		return createCachedEbMSAttachment(dataHandler.getName(),contentId,dataHandler.getContentType(),dataHandler.getInputStream());
@@ -74,14 +109,52 @@ public class EbMSAttachmentFactory
 
 	public static EbMSAttachment createCachedEbMSAttachment(String filename, String contentId, String contentType, CachedOutputStream content) throws IOException
 	{
-		return new CachedEbMSAttachment(filename,contentId,contentType,content);
+		return createCachedEbMSAttachment(filename,contentId,contentType,content,Collections.emptyMap());
+	}
+
+	private static EbMSAttachment createCachedEbMSAttachment(String filename, String contentId, String contentType, CachedOutputStream content, Map<String,byte[]> digests)
+	{
+		return new CachedEbMSAttachment(filename,contentId,contentType,content,digests);
 	}
 
 	public static EbMSAttachment createCachedEbMSAttachment(String filename, String contentId, String contentType, InputStream content) throws IOException
+	{
+		return createCachedEbMSAttachment(filename,contentId,contentType,content,Collections.emptyList());
+	}
+
+	private static EbMSAttachment createCachedEbMSAttachment(String filename, String contentId, String contentType, InputStream content, List<MessageDigest> messageDigests) throws IOException
 	{
 		val cos = new CachedOutputStream();
-		CachedOutputStream.copyStream(content,cos,4096);
+		CachedOutputStream.copyStream(digest(content,messageDigests),cos,4096);
 		cos.lockOutputStream();
-		return createCachedEbMSAttachment(filename,contentId,contentType,cos);
+		return createCachedEbMSAttachment(filename,contentId,contentType,cos,toMap(messageDigests));
+	}
+
+	private static InputStream digest(InputStream content, List<MessageDigest> messageDigests)
+	{
+		var result = content;
+		for (val messageDigest : messageDigests)
+			result = new DigestInputStream(result,messageDigest);
+		return result;
+	}
+
+	private static Map<String,byte[]> toMap(List<MessageDigest> messageDigests)
+	{
+		return messageDigests.stream().collect(Collectors.toMap(MessageDigest::getAlgorithm,MessageDigest::digest));
+	}
+
+	private static List<MessageDigest> createMessageDigests()
+	{
+		return Arrays.stream(DIGEST_ALGORITHMS).map(a ->
+		{
+			try
+			{
+				return MessageDigest.getInstance(a);
+			}
+			catch (NoSuchAlgorithmException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}).collect(Collectors.toList());
 	}
 }
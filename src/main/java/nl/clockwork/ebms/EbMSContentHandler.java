@@ -106,7 +106,7 @@ class EbMSContentHandler implements ContentHandler
 		if (attachments.size() == 0)
 			attachments.add(EbMSAttachmentFactory.createEbMSAttachment(filename,contentId,contentType,content));
 		else
-			attachments.add(EbMSAttachmentFactory.createCachedEbMSAttachment(filename,contentId,contentType,content));
+			attachments.add(EbMSAttachmentFactory.createSpooledEbMSAttachment(filename,contentId,contentType,content));
 		headers.clear();
 	}
 
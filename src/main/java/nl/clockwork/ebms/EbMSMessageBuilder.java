@@ -30,6 +30,7 @@ import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.SyncReply;
 import org.w3._2000._09.xmldsig.SignatureType;
 
 import static io.vavr.API.*;
+
 import lombok.NonNull;
 import nl.clockwork.ebms.cpa.CPAUtils;
 import nl.clockwork.ebms.model.EbMSAcknowledgment;
@@ -41,6 +42,7 @@ import nl.clockwork.ebms.model.EbMSPing;
 import nl.clockwork.ebms.model.EbMSPong;
 import nl.clockwork.ebms.model.EbMSStatusRequest;
 import nl.clockwork.ebms.model.EbMSStatusResponse;
+import nl.clockwork.ebms.model.Memoized;
 import nl.clockwork.ebms.processor.EbMSProcessingException;
 
 public class EbMSMessageBuilder
@@ -49,12 +51,12 @@ public class EbMSMessageBuilder
 	private SyncReply syncReply;
 	private MessageOrder messageOrder;
 	private AckRequested ackRequested;
-	private ErrorList errorList;
+	private Memoized<ErrorList> errorList = Memoized.of(() -> null);
 	private Acknowledgment acknowledgment;
-	private Manifest manifest;
+	private Memoized<Manifest> manifest = Memoized.of(() -> null);
 	private StatusRequest statusRequest;
 	private StatusResponse statusResponse;
-	private SignatureType signature;
+	private Memoized<SignatureType> signature = Memoized.of(() -> null);
 	private boolean attachments$set;
 	private List<EbMSAttachment> attachments$value;
 
@@ -87,6 +89,11 @@ public class EbMSMessageBuilder
 	}
 
 	public EbMSMessageBuilder errorList(final ErrorList errorList)
+	{
+		return errorList(Memoized.of(() -> errorList));
+	}
+
+	public EbMSMessageBuilder errorList(@NonNull final Memoized<ErrorList> errorList)
 	{
 		this.errorList = errorList;
 		return this;
@@ -99,6 +106,11 @@ public class EbMSMessageBuilder
 	}
 
 	public EbMSMessageBuilder manifest(final Manifest manifest)
+	{
+		return manifest(Memoized.of(() -> manifest));
+	}
+
+	public EbMSMessageBuilder manifest(@NonNull final Memoized<Manifest> manifest)
 	{
 		this.manifest = manifest;
 		return this;
@@ -117,6 +129,11 @@ public class EbMSMessageBuilder
 	}
 
 	public EbMSMessageBuilder signature(final SignatureType signature)
+	{
+		return signature(Memoized.of(() -> signature));
+	}
+
+	public EbMSMessageBuilder signature(@NonNull final Memoized<SignatureType> signature)
 	{
 		this.signature = signature;
 		return this;
@@ -136,15 +153,7 @@ public class EbMSMessageBuilder
 			List<EbMSAttachment> attachments$value = this.attachments$value;
 			if (!this.attachments$set) attachments$value = new ArrayList<EbMSAttachment>();
 			if (!EbMSAction.EBMS_SERVICE_URI.equals(messageHeader.getService().getValue()))
-				return EbMSMessage.builder()
-						.messageHeader(messageHeader)
-						.signature(signature)
-						.syncReply(syncReply)
-						.messageOrder(messageOrder)
-						.ackRequested(ackRequested)
-						.manifest(manifest)
-						.attachments(attachments$value)
-						.build();
+				return new EbMSMessage(messageHeader,signature,syncReply,messageOrder,ackRequested,manifest,attachments$value);
 			else
 				return Match(messageHeader.getAction()).of(
 						Case($(EbMSAction.MESSAGE_ERROR.getAction()),o -> new EbMSMessageError(messageHeader,signature,errorList)),
@@ -172,4 +181,4 @@ public class EbMSMessageBuilder
 	{
 		return "EbMSMessage.EbMSMessageBuilder(messageHeader=" + this.messageHeader + ", syncReply=" + this.syncReply + ", messageOrder=" + this.messageOrder + ", ackRequested=" + this.ackRequested + ", errorList=" + this.errorList + ", acknowledgment=" + this.acknowledgment + ", manifest=" + this.manifest + ", statusRequest=" + this.statusRequest + ", statusResponse=" + this.statusResponse + ", signature=" + this.signature + ", attachments$value=" + this.attachments$value + ")";
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
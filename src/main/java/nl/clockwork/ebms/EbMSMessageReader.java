@@ -15,17 +15,23 @@
  */
 package nl.clockwork.ebms;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
+import javax.mail.internet.ContentType;
+import javax.mail.internet.ParseException;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.parser.MimeStreamParser;
 import org.apache.james.mime4j.stream.MimeConfig;
+import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import lombok.AccessLevel;
@@ -60,12 +66,7 @@ public class EbMSMessageReader
 
 	public EbMSDocument readResponse(String message) throws IOException, ParserConfigurationException, SAXException
 	{
-		return StringUtils.isNotBlank(message) ? EbMSDocument.builder()
-				.contentId(contentId)
-				.message(DOMUtils.read(message))
-				.attachments(Collections.emptyList())
-				.build()
-				: null;
+		return StringUtils.isNotBlank(message) ? createEbMSDocument(null,message.getBytes(StandardCharsets.UTF_8),Collections.emptyList()) : null;
 	}
 
 	private void parseEbMSMessage(EbMSContentHandler handler, String contentType, InputStream in) throws MimeException, IOException
@@ -78,11 +79,7 @@ public class EbMSMessageReader
 
 	private EbMSDocument getEbMSMessage(InputStream in) throws ParserConfigurationException, SAXException, IOException
 	{
-		return EbMSDocument.builder()
-				.contentId(contentId)
-				.message(DOMUtils.read(in))
-				.attachments(Collections.emptyList())
-				.build();
+		return createEbMSDocument(contentType,IOUtils.toByteArray(in),Collections.emptyList());
 	}
 
 	private EbMSDocument getEbMSMessage(List<EbMSAttachment> attachments) throws ParserConfigurationException, SAXException, IOException
@@ -90,13 +87,49 @@ public class EbMSMessageReader
 		if (attachments.size() > 0)
 		{
 			val message = attachments.remove(0);
-			return EbMSDocument.builder()
-					.contentId(contentId)
-					.message(DOMUtils.read((message.getInputStream())))
-					.attachments(attachments)
-					.build();
+			try (val in = message.getInputStream())
+			{
+				return createEbMSDocument(message.getContentType(),IOUtils.toByteArray(in),attachments);
+			}
 		}
 		return null;
 	}
 
+	private EbMSDocument createEbMSDocument(String contentType, byte[] content, List<EbMSAttachment> attachments) throws ParserConfigurationException, SAXException, IOException
+	{
+		val message = DOMUtils.read(new ByteArrayInputStream(content));
+		return EbMSDocument.builder()
+				.contentId(contentId)
+				.message(message)
+				.content(isReusable(contentType,content,message) ? content : null)
+				.attachments(attachments)
+				.build();
+	}
+
+	private static boolean isReusable(String contentType, byte[] content, Document message)
+	{
+		return content.length > 0
+				&& content[0] == '<'
+				&& isUTF8(getCharset(contentType))
+				&& isUTF8(message.getInputEncoding())
+				&& isUTF8(message.getXmlEncoding());
+	}
+
+	private static String getCharset(String contentType)
+	{
+		try
+		{
+			return contentType == null ? null : new ContentType(contentType).getParameter("charset");
+		}
+		catch (ParseException e)
+		{
+			return "";
+		}
+	}
+
+	private static boolean isUTF8(String charset)
+	{
+		return charset == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(charset);
+	}
+
 }
@@ -18,7 +18,6 @@ package nl.clockwork.ebms;
 import static io.vavr.API.$;
 import static io.vavr.API.Case;
 import static io.vavr.API.Match;
-import static io.vavr.API.run;
 import static io.vavr.Predicates.instanceOf;
 
 import java.io.ByteArrayInputStream;
@@ -29,6 +28,8 @@ import java.util.List;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.crypto.dsig.XMLSignature;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
@@ -57,6 +58,7 @@ import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.StatusResponse;
 import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.SyncReply;
 import org.w3._2000._09.xmldsig.SignatureType;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 import org.xmlsoap.schemas.soap.envelope.Body;
 import org.xmlsoap.schemas.soap.envelope.Envelope;
@@ -64,6 +66,7 @@ import org.xmlsoap.schemas.soap.envelope.Fault;
 import org.xmlsoap.schemas.soap.envelope.Header;
 
 import lombok.val;
+import lombok.var;
 import nl.clockwork.ebms.cpa.CPAUtils;
 import nl.clockwork.ebms.jaxb.EbMSNamespaceMapper;
 import nl.clockwork.ebms.jaxb.JAXBParser;
@@ -75,6 +78,8 @@ import nl.clockwork.ebms.model.EbMSMessage;
 import nl.clockwork.ebms.model.EbMSMessageError;
 import nl.clockwork.ebms.model.EbMSStatusRequest;
 import nl.clockwork.ebms.model.EbMSStatusResponse;
+import nl.clockwork.ebms.model.Memoized;
+import nl.clockwork.ebms.processor.EbMSProcessingException;
 import nl.clockwork.ebms.util.DOMUtils;
 
 public class EbMSMessageUtils
@@ -92,7 +97,7 @@ public class EbMSMessageUtils
 	private static EbMSBaseMessage getEbMSMessage(Document document, List<EbMSAttachment> attachments) throws JAXBException, XPathExpressionException, ParserConfigurationException, SAXException, IOException
 	{
 		val builder = new EbMSMessageBuilder();
-		JAXBParser<Envelope> jaxbParser = JAXBParser.getInstance(
+		JAXBParser<?> jaxbParser = JAXBParser.getInstance(
 				Envelope.class,
 				Envelope.class,
 				MessageHeader.class,
@@ -105,14 +110,43 @@ public class EbMSMessageUtils
 				Manifest.class,
 				StatusRequest.class,
 				StatusResponse.class);
-		val envelope = jaxbParser.handle(document);
-		envelope.getHeader().getAny().forEach(e -> setEbMSMessageBuilder(builder,e));
-		envelope.getBody().getAny().forEach(e -> setEbMSMessageBuilder(builder,e));
+		for (var part = DOMUtils.getFirstChildElement(document.getDocumentElement()); part != null; part = DOMUtils.getNextSiblingElement(part))
+			for (var element = DOMUtils.getFirstChildElement(part); element != null; element = DOMUtils.getNextSiblingElement(element))
+				setEbMSMessageBuilder(jaxbParser,builder,element);
 		builder.attachments(attachments);
 		return builder.build();
 	}
 
-	@SuppressWarnings("unchecked")
+	private static void setEbMSMessageBuilder(JAXBParser<?> jaxbParser, EbMSMessageBuilder result, Element element) throws JAXBException
+	{
+		if (XMLSignature.XMLNS.equals(element.getNamespaceURI()) && "Signature".equals(element.getLocalName()))
+			result.signature(unmarshal(jaxbParser,element,SignatureType.class));
+		else if (Constants.NSURI_EBMS.equals(element.getNamespaceURI()))
+		{
+			if ("ErrorList".equals(element.getLocalName()))
+				result.errorList(unmarshal(jaxbParser,element,ErrorList.class));
+			else if ("Manifest".equals(element.getLocalName()))
+				result.manifest(unmarshal(jaxbParser,element,Manifest.class));
+			else
+				setEbMSMessageBuilder(result,jaxbParser.handle(element));
+		}
+	}
+
+	private static <T> Memoized<T> unmarshal(JAXBParser<?> jaxbParser, Element element, Class<T> clazz)
+	{
+		return Memoized.of(() ->
+		{
+			try
+			{
+				return clazz.cast(jaxbParser.handle(element,event -> event.getSeverity() == ValidationEvent.WARNING));
+			}
+			catch (JAXBException e)
+			{
+				throw new EbMSProcessingException(e);
+			}
+		});
+	}
+
 	private static void setEbMSMessageBuilder(EbMSMessageBuilder result, Object o)
 	{
 		Match(o).of(
@@ -120,16 +154,10 @@ public class EbMSMessageUtils
 				Case($(instanceOf(SyncReply.class)),i -> result.syncReply(i)),
 				Case($(instanceOf(MessageOrder.class)),i -> result.messageOrder(i)),
 				Case($(instanceOf(AckRequested.class)),i -> result.ackRequested(i)),
-				Case($(instanceOf(ErrorList.class)),i -> result.errorList((ErrorList)i)),
 				Case($(instanceOf(Acknowledgment.class)),i -> result.acknowledgment(i)),
-				Case($(instanceOf(Manifest.class)),i -> result.manifest(i)),
 				Case($(instanceOf(StatusRequest.class)),i -> result.statusRequest(i)),
 				Case($(instanceOf(StatusResponse.class)),i -> result.statusResponse(i)),
-				Case($(instanceOf(JAXBElement.class)),i -> run(() ->
-				{
-					if (((JAXBElement<?>)i).getValue() instanceof SignatureType)
-						result.signature(((JAXBElement<SignatureType>)i).getValue());
-				})));
+				Case($(),i -> result));
 	}
 
 	public static String toString(PartyId partyId)
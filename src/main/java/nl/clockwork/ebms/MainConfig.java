@@ -32,6 +32,7 @@ import nl.clockwork.ebms.event.processor.EventManagerConfig;
 import nl.clockwork.ebms.event.processor.EventProcessorConfig;
 import nl.clockwork.ebms.jms.JMSConfig;
 import nl.clockwork.ebms.processor.EbMSProcessorConfig;
+import nl.clockwork.ebms.purge.PurgeConfig;
 import nl.clockwork.ebms.security.KeyStoreConfig;
 import nl.clockwork.ebms.server.ServerConfig;
 import nl.clockwork.ebms.service.ServiceConfig;
@@ -55,6 +56,7 @@ import nl.clockwork.ebms.validation.ValidationConfig;
 		EventProcessorConfig.class,
 		JMSConfig.class,
 		KeyStoreConfig.class,
+		PurgeConfig.class,
 		ServerConfig.class,
 		ServiceConfig.class,
 		SigningConfig.class,
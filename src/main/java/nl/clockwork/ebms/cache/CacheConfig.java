@@ -17,14 +17,22 @@ package nl.clockwork.ebms.cache;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.jms.ConnectionFactory;
+
+import org.apache.commons.lang3.StringUtils;
 import org.apache.ignite.cache.eviction.lru.LruEvictionPolicyFactory;
 import org.apache.ignite.cache.spring.SpringCacheManager;
 import org.apache.ignite.configuration.NearCacheConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.cache.ehcache.EhCacheCacheManager;
 import org.springframework.cache.ehcache.EhCacheManagerFactoryBean;
@@ -38,6 +46,11 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -57,26 +70,86 @@ public class CacheConfig
 	{
 		DEFAULT(""),
 		EHCACHE("nl/clockwork/ebms/ehcache.xml"),
-		IGNITE("nl/clockwork/ebms/ignite.xml");
+		IGNITE("nl/clockwork/ebms/ignite.xml"),
+		CAFFEINE("");
 		
 		String defaultConfigLocation;
 	}
+	public enum CacheInvalidationType
+	{
+		NONE, JMS;
+	}
 
 	@Value("${cache.type}")
 	CacheType type;
 	@Value("${cache.configLocation}")
 	Resource configLocation;
+	@Value("${cache.caffeine.spec.CPA}")
+	String cpaSpec;
+	@Value("${cache.caffeine.spec.URLMapping}")
+	String urlMappingSpec;
+	@Value("${cache.caffeine.spec.CertificateMapping}")
+	String certificateMappingSpec;
+	@Value("${cache.caffeine.statsInterval}")
+	long statsInterval;
+	@Value("${cache.invalidation.type}")
+	CacheInvalidationType invalidationType;
+	@Value("${cache.invalidation.jms.destinationName}")
+	String invalidationDestinationName;
+	@Autowired(required = false)
+	ConnectionFactory connectionFactory;
 
 	@Bean
 	@Conditional(DefaultCacheType.class)
 	public CacheManager simpleCacheManager()
 	{
-		val result = new SimpleCacheManager();
 		val caches = new ArrayList<Cache>();
 		caches.add(new ConcurrentMapCache("CPA"));
 		caches.add(new ConcurrentMapCache("URLMapping"));
 		caches.add(new ConcurrentMapCache("CertificateMapping"));
-		result.setCaches(caches);
+		return createSimpleCacheManager(caches);
+	}
+
+	@Bean
+	@Conditional(CaffeineCacheType.class)
+	public CacheManager caffeineCacheManager()
+	{
+		val caches = new ArrayList<Cache>();
+		caches.add(createCaffeineCache("CPA",cpaSpec));
+		caches.add(createCaffeineCache("URLMapping",urlMappingSpec));
+		caches.add(createCaffeineCache("CertificateMapping",certificateMappingSpec));
+		return createSimpleCacheManager(caches);
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	@Conditional(CaffeineCacheStats.class)
+	public ThreadPoolTaskScheduler cacheStatsScheduler()
+	{
+		val result = new ThreadPoolTaskScheduler();
+		result.setDaemon(true);
+		result.initialize();
+		result.scheduleWithFixedDelay(new CaffeineCacheStatsLogger(caffeineCacheManager()),statsInterval);
+		return result;
+	}
+
+	@Bean
+	@Conditional(JmsCacheInvalidation.class)
+	public JMSCacheInvalidator jmsCacheInvalidator()
+	{
+		val jmsTemplate = new JmsTemplate(connectionFactory);
+		jmsTemplate.setPubSubDomain(true);
+		return new JMSCacheInvalidator(jmsTemplate,getInvalidationDestinationName());
+	}
+
+	@Bean
+	@Conditional(JmsCacheInvalidation.class)
+	public DefaultMessageListenerContainer jmsCacheInvalidationListener()
+	{
+		val result = new DefaultMessageListenerContainer();
+		result.setConnectionFactory(connectionFactory);
+		result.setPubSubDomain(true);
+		result.setDestinationName(getInvalidationDestinationName());
+		result.setMessageListener(jmsCacheInvalidator());
 		return result;
 	}
 
@@ -84,7 +157,14 @@ public class CacheConfig
 	@Conditional(EhCacheCacheType.class)
 	public CacheManager ehcacheCacheManager()
 	{
-		val result = new EhCacheCacheManager();
+		val result = new EhCacheCacheManager()
+		{
+			@Override
+			protected Cache decorateCache(Cache cache)
+			{
+				return decorateLocalCache(cache);
+			}
+		};
 		val ehcacheManager = createEhCacheManager(getConfigLocation());
 		ehcacheManager.addCache("CPA");
 		ehcacheManager.addCache("URLMapping");
@@ -97,7 +177,16 @@ public class CacheConfig
 	@Conditional(IgniteCacheType.class)
 	public CacheManager igniteCacheManager() throws IOException
 	{
-		val result = new SpringCacheManager();
+		val result = new SpringCacheManager()
+		{
+			Map<String,Cache> caches = new ConcurrentHashMap<>();
+
+			@Override
+			public Cache getCache(String name)
+			{
+				return caches.computeIfAbsent(name,n -> new NamespacedCache(super.getCache(n)));
+			}
+		};
 		result.setConfigurationPath(getConfigLocation().getURL().toString());
 		result.setDynamicNearCacheConfiguration(createDynamicNearCacheConfiguration());
 		return result;
@@ -109,6 +198,37 @@ public class CacheConfig
 		return new EbMSKeyGenerator();
 	}
 
+	@Bean("namespacedKeyGenerator")
+	public KeyGenerator namespacedKeyGenerator()
+	{
+		return new NamespacedKeyGenerator();
+	}
+
+	private SimpleCacheManager createSimpleCacheManager(List<Cache> caches)
+	{
+		val result = new SimpleCacheManager()
+		{
+			@Override
+			protected Cache decorateCache(Cache cache)
+			{
+				return decorateLocalCache(cache);
+			}
+		};
+		result.setCaches(caches);
+		return result;
+	}
+
+	private Cache decorateLocalCache(Cache cache)
+	{
+		return invalidationType == CacheInvalidationType.JMS ? jmsCacheInvalidator().register(new JMSInvalidatingCache(cache,jmsCacheInvalidator())) : new NamespacedCache(cache);
+	}
+
+	private Cache createCaffeineCache(String name, String spec)
+	{
+		val caffeine = Caffeine.from(spec);
+		return new CaffeineCache(name,spec.contains("maximumWeight") ? caffeine.weigher(new CacheWeigher()).build() : caffeine.build());
+	}
+
 	private net.sf.ehcache.CacheManager createEhCacheManager(Resource configLocation)
 	{
 		val ehCacheManagerFactory = new EhCacheManagerFactoryBean();
@@ -117,6 +237,11 @@ public class CacheConfig
 		return ehCacheManagerFactory.getObject();
 	}
 
+	private String getInvalidationDestinationName()
+	{
+		return StringUtils.isEmpty(invalidationDestinationName) ? JMSCacheInvalidator.JMS_DESTINATION_NAME : invalidationDestinationName;
+	}
+
   private Resource getConfigLocation()
 	{
 		return configLocation == null ? new ClassPathResource(type.defaultConfigLocation) : configLocation;
@@ -160,4 +285,31 @@ public class CacheConfig
 			return context.getEnvironment().getProperty("cache.type",CacheType.class,CacheType.DEFAULT) == CacheType.IGNITE;
 		}
 	}
+	public static class CaffeineCacheType implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return context.getEnvironment().getProperty("cache.type",CacheType.class,CacheType.DEFAULT) == CacheType.CAFFEINE;
+		}
+	}
+	public static class JmsCacheInvalidation implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			val cacheType = context.getEnvironment().getProperty("cache.type",CacheType.class,CacheType.DEFAULT);
+			return cacheType != CacheType.IGNITE
+					&& context.getEnvironment().getProperty("cache.invalidation.type",CacheInvalidationType.class,CacheInvalidationType.NONE) == CacheInvalidationType.JMS;
+		}
+	}
+	public static class CaffeineCacheStats implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return context.getEnvironment().getProperty("cache.type",CacheType.class,CacheType.DEFAULT) == CacheType.CAFFEINE
+					&& context.getEnvironment().getProperty("cache.caffeine.statsInterval",Long.class,0L) > 0;
+		}
+	}
 }
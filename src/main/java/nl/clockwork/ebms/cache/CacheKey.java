@@ -0,0 +1,63 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class CacheKey implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	String name;
+	Object[] params;
+	int hashCode;
+
+	public CacheKey(@NonNull String name, @NonNull Object...params)
+	{
+		this.name = name;
+		this.params = params;
+		this.hashCode = 31 * name.hashCode() + Arrays.deepHashCode(params);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CacheKey))
+			return false;
+		val other = (CacheKey)obj;
+		return hashCode == other.hashCode && name.equals(other.name) && Arrays.deepEquals(params,other.params);
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + Arrays.deepToString(params);
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CollaborationProtocolAgreement;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CollaborationRole;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.PartyInfo;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+
+public class CacheWeigher implements Weigher<Object,Object>
+{
+	private static final int CERTIFICATE_WEIGHT = 2;
+
+	@Override
+	public int weigh(Object key, Object value)
+	{
+		if (value instanceof Optional)
+			return weigh(key,((Optional<?>)value).orElse(null));
+		else if (value instanceof CollaborationProtocolAgreement)
+			return weigh((CollaborationProtocolAgreement)value);
+		else
+			return 1;
+	}
+
+	private int weigh(CollaborationProtocolAgreement cpa)
+	{
+		return Math.max(1,cpa.getPartyInfo().stream().mapToInt(this::weigh).sum());
+	}
+
+	private int weigh(PartyInfo partyInfo)
+	{
+		return partyInfo.getCertificate().size() * CERTIFICATE_WEIGHT
+				+ partyInfo.getDeliveryChannel().size()
+				+ partyInfo.getTransport().size()
+				+ partyInfo.getDocExchange().size()
+				+ partyInfo.getCollaborationRole().stream()
+						.map(CollaborationRole::getServiceBinding)
+						.filter(Objects::nonNull)
+						.mapToInt(b -> b.getCanSend().size() + b.getCanReceive().size())
+						.sum();
+	}
+}
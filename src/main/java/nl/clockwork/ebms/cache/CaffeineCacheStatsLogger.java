@@ -0,0 +1,57 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+public class CaffeineCacheStatsLogger implements Runnable
+{
+	@NonNull
+	CacheManager cacheManager;
+
+	@Override
+	public void run()
+	{
+		for (val name : cacheManager.getCacheNames())
+		{
+			val cache = cacheManager.getCache(name);
+			if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)
+			{
+				val nativeCache = (com.github.benmanes.caffeine.cache.Cache<?,?>)cache.getNativeCache();
+				val stats = nativeCache.stats();
+				log.info("Cache " + name
+						+ ": size=" + nativeCache.estimatedSize()
+						+ ", weight=" + nativeCache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L)
+						+ ", hits=" + stats.hitCount()
+						+ ", misses=" + stats.missCount()
+						+ ", hitRate=" + String.format("%.3f",stats.hitRate())
+						+ ", evictions=" + stats.evictionCount()
+						+ ", evictionWeight=" + stats.evictionWeight());
+			}
+		}
+	}
+}
@@ -16,15 +16,40 @@
 package nl.clockwork.ebms.cache;
 
 import java.lang.reflect.Method;
+import java.util.List;
 
-import org.apache.commons.lang3.StringUtils;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.PartyId;
 import org.springframework.cache.interceptor.KeyGenerator;
 
+import lombok.val;
+import nl.clockwork.ebms.cpa.CPAUtils;
+
 public class EbMSKeyGenerator implements KeyGenerator
 {
 	@Override
 	public Object generate(Object target, Method method, Object...params)
 	{
-		return method.getName() + "[" + StringUtils.join(params,",") + "]";
+		return new CacheKey(method.getName(),toKey(params));
+	}
+
+	private static Object[] toKey(Object[] params)
+	{
+		Object[] result = params;
+		for (int i = 0; i < params.length; i++)
+			if (params[i] instanceof List)
+			{
+				if (result == params)
+					result = params.clone();
+				result[i] = toKey((List<?>)params[i]);
+			}
+		return result;
+	}
+
+	private static Object toKey(List<?> param)
+	{
+		val result = new Object[param.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = param.get(i) instanceof PartyId ? CPAUtils.toString((PartyId)param.get(i)) : param.get(i);
+		return result;
 	}
 }
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class JMSCacheInvalidator implements MessageListener
+{
+	public static final String JMS_DESTINATION_NAME = "EbMS.CacheInvalidation";
+	String nodeId = UUID.randomUUID().toString();
+	Map<String,JMSInvalidatingCache> caches = new ConcurrentHashMap<>();
+	@NonNull
+	JmsTemplate jmsTemplate;
+	@NonNull
+	String destinationName;
+
+	JMSInvalidatingCache register(JMSInvalidatingCache cache)
+	{
+		caches.put(cache.getName(),cache);
+		return cache;
+	}
+
+	void publish(String cacheName, Object key)
+	{
+		val namespace = key instanceof NamespacedKey && ((NamespacedKey)key).isNamespace() ? ((NamespacedKey)key).getNamespace() : null;
+		val clear = namespace == null;
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+			{
+				@Override
+				public void afterCommit()
+				{
+					send(cacheName,namespace,clear);
+				}
+			});
+		else
+			send(cacheName,namespace,clear);
+	}
+
+	private void send(String cacheName, String namespace, boolean clear)
+	{
+		try
+		{
+			jmsTemplate.send(destinationName,session ->
+			{
+				val result = session.createMessage();
+				result.setStringProperty("nodeId",nodeId);
+				result.setStringProperty("cacheName",cacheName);
+				result.setStringProperty("namespace",namespace);
+				result.setBooleanProperty("clear",clear);
+				return result;
+			});
+		}
+		catch (Exception e)
+		{
+			log.error("Cannot publish invalidation of cache " + cacheName,e);
+		}
+	}
+
+	@Override
+	public void onMessage(Message message)
+	{
+		try
+		{
+			if (nodeId.equals(message.getStringProperty("nodeId")))
+				return;
+			val cache = caches.get(message.getStringProperty("cacheName"));
+			if (cache == null)
+				return;
+			if (message.getBooleanProperty("clear"))
+				cache.clearLocal();
+			else
+				cache.evictLocal(NamespacedKey.namespace(message.getStringProperty("namespace")));
+		}
+		catch (JMSException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import org.springframework.cache.Cache;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JMSInvalidatingCache extends NamespacedCache
+{
+	@NonNull
+	JMSCacheInvalidator cacheInvalidator;
+
+	public JMSInvalidatingCache(@NonNull Cache cache, @NonNull JMSCacheInvalidator cacheInvalidator)
+	{
+		super(cache);
+		this.cacheInvalidator = cacheInvalidator;
+	}
+
+	@Override
+	public void evict(Object key)
+	{
+		super.evict(key);
+		cacheInvalidator.publish(getName(),key);
+	}
+
+	@Override
+	public boolean evictIfPresent(Object key)
+	{
+		val result = super.evictIfPresent(key);
+		cacheInvalidator.publish(getName(),key);
+		return result;
+	}
+
+	@Override
+	public void clear()
+	{
+		super.clear();
+		cacheInvalidator.publish(getName(),null);
+	}
+
+	@Override
+	public boolean invalidate()
+	{
+		val result = super.invalidate();
+		cacheInvalidator.publish(getName(),null);
+		return result;
+	}
+
+	void evictLocal(Object key)
+	{
+		super.evict(key);
+	}
+
+	void clearLocal()
+	{
+		super.clear();
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.springframework.cache.Cache;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.ehcache.Ehcache;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class NamespacedCache implements Cache
+{
+	@NonNull
+	Cache cache;
+	List<Consumer<String>> evictionListeners = new CopyOnWriteArrayList<>();
+
+	public void addEvictionListener(@NonNull Consumer<String> listener)
+	{
+		evictionListeners.add(listener);
+	}
+
+	@Override
+	public String getName()
+	{
+		return cache.getName();
+	}
+
+	@Override
+	public Object getNativeCache()
+	{
+		return cache.getNativeCache();
+	}
+
+	@Override
+	public ValueWrapper get(Object key)
+	{
+		return cache.get(key);
+	}
+
+	@Override
+	public <T> T get(Object key, Class<T> type)
+	{
+		return cache.get(key,type);
+	}
+
+	@Override
+	public <T> T get(Object key, Callable<T> valueLoader)
+	{
+		return cache.get(key,valueLoader);
+	}
+
+	@Override
+	public void put(Object key, Object value)
+	{
+		cache.put(key,value);
+	}
+
+	@Override
+	public ValueWrapper putIfAbsent(Object key, Object value)
+	{
+		return cache.putIfAbsent(key,value);
+	}
+
+	@Override
+	public void evict(Object key)
+	{
+		if (key instanceof NamespacedKey && ((NamespacedKey)key).isNamespace())
+			evictNamespace(((NamespacedKey)key).getNamespace());
+		else
+			cache.evict(key);
+	}
+
+	@Override
+	public boolean evictIfPresent(Object key)
+	{
+		if (key instanceof NamespacedKey && ((NamespacedKey)key).isNamespace())
+			return evictNamespace(((NamespacedKey)key).getNamespace()) > 0;
+		else
+			return cache.evictIfPresent(key);
+	}
+
+	@Override
+	public void clear()
+	{
+		cache.clear();
+		evictionListeners.forEach(l -> l.accept(null));
+	}
+
+	@Override
+	public boolean invalidate()
+	{
+		val result = cache.invalidate();
+		evictionListeners.forEach(l -> l.accept(null));
+		return result;
+	}
+
+	private int evictNamespace(String namespace)
+	{
+		val keys = getKeys(namespace);
+		keys.forEach(cache::evict);
+		evictionListeners.forEach(l -> l.accept(namespace));
+		log.debug("Evicted " + keys.size() + " entries of " + namespace + " from cache " + getName());
+		return keys.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object> getKeys(String namespace)
+	{
+		val nativeCache = cache.getNativeCache();
+		if (nativeCache instanceof ConcurrentMap)
+			return filter(((ConcurrentMap<Object,Object>)nativeCache).keySet(),namespace);
+		else if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache)
+			return filter(((com.github.benmanes.caffeine.cache.Cache<Object,Object>)nativeCache).asMap().keySet(),namespace);
+		else if (nativeCache instanceof Ehcache)
+			return filter(((Ehcache)nativeCache).getKeys(),namespace);
+		else if (nativeCache instanceof IgniteCache)
+			return ((IgniteCache<Object,Object>)nativeCache).query(new ScanQuery<Object,Object>((k,v) -> isInNamespace(k,namespace)),e -> e.getKey()).getAll();
+		else
+		{
+			log.warn("Cannot evict namespace " + namespace + " from cache " + getName() + ", clearing all entries");
+			cache.clear();
+			return Collections.emptyList();
+		}
+	}
+
+	private static List<Object> filter(Collection<?> keys, String namespace)
+	{
+		return keys.stream().filter(k -> isInNamespace(k,namespace)).collect(Collectors.toList());
+	}
+
+	private static boolean isInNamespace(Object key, String namespace)
+	{
+		return key instanceof NamespacedKey && ((NamespacedKey)key).inNamespace(namespace);
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import java.io.Serializable;
+
+import lombok.AccessLevel;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+
+@Value
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class NamespacedKey implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+	String namespace;
+	Object key;
+
+	public static NamespacedKey namespace(String namespace)
+	{
+		return new NamespacedKey(namespace,null);
+	}
+
+	public boolean isNamespace()
+	{
+		return key == null;
+	}
+
+	public boolean inNamespace(String namespace)
+	{
+		return this.namespace == null || this.namespace.equals(namespace);
+	}
+}
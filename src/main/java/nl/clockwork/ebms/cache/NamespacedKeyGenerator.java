@@ -0,0 +1,27 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import java.lang.reflect.Method;
+
+public class NamespacedKeyGenerator extends EbMSKeyGenerator
+{
+	@Override
+	public Object generate(Object target, Method method, Object...params)
+	{
+		return new NamespacedKey(params.length > 0 && params[0] instanceof String ? (String)params[0] : null,super.generate(target,method,params));
+	}
+}
@@ -20,6 +20,7 @@ import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -77,6 +78,8 @@ public class ClientConfig
 	CertificateMapper certificateMapper;
 	@Value("${https.useClientCertificate}")
 	boolean useClientCertificate;
+	@Autowired
+	CacheManager cacheManager;
 
 	@Bean
 	public EbMSHttpClientFactory ebMSClientFactory()
@@ -96,6 +99,7 @@ public class ClientConfig
 				.httpErrors(createHttpErrors())
 				.certificateMapper(certificateMapper)
 				.useClientCertificate(useClientCertificate)
+				.clientAliases(cacheManager.getCache("CertificateMapping"))
 				.build();
 	}
 
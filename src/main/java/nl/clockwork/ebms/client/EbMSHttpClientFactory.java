@@ -23,7 +23,10 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.DeliveryChannel;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueRetrievalException;
 
+import io.vavr.Tuple;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -31,6 +34,7 @@ import lombok.Builder.Default;
 import lombok.NonNull;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.cache.NamespacedKey;
 import nl.clockwork.ebms.cpa.CPAUtils;
 import nl.clockwork.ebms.cpa.CertificateMapper;
 import nl.clockwork.ebms.security.EbMSKeyStore;
@@ -67,6 +71,7 @@ public class EbMSHttpClientFactory
 	@NonNull
 	@Default
 	Map<String,EbMSClient> clients = new ConcurrentHashMap<String,EbMSClient>();
+	Cache clientAliases;
 
 	private EbMSClient createEbMSClient(String clientAlias)
 	{
@@ -87,25 +92,43 @@ public class EbMSHttpClientFactory
 	public EbMSClient getEbMSClient(String clientAlias)
 	{
 		val key = clientAlias == null ? "" : clientAlias;
-		if (!clients.containsKey(key))
-			clients.put(key,createEbMSClient(clientAlias));
-		return clients.get(key);
+		return clients.computeIfAbsent(key,k -> createEbMSClient(clientAlias));
 	}
 
 	public EbMSClient getEbMSClient(String cpaId, DeliveryChannel sendDeliveryChannel)
 	{
+		if (!useClientCertificate || sendDeliveryChannel == null)
+			return getEbMSClient((String)null);
 		try
 		{
-			val clientCertificate = getClientCertificate(cpaId,sendDeliveryChannel);
-			val clientAlias = clientCertificate != null ? keyStore.getCertificateAlias(clientCertificate) : null;
-			return getEbMSClient(clientAlias);
+			if (clientAliases == null)
+				return getEbMSClient(getClientAlias(cpaId,sendDeliveryChannel));
+			val key = new NamespacedKey(cpaId,Tuple.of(cpaId,sendDeliveryChannel.getChannelId()));
+			return getEbMSClient(clientAliases.get(key,() -> getClientAlias(cpaId,sendDeliveryChannel)));
+		}
+		catch (ValueRetrievalException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw clientAliasException(cpaId,sendDeliveryChannel,e.getCause());
 		}
 		catch (CertificateException | KeyStoreException e)
 		{
-			throw new RuntimeException(e);
+			throw clientAliasException(cpaId,sendDeliveryChannel,e);
 		}
 	}
 
+	private IllegalStateException clientAliasException(String cpaId, DeliveryChannel sendDeliveryChannel, Throwable cause)
+	{
+		return new IllegalStateException("Unable to resolve client alias for cpaId=" + cpaId + ",channelId=" + sendDeliveryChannel.getChannelId(),cause);
+	}
+
+	private String getClientAlias(String cpaId, DeliveryChannel sendDeliveryChannel) throws CertificateException, KeyStoreException
+	{
+		val clientCertificate = getClientCertificate(cpaId,sendDeliveryChannel);
+		return clientCertificate != null ? keyStore.getCertificateAlias(clientCertificate) : null;
+	}
+
 	private String getClientAlias(String clientAlias)
 	{
 		return clientAlias == null && StringUtils.isNotEmpty(keyStore.getDefaultAlias()) ? keyStore.getDefaultAlias() : clientAlias;
@@ -35,7 +35,6 @@ import lombok.experimental.FieldDefaults;
 import nl.clockwork.ebms.Constants;
 import nl.clockwork.ebms.model.EbMSAttachment;
 import nl.clockwork.ebms.model.EbMSDocument;
-import nl.clockwork.ebms.util.DOMUtils;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @AllArgsConstructor
@@ -58,15 +57,14 @@ class EbMSMessageWriter
 		connection.setRequestProperty("Content-Type","text/xml; charset=UTF-8");
 		connection.setRequestProperty("SOAPAction",Constants.EBMS_SOAP_ACTION);
 		if (messageLog.isInfoEnabled())
-			messageLog.info(">>>>\n" + (messageLog.isDebugEnabled() ? HTTPUtils.toString(connection.getRequestProperties()) + "\n" : "") + DOMUtils.toString(document.getMessage()));
-		//DOMUtils.write(document.getMessage(),messageLog.isInfoEnabled() ? new LoggingOutputStream(connection.getOutputStream()) : connection.getOutputStream(),"UTF-8");
-		DOMUtils.write(document.getMessage(),connection.getOutputStream(),"UTF-8");
+			messageLog.info(">>>>\n" + (messageLog.isDebugEnabled() ? HTTPUtils.toString(connection.getRequestProperties()) + "\n" : "") + document.getContentAsString());
+		connection.getOutputStream().write(document.getContent());
 	}
 	
 	protected void writeMimeMessage(EbMSDocument document) throws IOException, TransformerException
 	{
 		if (messageLog.isInfoEnabled() && !messageLog.isDebugEnabled())
-			messageLog.info(">>>>\n" + DOMUtils.toString(document.getMessage()));
+			messageLog.info(">>>>\n" + document.getContentAsString());
 		val boundary = createBoundary();
 		val contentType = createContentType(boundary,document.getContentId());
 
@@ -87,7 +85,8 @@ class EbMSMessageWriter
 			writer.write("Content-ID: <" + document.getContentId() + ">");
 			writer.write("\r\n");
 			writer.write("\r\n");
-			DOMUtils.write(document.getMessage(),writer,"UTF-8");
+			writer.flush();
+			outputStream.write(document.getContent());
 			writer.write("\r\n");
 			writer.write("--");
 			writer.write(boundary);
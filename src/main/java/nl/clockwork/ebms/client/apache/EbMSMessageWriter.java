@@ -23,10 +23,11 @@ import javax.xml.transform.TransformerException;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.FormBodyPartBuilder;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.entity.mime.content.StringBody;
 import org.slf4j.Logger;
@@ -39,7 +40,6 @@ import lombok.experimental.FieldDefaults;
 import nl.clockwork.ebms.Constants;
 import nl.clockwork.ebms.model.EbMSAttachment;
 import nl.clockwork.ebms.model.EbMSDocument;
-import nl.clockwork.ebms.util.DOMUtils;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @AllArgsConstructor
@@ -66,9 +66,9 @@ class EbMSMessageWriter
 	protected void writeMessage(EbMSDocument document) throws UnsupportedEncodingException, TransformerException
 	{
 		if (messageLog.isInfoEnabled() && !wireLog.isDebugEnabled())
-			messageLog.info(">>>>\n" + DOMUtils.toString(document.getMessage()));
+			messageLog.info(">>>>\n" + document.getContentAsString());
 		httpPost.setHeader("SOAPAction",Constants.EBMS_SOAP_ACTION);
-		val entity = new StringEntity(DOMUtils.toString(document.getMessage(),"UTF-8"),"UTF-8");
+		val entity = new ByteArrayEntity(document.getContent());
 		entity.setContentType("text/xml");
 		entity.setChunked(chunkedStreamingMode);
 		httpPost.setEntity(entity);
@@ -77,11 +77,11 @@ class EbMSMessageWriter
 	protected void writeMimeMessage(EbMSDocument document) throws IOException, TransformerException
 	{
 		if (messageLog.isInfoEnabled() && !wireLog.isDebugEnabled())
-			messageLog.info(">>>>\n" + DOMUtils.toString(document.getMessage()));
+			messageLog.info(">>>>\n" + document.getContentAsString());
 		httpPost.setHeader("SOAPAction",Constants.EBMS_SOAP_ACTION);
 		val entity = MultipartEntityBuilder.create();
 		entity.setContentType(ContentType.create("multipart/related"));
-		entity.addPart(document.getContentId(),new StringBody(DOMUtils.toString(document.getMessage(),"UTF-8"),ContentType.create("text/xml")));
+		entity.addPart(document.getContentId(),new ByteArrayBody(document.getContent(),ContentType.create("text/xml"),null));
 		for (val attachment: document.getAttachments())
 		{
 			if (attachment.getContentType().matches("^(text/.*|.*/xml)$"))
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cpa;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+public class CPACacheWarmer implements ApplicationListener<ContextRefreshedEvent>
+{
+	@NonNull
+	CPAManager cpaManager;
+	@NonNull
+	URLMapper urlMapper;
+	int parallelism;
+	AtomicBoolean started = new AtomicBoolean();
+
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event)
+	{
+		if (started.compareAndSet(false,true))
+		{
+			val thread = new Thread(this::warmUp,"CPACacheWarmer");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	public void warmUp()
+	{
+		val start = Instant.now();
+		val count = new AtomicInteger();
+		val pool = parallelism > 0 ? new ForkJoinPool(parallelism) : new ForkJoinPool();
+		try
+		{
+			val cpaIds = cpaManager.getCPAIds();
+			pool.submit(() -> cpaIds.parallelStream().forEach(cpaId ->
+			{
+				if (warmUp(cpaId))
+					count.incrementAndGet();
+			})).get();
+			log.info("Warmed up " + count.get() + " of " + cpaIds.size() + " CPAs in " + Duration.between(start,Instant.now()).toMillis() + " ms");
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException | RuntimeException e)
+		{
+			log.warn("CPA cache warm-up failed",e);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	private boolean warmUp(String cpaId)
+	{
+		try
+		{
+			return cpaManager.getCPA(cpaId)
+					.map(cpa ->
+					{
+						cpa.getPartyInfo().forEach(p ->
+						{
+							p.getPartyId().forEach(id -> cpaManager.getEbMSPartyInfo(cpaId,CPAUtils.toString(id)));
+							p.getDeliveryChannel().forEach(c ->
+							{
+								cpaManager.getDeliveryChannel(cpaId,c.getChannelId());
+								urlMapper.getURL(CPAUtils.getUri(c));
+							});
+						});
+						return true;
+					})
+					.orElse(false);
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Cannot warm up CPA " + cpaId,e);
+			return false;
+		}
+	}
+}
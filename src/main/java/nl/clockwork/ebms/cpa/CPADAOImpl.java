@@ -42,14 +42,14 @@ class CPADAOImpl implements CPADAO
 	JdbcTemplate jdbcTemplate;
 
 	@Override
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public boolean existsCPA(String cpaId)
 	{
 		return jdbcTemplate.queryForObject("select count(*) from cpa where cpa_id = ?",Integer.class,cpaId) > 0;
 	}
 	
 	@Override
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<CollaborationProtocolAgreement> getCPA(String cpaId)
 	{
 		try
@@ -68,14 +68,14 @@ class CPADAOImpl implements CPADAO
 	}
 
 	@Override
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public List<String> getCPAIds()
 	{
 		return jdbcTemplate.queryForList("select cpa_id from cpa order by cpa_id asc",String.class);
 	}
 
 	@Override
-	@CacheEvict(cacheNames = "CPA", allEntries = true)
+	@CacheEvict(cacheNames = {"CPA","CertificateMapping"}, key = "T(nl.clockwork.ebms.cache.NamespacedKey).namespace(#cpa.cpaid)")
 	public String insertCPA(CollaborationProtocolAgreement cpa)
 	{
 		try
@@ -93,7 +93,7 @@ class CPADAOImpl implements CPADAO
 	}
 
 	@Override
-	@CacheEvict(cacheNames = "CPA", allEntries = true)
+	@CacheEvict(cacheNames = {"CPA","CertificateMapping"}, key = "T(nl.clockwork.ebms.cache.NamespacedKey).namespace(#cpa.cpaid)")
 	public int updateCPA(CollaborationProtocolAgreement cpa)
 	{
 		try
@@ -110,7 +110,7 @@ class CPADAOImpl implements CPADAO
 	}
 
 	@Override
-	@CacheEvict(cacheNames = "CPA", allEntries = true)
+	@CacheEvict(cacheNames = {"CPA","CertificateMapping"}, key = "T(nl.clockwork.ebms.cache.NamespacedKey).namespace(#cpaId)")
 	public int deleteCPA(String cpaId)
 	{
 		return jdbcTemplate.update("delete from cpa where cpa_id = ?",cpaId);
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cpa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CanReceive;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CanSend;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CollaborationProtocolAgreement;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CollaborationRole;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.DeliveryChannel;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.PartyInfo;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.PartyId;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple3;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.EbMSMessageUtils;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+class CPAIndex
+{
+	@Value
+	static class Binding<T>
+	{
+		PartyInfo partyInfo;
+		CollaborationRole role;
+		T binding;
+	}
+
+	List<PartyInfo> partyInfos;
+	Map<String,List<PartyInfo>> partyInfosByPartyId = new HashMap<>();
+	Map<String,DeliveryChannel> deliveryChannels = new HashMap<>();
+	Map<Tuple3<String,String,String>,List<Binding<CanSend>>> canSend = new HashMap<>();
+	Map<Tuple3<String,String,String>,List<Binding<CanReceive>>> canReceive = new HashMap<>();
+	Map<String,List<Binding<CanSend>>> canSendByAction = new HashMap<>();
+	Map<String,List<Binding<CanReceive>>> canReceiveByAction = new HashMap<>();
+	Map<Object,Binding<CanReceive>> canReceiveByActionBinding = new HashMap<>();
+
+	public CPAIndex(@NonNull CollaborationProtocolAgreement cpa)
+	{
+		partyInfos = cpa.getPartyInfo();
+		for (val partyInfo : partyInfos)
+		{
+			partyInfo.getPartyId().forEach(id -> add(partyInfosByPartyId,CPAUtils.toString(id),partyInfo));
+			partyInfo.getDeliveryChannel().forEach(c -> deliveryChannels.putIfAbsent(c.getChannelId(),c));
+			for (val role : partyInfo.getCollaborationRole())
+			{
+				val service = CPAUtils.toString(role.getServiceBinding().getService());
+				for (val cs : role.getServiceBinding().getCanSend())
+				{
+					val binding = new Binding<>(partyInfo,role,cs);
+					val action = cs.getThisPartyActionBinding().getAction();
+					add(canSend,Tuple.of(role.getRole().getName(),service,action),binding);
+					add(canSendByAction,action,binding);
+				}
+				for (val cr : role.getServiceBinding().getCanReceive())
+				{
+					val binding = new Binding<>(partyInfo,role,cr);
+					val action = cr.getThisPartyActionBinding().getAction();
+					add(canReceive,Tuple.of(role.getRole().getName(),service,action),binding);
+					add(canReceiveByAction,action,binding);
+					canReceiveByActionBinding.putIfAbsent(cr.getThisPartyActionBinding(),binding);
+				}
+			}
+		}
+	}
+
+	private static <K, V> void add(Map<K,List<V>> map, K key, V value)
+	{
+		map.computeIfAbsent(key,k -> new ArrayList<>()).add(value);
+	}
+
+	public List<PartyInfo> getPartyInfos(String partyId)
+	{
+		return partyInfosByPartyId.getOrDefault(partyId,Collections.emptyList());
+	}
+
+	public Optional<PartyInfo> getPartyInfo(List<PartyId> partyId)
+	{
+		return (partyId.isEmpty() ? partyInfos : getPartyInfos(EbMSMessageUtils.toString(partyId.get(0)))).stream()
+				.filter(p -> CPAUtils.equals(p.getPartyId(),partyId))
+				.findFirst();
+	}
+
+	public Optional<DeliveryChannel> getDeliveryChannel(String deliveryChannelId)
+	{
+		return Optional.ofNullable(deliveryChannels.get(deliveryChannelId));
+	}
+
+	public List<Binding<CanSend>> getCanSend(String role, String service, String action)
+	{
+		return canSend.getOrDefault(Tuple.of(role,service,action),Collections.emptyList());
+	}
+
+	public List<Binding<CanReceive>> getCanReceive(String role, String service, String action)
+	{
+		return canReceive.getOrDefault(Tuple.of(role,service,action),Collections.emptyList());
+	}
+
+	public List<Binding<CanSend>> getCanSend(String action)
+	{
+		return canSendByAction.getOrDefault(action,Collections.emptyList());
+	}
+
+	public List<Binding<CanReceive>> getCanReceive(String action)
+	{
+		return canReceiveByAction.getOrDefault(action,Collections.emptyList());
+	}
+
+	public Optional<Binding<CanReceive>> getCanReceiveByActionBinding(Object actionBinding)
+	{
+		return Optional.ofNullable(canReceiveByActionBinding.get(actionBinding));
+	}
+
+	public Optional<Binding<CanSend>> getCanSend(List<PartyId> partyId, String role, String service, String action)
+	{
+		return getCanSend(role,service,action).stream()
+				.filter(b -> CPAUtils.equals(b.getPartyInfo().getPartyId(),partyId))
+				.findFirst();
+	}
+
+	public Optional<Binding<CanReceive>> getCanReceive(List<PartyId> partyId, String role, String service, String action)
+	{
+		return getCanReceive(role,service,action).stream()
+				.filter(b -> CPAUtils.equals(b.getPartyInfo().getPartyId(),partyId))
+				.findFirst();
+	}
+}
@@ -17,7 +17,9 @@ package nl.clockwork.ebms.cpa;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CollaborationProtocolAgreement;
 import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.DeliveryChannel;
@@ -49,6 +51,7 @@ public class CPAManager
 	@NonNull
 	URLMapper urlMapper;
 	Object cpaMonitor = new Object();
+	Map<String,Optional<CPAIndex>> cpaIndexes = new ConcurrentHashMap<>();
 
 	public boolean existsCPA(String cpaId)
 	{
@@ -60,6 +63,19 @@ public class CPAManager
 		return cpaDAO.getCPA(cpaId);
 	}
 
+	private Optional<CPAIndex> getCPAIndex(String cpaId)
+	{
+		return cpaIndexes.computeIfAbsent(cpaId,id -> getCPA(id).map(CPAIndex::new));
+	}
+
+	public void evictCPAIndex(String cpaId)
+	{
+		if (cpaId == null)
+			cpaIndexes.clear();
+		else
+			cpaIndexes.remove(cpaId);
+	}
+
 	public List<String> getCPAIds()
 	{
 		return cpaDAO.getCPAIds();
@@ -99,23 +115,19 @@ public class CPAManager
 				.orElse(false);
 	}
 
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public boolean existsPartyId(String cpaId, String partyId)
 	{
-		return getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-						.flatMap(p -> p.getPartyId().stream())
-						.anyMatch(id -> partyId.equals(CPAUtils.toString(id))))
+		return getCPAIndex(cpaId)
+				.map(i -> !i.getPartyInfos(partyId).isEmpty())
 				.orElse(false);
 	}
 
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<EbMSPartyInfo> getEbMSPartyInfo(String cpaId, String partyId)
 	{
-		return getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-						.filter(p -> p.getPartyId().stream()
-								.anyMatch(id -> partyId.equals(CPAUtils.toString(id))))
+		return getCPAIndex(cpaId)
+				.map(i -> i.getPartyInfos(partyId).stream()
 						.map(p -> createEbMSPartyInfo(partyId,p))
 						.findFirst()
 						.orElse(null));
@@ -129,99 +141,69 @@ public class CPAManager
 		return result;
 	}
 
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<PartyInfo> getPartyInfo(String cpaId, List<PartyId> partyId)
 	{
-		return getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-						.filter(p -> CPAUtils.equals(p.getPartyId(),partyId))
-						.findFirst()
-						.orElse(null));
+		return getCPAIndex(cpaId)
+				.map(i -> i.getPartyInfo(partyId).orElse(null));
 	}
 	
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<FromPartyInfo> getFromPartyInfo(String cpaId, Party fromParty, String service, String action)
 	{
-		return getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-						.filter(p -> fromParty == null || fromParty.matches(p.getPartyId()))
-						.flatMap(p -> p.getCollaborationRole().stream()
-								.filter(r -> fromParty == null || fromParty.matches(r.getRole()) && service.equals(CPAUtils.toString(r.getServiceBinding().getService())))
-								.flatMap(r -> r.getServiceBinding().getCanSend().stream()
-										.filter(cs -> action.equals(cs.getThisPartyActionBinding().getAction()))
-										.map(cs -> CPAUtils.getFromPartyInfo(fromParty == null ? p.getPartyId().get(0) : fromParty.getPartyId(p.getPartyId()),r,cs))))
+		return getCPAIndex(cpaId)
+				.map(i -> (fromParty == null ? i.getCanSend(action) : i.getCanSend(fromParty.getRole(),service,action)).stream()
+						.filter(b -> fromParty == null || fromParty.matches(b.getPartyInfo().getPartyId()))
+						.map(b -> CPAUtils.getFromPartyInfo(fromParty == null ? b.getPartyInfo().getPartyId().get(0) : fromParty.getPartyId(b.getPartyInfo().getPartyId()),b.getRole(),b.getBinding()))
 						.findFirst()
 						.orElse(null));
 	}
 
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<ToPartyInfo> getToPartyInfoByFromPartyActionBinding(String cpaId, Party fromParty, String service, String action)
 	{
 		return getFromPartyInfo(cpaId,fromParty,service,action)
-				.map(fpi -> getCPA(cpaId)
-					.map(c -> c.getPartyInfo().stream()
-							.flatMap(p -> p.getCollaborationRole().stream()
-									.flatMap(r -> r.getServiceBinding().getCanReceive().stream()
-											.filter(cr -> cr.getThisPartyActionBinding().equals(fpi.getCanSend().getOtherPartyActionBinding()))
-											.map(cr -> CPAUtils.getToPartyInfo(p.getPartyId().get(0),r,cr))))
-							.findFirst()
-							.orElse(null))
+				.map(fpi -> getCPAIndex(cpaId)
+					.flatMap(i -> i.getCanReceiveByActionBinding(fpi.getCanSend().getOtherPartyActionBinding()))
+					.map(b -> CPAUtils.getToPartyInfo(b.getPartyInfo().getPartyId().get(0),b.getRole(),b.getBinding()))
 					.orElse(null));
 	}
 
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<ToPartyInfo> getToPartyInfo(String cpaId, Party toParty, String service, String action)
 	{
-		return getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-						.filter(p -> toParty == null || toParty.matches(p.getPartyId()))
-						.flatMap(p -> p.getCollaborationRole().stream()
-								.filter(r -> toParty == null || toParty.matches(r.getRole()) && service.equals(CPAUtils.toString(r.getServiceBinding().getService())))
-								.flatMap(r -> r.getServiceBinding().getCanReceive().stream()
-									.filter(cr -> action.equals(cr.getThisPartyActionBinding().getAction()))
-									.map(cr -> CPAUtils.getToPartyInfo(toParty == null ? p.getPartyId().get(0) : toParty.getPartyId(p.getPartyId()),r,cr))))
+		return getCPAIndex(cpaId)
+				.map(i -> (toParty == null ? i.getCanReceive(action) : i.getCanReceive(toParty.getRole(),service,action)).stream()
+						.filter(b -> toParty == null || toParty.matches(b.getPartyInfo().getPartyId()))
+						.map(b -> CPAUtils.getToPartyInfo(toParty == null ? b.getPartyInfo().getPartyId().get(0) : toParty.getPartyId(b.getPartyInfo().getPartyId()),b.getRole(),b.getBinding()))
 						.findFirst()
 						.orElse(null));
 	}
 
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)+#role+#service+#action")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public boolean canSend(String cpaId, List<PartyId> partyId, String role, String service, String action)
 	{
-		return getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-						.filter(p -> CPAUtils.equals(p.getPartyId(),partyId))
-						.flatMap(p -> p.getCollaborationRole().stream())
-						.filter(r -> role.equals(r.getRole().getName()) && CPAUtils.toString(r.getServiceBinding().getService()).equals(service))
-						.flatMap(r -> r.getServiceBinding().getCanSend().stream())
-						.anyMatch(cs -> action.equals(cs.getThisPartyActionBinding().getAction())))
+		return getCPAIndex(cpaId)
+				.map(i -> i.getCanSend(partyId,role,service,action).isPresent())
 				.orElse(null);
 	}
 
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)+#role+#service+#action")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public boolean canReceive(String cpaId, List<PartyId> partyId, String role, String service, String action)
 	{
-		return getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-						.filter(p -> CPAUtils.equals(p.getPartyId(),partyId))
-						.flatMap(p -> p.getCollaborationRole().stream())
-						.filter(r -> role.equals(r.getRole().getName()) && CPAUtils.toString(r.getServiceBinding().getService()).equals(service))
-						.flatMap(r -> r.getServiceBinding().getCanReceive().stream())
-						.anyMatch(cr -> action.equals(cr.getThisPartyActionBinding().getAction())))
+		return getCPAIndex(cpaId)
+				.map(i -> i.getCanReceive(partyId,role,service,action).isPresent())
 				.orElse(null);
 	}
 
-	@Cacheable(cacheNames = "CPA", keyGenerator = "ebMSKeyGenerator")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<DeliveryChannel> getDeliveryChannel(String cpaId, String deliveryChannelId)
 	{
-		return getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-					.flatMap(p -> p.getDeliveryChannel().stream())
-					.filter(d -> d.getChannelId().equals(deliveryChannelId))
-					.findFirst()
-					.orElse(null));
+		return getCPAIndex(cpaId)
+				.map(i -> i.getDeliveryChannel(deliveryChannelId).orElse(null));
 	}
 
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)+#action")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<DeliveryChannel> getDefaultDeliveryChannel(String cpaId, List<PartyId> partyId, String action)
 	{
 		return getPartyInfo(cpaId,partyId)
@@ -232,52 +214,43 @@ public class CPAManager
 					.orElse((DeliveryChannel)p.getDefaultMshChannelId()));
 	}
 
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)+#role+#service+#action")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<DeliveryChannel> getSendDeliveryChannel(String cpaId, List<PartyId> partyId, String role, String service, String action)
 	{
 		if (EbMSAction.EBMS_SERVICE_URI.equals(service))
 			return getDefaultDeliveryChannel(cpaId,partyId,action);
 		else
 		{
-			return getPartyInfo(cpaId,partyId)
-					.map(p -> p.getCollaborationRole().stream()
-							.filter(r -> role.equals(r.getRole().getName()) && CPAUtils.toString(r.getServiceBinding().getService()).equals(service))
-							.flatMap(r -> r.getServiceBinding().getCanSend().stream())
-							.filter(cs -> action.equals(cs.getThisPartyActionBinding().getAction()))
-							.findFirst()
-							.map(cs -> CPAUtils.getDeliveryChannel(cs.getThisPartyActionBinding().getChannelId()))
+			return getCPAIndex(cpaId)
+					.map(i -> i.getPartyInfo(partyId)
+							.flatMap(p -> i.getCanSend(role,service,action).stream()
+									.filter(b -> b.getPartyInfo() == p)
+									.findFirst())
+							.map(b -> CPAUtils.getDeliveryChannel(b.getBinding().getThisPartyActionBinding().getChannelId()))
 							.orElse(null));
 		}
 	}
 	
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)+#role+#service+#action")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<DeliveryChannel> getReceiveDeliveryChannel(String cpaId, List<PartyId> partyId, String role, String service, String action)
 	{
 		if (EbMSAction.EBMS_SERVICE_URI.equals(service))
 			return getDefaultDeliveryChannel(cpaId,partyId,action);
 		else
-			return getPartyInfo(cpaId,partyId)
-					.map(p -> p.getCollaborationRole().stream()
-							.filter(r -> role.equals(r.getRole().getName()) && CPAUtils.toString(r.getServiceBinding().getService()).equals(service))
-							.flatMap(r -> r.getServiceBinding().getCanReceive().stream())
-							.filter(cr -> action.equals(cr.getThisPartyActionBinding().getAction()))
-							.findFirst()
-							.map(cr -> CPAUtils.getDeliveryChannel(cr.getThisPartyActionBinding().getChannelId()))
+			return getCPAIndex(cpaId)
+					.map(i -> i.getPartyInfo(partyId)
+							.flatMap(p -> i.getCanReceive(role,service,action).stream()
+									.filter(b -> b.getPartyInfo() == p)
+									.findFirst())
+							.map(b -> CPAUtils.getDeliveryChannel(b.getBinding().getThisPartyActionBinding().getChannelId()))
 							.orElse(null));
 	}
 	
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)+#role+#service+#action")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public boolean isNonRepudiationRequired(String cpaId, List<PartyId> partyId, String role, String service, String action)
 	{
-		val canSend =  getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-						.filter(p -> CPAUtils.equals(p.getPartyId(),partyId))
-						.flatMap(p -> p.getCollaborationRole().stream())
-						.filter(r -> role.equals(r.getRole().getName()) && CPAUtils.toString(r.getServiceBinding().getService()).equals(service))
-						.flatMap(r -> r.getServiceBinding().getCanSend().stream())
-						.filter(cs -> action.equals(cs.getThisPartyActionBinding().getAction()))
-						.findFirst()
-						.orElse(null));
+		val canSend = getCPAIndex(cpaId)
+				.map(i -> i.getCanSend(partyId,role,service,action).map(b -> b.getBinding()).orElse(null));
 		val docExchange = CPAUtils.getDocExchange(
 				getSendDeliveryChannel(cpaId,partyId,role,service,action)
 					.orElseThrow(() -> StreamUtils.illegalStateException("SendDeliveryChannel",cpaId,partyId,role,service,action)));
@@ -288,18 +261,11 @@ public class CPAManager
 				.orElse(null);
 	}
 
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)+#role+#service+#action")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public boolean isConfidential(String cpaId, List<PartyId> partyId, String role, String service, String action)
 	{
-		val canSend =  getCPA(cpaId)
-				.map(c -> c.getPartyInfo().stream()
-				.filter(p -> CPAUtils.equals(p.getPartyId(),partyId))
-				.flatMap(p -> p.getCollaborationRole().stream())
-				.filter(r -> role.equals(r.getRole().getName()) && CPAUtils.toString(r.getServiceBinding().getService()).equals(service))
-				.flatMap(r -> r.getServiceBinding().getCanSend().stream())
-				.filter(cs -> action.equals(cs.getThisPartyActionBinding().getAction()))
-				.findFirst()
-				.orElse(null));
+		val canSend = getCPAIndex(cpaId)
+				.map(i -> i.getCanSend(partyId,role,service,action).map(b -> b.getBinding()).orElse(null));
 		val docExchange = CPAUtils.getDocExchange(
 				getSendDeliveryChannel(cpaId,partyId,role,service,action)
 					.orElseThrow(() -> StreamUtils.illegalStateException("SendDeliveryChannel",cpaId,partyId,role,service,action)));
@@ -318,7 +284,7 @@ public class CPAManager
 		));
 	}
 
-	@Cacheable(cacheNames = "CPA", key = "#root.methodName+#cpaId+T(nl.clockwork.ebms.cpa.CPAUtils).toString(#partyId)+#role+#service+#action")
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
 	public Optional<SyncReplyModeType> getSyncReply(String cpaId, List<PartyId> partyId, String role, String service, String action)
 	{
 		return getSendDeliveryChannel(cpaId,partyId,role,service,action)
@@ -18,13 +18,21 @@ package nl.clockwork.ebms.cpa;
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import lombok.AccessLevel;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.cache.NamespacedCache;
+import nl.clockwork.ebms.dao.EmbeddedStore;
 
 @Configuration
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -32,16 +40,37 @@ public class CPAManagerConfig
 {
 	@Autowired
 	DataSource dataSource;
+	@Autowired(required = false)
+	EmbeddedStore embeddedStore;
+	@Autowired
+	CacheManager cacheManager;
+	@Value("${cache.warmUp.parallelism}")
+	int warmUpParallelism;
+	@Value("${cache.mappings.ttl}")
+	long mappingsTTL;
 
 	@Bean
 	public CPAManager cpaManager()
 	{
-		return new CPAManager(cpaDAO(),urlMapper());
+		val result = new CPAManager(cpaDAO(),urlMapper());
+		val cache = cacheManager.getCache("CPA");
+		if (cache instanceof NamespacedCache)
+			((NamespacedCache)cache).addEvictionListener(result::evictCPAIndex);
+		return result;
+	}
+
+	@Bean
+	@Conditional(CacheWarmUp.class)
+	public CPACacheWarmer cpaCacheWarmer()
+	{
+		return new CPACacheWarmer(cpaManager(),urlMapper(),warmUpParallelism);
 	}
 
 	@Bean
 	public CPADAO cpaDAO()
 	{
+		if (embeddedStore != null)
+			return new EmbeddedCPADAO(embeddedStore);
 		val jdbcTemplate = new JdbcTemplate(dataSource);
 		return new CPADAOImpl(jdbcTemplate);
 	}
@@ -49,7 +78,7 @@ public class CPAManagerConfig
 	@Bean
 	public URLMapper urlMapper()
 	{
-		return new URLMapper(urlMappingDAO());
+		return new URLMapper(urlMappingDAO(),mappingsTTL);
 	}
 
 	@Bean
@@ -62,7 +91,7 @@ public class CPAManagerConfig
 	@Bean
 	public CertificateMapper certificateMapper()
 	{
-		return new CertificateMapper(certificateMappingDAO());
+		return new CertificateMapper(certificateMappingDAO(),mappingsTTL);
 	}
 
 	@Bean
@@ -71,4 +100,13 @@ public class CPAManagerConfig
 		val jdbcTemplate = new JdbcTemplate(dataSource);
 		return new CertificateMappingDAOImpl(jdbcTemplate);
 	}
+
+	public static class CacheWarmUp implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return context.getEnvironment().getProperty("cache.warmUp",Boolean.class,false);
+		}
+	}
 }
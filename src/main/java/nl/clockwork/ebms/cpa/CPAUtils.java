@@ -25,6 +25,8 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import javax.xml.bind.JAXBElement;
@@ -45,6 +47,10 @@ import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.Transport;
 import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.Service;
 import org.w3._2000._09.xmldsig.X509DataType;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.NonNull;
 import lombok.val;
 import nl.clockwork.ebms.EbMSAction;
 import nl.clockwork.ebms.EbMSMessageUtils;
@@ -53,6 +59,8 @@ import nl.clockwork.ebms.model.ToPartyInfo;
 
 public class CPAUtils
 {
+	private static final Cache<Certificate,Optional<X509Certificate>> x509Certificates = CacheBuilder.newBuilder().weakKeys().build();
+
 	public static boolean equals(List<PartyId> cpaPartyIds, List<org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.PartyId> headerPartyIds)
 	{
 		return headerPartyIds.size() <= cpaPartyIds.size() && containsAll(cpaPartyIds,headerPartyIds);
@@ -269,6 +277,22 @@ public class CPAUtils
 	}
 
 	public static X509Certificate getX509Certificate(Certificate certificate) throws CertificateException
+	{
+		if (certificate == null)
+			return null;
+		try
+		{
+			return x509Certificates.get(certificate,() -> Optional.ofNullable(parseX509Certificate(certificate))).orElse(null);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof CertificateException)
+				throw (CertificateException)e.getCause();
+			throw new CertificateException(e.getCause());
+		}
+	}
+
+	private static X509Certificate parseX509Certificate(@NonNull Certificate certificate) throws CertificateException
 	{
 //		return Optional.ofNullable(certificate)
 //				.flatMap(c -> c.getKeyInfo().getContent().stream()
@@ -278,12 +302,11 @@ public class CPAUtils
 //							.map(p -> (X509Certificate)CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream((byte[])((JAXBElement<?>)p).getValue()))))
 //					.findFirst())
 //				.orElse(null);
-		if (certificate != null)
-			for (val o : certificate.getKeyInfo().getContent())
-				if (o instanceof JAXBElement<?> && ((JAXBElement<?>)o).getValue() instanceof X509DataType)
-					for (val p : ((X509DataType)((JAXBElement<?>)o).getValue()).getX509IssuerSerialOrX509SKIOrX509SubjectName())
-						if (p instanceof JAXBElement<?> && "X509Certificate".equals(((JAXBElement<?>)p).getName().getLocalPart()))
-							return (X509Certificate)CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream((byte[])((JAXBElement<?>)p).getValue())); 
+		for (val o : certificate.getKeyInfo().getContent())
+			if (o instanceof JAXBElement<?> && ((JAXBElement<?>)o).getValue() instanceof X509DataType)
+				for (val p : ((X509DataType)((JAXBElement<?>)o).getValue()).getX509IssuerSerialOrX509SKIOrX509SubjectName())
+					if (p instanceof JAXBElement<?> && "X509Certificate".equals(((JAXBElement<?>)p).getName().getLocalPart()))
+						return (X509Certificate)CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream((byte[])((JAXBElement<?>)p).getValue())); 
 		return null;
 	}
 
@@ -17,21 +17,51 @@ package nl.clockwork.ebms.cpa;
 
 import java.security.cert.X509Certificate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import com.google.common.base.Suppliers;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import nl.clockwork.ebms.service.cpa.certificate.CertificateMapping;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@AllArgsConstructor
 public class CertificateMapper
 {
 	@NonNull
 	CertificateMappingDAO certificateMappingDAO;
+	long ttl;
 	Object certificateMonitor = new Object();
+	@NonFinal
+	volatile Supplier<Map<Tuple2<String,String>,X509Certificate>> certificateMappings;
+
+	public CertificateMapper(@NonNull CertificateMappingDAO certificateMappingDAO)
+	{
+		this(certificateMappingDAO,URLMapper.DEFAULT_TTL);
+	}
+
+	public CertificateMapper(@NonNull CertificateMappingDAO certificateMappingDAO, long ttl)
+	{
+		this.certificateMappingDAO = certificateMappingDAO;
+		this.ttl = ttl;
+		reset();
+	}
+
+	private void reset()
+	{
+		certificateMappings = Suppliers.memoizeWithExpiration(
+				() -> certificateMappingDAO.loadCertificateMappings().stream().collect(Collectors.toMap(m -> Tuple.of(m.getId(),m.getCpaId()),CertificateMapping::getDestination,(a,b) -> a)),
+				ttl,
+				TimeUnit.MILLISECONDS)::get;
+	}
 
 	public List<CertificateMapping> getCertificates()
 	{
@@ -40,7 +70,12 @@ public class CertificateMapper
 
 	public X509Certificate getCertificate(X509Certificate certificate, String cpaId)
 	{
-		return certificate != null ? certificateMappingDAO.getCertificateMapping(CertificateMapping.getId.apply(certificate),cpaId,false).orElse(certificate) : null;
+		if (certificate == null)
+			return null;
+		val id = CertificateMapping.getId.apply(certificate);
+		val mappings = certificateMappings.get();
+		val result = cpaId == null ? null : mappings.get(Tuple.of(id,cpaId));
+		return result != null ? result : mappings.getOrDefault(Tuple.of(id,(String)null),certificate);
 	}
 
 	public void setCertificateMapping(CertificateMapping mapping)
@@ -51,6 +86,7 @@ public class CertificateMapper
 					certificateMappingDAO.updateCertificateMapping(mapping);
 			else
 					certificateMappingDAO.insertCertificateMapping(mapping);
+			reset();
 		}	
 	}
 
@@ -58,5 +94,6 @@ public class CertificateMapper
 	{
 		val key = CertificateMapping.getId.apply(source);
 		certificateMappingDAO.deleteCertificateMapping(key,cpaId);
+		reset();
 	}
 }
@@ -26,7 +26,8 @@ interface CertificateMappingDAO
 	boolean existsCertificateMapping(String id, String cpaId);
 	Optional<X509Certificate> getCertificateMapping(String id, String cpaId, boolean getSpecific);
 	List<CertificateMapping> getCertificateMappings();
+	List<CertificateMapping> loadCertificateMappings();
 	void insertCertificateMapping(CertificateMapping mapping);
 	int updateCertificateMapping(CertificateMapping mapping);
 	int deleteCertificateMapping(String id, String cpaId);
-}
\ No newline at end of file
+}
\ No newline at end of file
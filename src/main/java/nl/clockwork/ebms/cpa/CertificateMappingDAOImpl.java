@@ -112,6 +112,12 @@ class CertificateMappingDAOImpl implements CertificateMappingDAO
 	@Override
 	@Cacheable(cacheNames = "CertificateMapping", keyGenerator = "ebMSKeyGenerator")
 	public List<CertificateMapping> getCertificateMappings()
+	{
+		return loadCertificateMappings();
+	}
+
+	@Override
+	public List<CertificateMapping> loadCertificateMappings()
 	{
 		return jdbcTemplate.query(
 				"select source, destination, cpa_id from certificate_mapping",
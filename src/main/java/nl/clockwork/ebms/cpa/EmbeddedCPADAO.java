@@ -0,0 +1,127 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cpa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.xml.bind.JAXBException;
+
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CollaborationProtocolAgreement;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.DuplicateKeyException;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.EmbeddedStore;
+import nl.clockwork.ebms.jaxb.JAXBParser;
+
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+@RequiredArgsConstructor
+class EmbeddedCPADAO implements CPADAO
+{
+	@NonNull
+	EmbeddedStore embeddedStore;
+
+	@Override
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
+	public boolean existsCPA(String cpaId)
+	{
+		return embeddedStore.execute(t -> cpas(t).containsKey(cpaId));
+	}
+
+	@Override
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
+	public Optional<CollaborationProtocolAgreement> getCPA(String cpaId)
+	{
+		try
+		{
+			val result = embeddedStore.execute(t -> cpas(t).get(cpaId));
+			return result == null ? Optional.empty() : Optional.of(JAXBParser.getInstance(CollaborationProtocolAgreement.class).handle(result));
+		}
+		catch (JAXBException e)
+		{
+			throw new DataRetrievalFailureException("",e);
+		}
+	}
+
+	@Override
+	@Cacheable(cacheNames = "CPA", keyGenerator = "namespacedKeyGenerator")
+	public List<String> getCPAIds()
+	{
+		return embeddedStore.execute(t -> new ArrayList<>(cpas(t).keySet()));
+	}
+
+	@Override
+	@CacheEvict(cacheNames = {"CPA","CertificateMapping"}, key = "T(nl.clockwork.ebms.cache.NamespacedKey).namespace(#cpa.cpaid)")
+	public String insertCPA(CollaborationProtocolAgreement cpa)
+	{
+		val content = toString(cpa);
+		return embeddedStore.execute(t ->
+		{
+			if (cpas(t).putIfAbsent(cpa.getCpaid(),content) != null)
+				throw new DuplicateKeyException("CPA " + cpa.getCpaid() + " already exists");
+			return cpa.getCpaid();
+		});
+	}
+
+	@Override
+	@CacheEvict(cacheNames = {"CPA","CertificateMapping"}, key = "T(nl.clockwork.ebms.cache.NamespacedKey).namespace(#cpa.cpaid)")
+	public int updateCPA(CollaborationProtocolAgreement cpa)
+	{
+		val content = toString(cpa);
+		return embeddedStore.execute(t ->
+		{
+			val cpas = cpas(t);
+			if (!cpas.containsKey(cpa.getCpaid()) || cpas.lock(cpa.getCpaid()) == null)
+				return 0;
+			cpas.put(cpa.getCpaid(),content);
+			return 1;
+		});
+	}
+
+	@Override
+	@CacheEvict(cacheNames = {"CPA","CertificateMapping"}, key = "T(nl.clockwork.ebms.cache.NamespacedKey).namespace(#cpaId)")
+	public int deleteCPA(String cpaId)
+	{
+		return embeddedStore.execute(t -> cpas(t).remove(cpaId) == null ? 0 : 1);
+	}
+
+	private static String toString(CollaborationProtocolAgreement cpa)
+	{
+		try
+		{
+			return JAXBParser.getInstance(CollaborationProtocolAgreement.class).handle(cpa);
+		}
+		catch (JAXBException e)
+		{
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private static TransactionMap<String,String> cpas(Transaction transaction)
+	{
+		return transaction.openMap(EmbeddedStore.CPA);
+	}
+}
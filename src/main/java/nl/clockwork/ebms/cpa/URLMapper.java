@@ -18,22 +18,51 @@ package nl.clockwork.ebms.cpa;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.springframework.util.StringUtils;
 
+import com.google.common.base.Suppliers;
+
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import nl.clockwork.ebms.service.cpa.url.URLMapping;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@AllArgsConstructor
 public class URLMapper
 {
+	public static final long DEFAULT_TTL = 60000;
 	@NonNull
 	URLMappingDAO urlMappingDAO;
+	long ttl;
 	Object urlMonitor = new Object();
+	@NonFinal
+	volatile Supplier<Map<String,String>> urlMappings;
+
+	public URLMapper(@NonNull URLMappingDAO urlMappingDAO)
+	{
+		this(urlMappingDAO,DEFAULT_TTL);
+	}
+
+	public URLMapper(@NonNull URLMappingDAO urlMappingDAO, long ttl)
+	{
+		this.urlMappingDAO = urlMappingDAO;
+		this.ttl = ttl;
+		reset();
+	}
+
+	private void reset()
+	{
+		urlMappings = Suppliers.memoizeWithExpiration(
+				() -> urlMappingDAO.loadURLMappings().stream().collect(Collectors.toMap(URLMapping::getSource,URLMapping::getDestination,(a,b) -> a)),
+				ttl,
+				TimeUnit.MILLISECONDS)::get;
+	}
 
 	public List<URLMapping> getURLs()
 	{
@@ -43,7 +72,7 @@ public class URLMapper
 	public String getURL(String source)
 	{
 		if (!StringUtils.isEmpty(source))
-			return urlMappingDAO.getURLMapping(source).orElse(source);
+			return urlMappings.get().getOrDefault(source,source);
 		else
 			return source;
 	}
@@ -62,6 +91,7 @@ public class URLMapper
 				else
 					urlMappingDAO.insertURLMapping(urlMapping);
 			}
+			reset();
 		}
 	}
 
@@ -86,5 +116,6 @@ public class URLMapper
 	public void deleteURLMapping(String source)
 	{
 		urlMappingDAO.deleteURLMapping(source);
+		reset();
 	}
 }
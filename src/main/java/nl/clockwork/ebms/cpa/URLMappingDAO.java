@@ -25,7 +25,8 @@ public interface URLMappingDAO
 	boolean existsURLMapping(String source);
 	Optional<String> getURLMapping(String source);
 	List<URLMapping> getURLMappings();
+	List<URLMapping> loadURLMappings();
 	String insertURLMapping(URLMapping urlMapping);
 	int updateURLMapping(URLMapping urlMapping);
 	int deleteURLMapping(String source);
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -63,6 +63,12 @@ class URLMappingDAOImpl implements URLMappingDAO
 	@Override
 	@Cacheable(cacheNames = "URLMapping", keyGenerator = "ebMSKeyGenerator")
 	public List<URLMapping> getURLMappings()
+	{
+		return loadURLMappings();
+	}
+
+	@Override
+	public List<URLMapping> loadURLMappings()
 	{
 		return jdbcTemplate.query(
 				"select source, destination from url_mapping order by source asc",
@@ -23,6 +23,7 @@ import static nl.clockwork.ebms.Predicates.contains;
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.FactoryBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
 
 import com.atomikos.jdbc.AtomikosDataSourceBean;
 import com.zaxxer.hikari.HikariDataSource;
@@ -33,6 +34,7 @@ import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.datasource.ReplicaRoutingDataSource;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @AllArgsConstructor
@@ -40,11 +42,17 @@ public abstract class AbstractDAOFactory<T> implements FactoryBean<T>
 {
 	@NonNull
 	DataSource dataSource;
+	EmbeddedStore embeddedStore;
+
+	public AbstractDAOFactory(@NonNull DataSource dataSource)
+	{
+		this(dataSource,null);
+	}
 
 	@Override
 	public T getObject()
 	{
-		return createDAO(dataSource);
+		return embeddedStore == null ? createDAO(dataSource) : createEmbeddedDAO(embeddedStore);
 	}
 
 	private T createDAO(DataSource dataSource)
@@ -65,7 +73,9 @@ public abstract class AbstractDAOFactory<T> implements FactoryBean<T>
 
 	public static String getDriverClassName(DataSource dataSource)
 	{
-		return dataSource instanceof HikariDataSource ? ((HikariDataSource)dataSource).getDriverClassName() : 
+		return dataSource instanceof DelegatingDataSource ? getDriverClassName(((DelegatingDataSource)dataSource).getTargetDataSource()) :
+			dataSource instanceof ReplicaRoutingDataSource ? getDriverClassName(((ReplicaRoutingDataSource)dataSource).getPrimary()) :
+			dataSource instanceof HikariDataSource ? ((HikariDataSource)dataSource).getDriverClassName() : 
 			dataSource  instanceof PoolingDataSource ? ((PoolingDataSource)dataSource).getClassName() : ((AtomikosDataSourceBean)dataSource).getXaDataSourceClassName();
 	}
 
@@ -92,6 +102,8 @@ public abstract class AbstractDAOFactory<T> implements FactoryBean<T>
 
 	public abstract T createPostgreSQLDAO();
 
+	public abstract T createEmbeddedDAO(EmbeddedStore embeddedStore);
+
 	public abstract static class DefaultDAOFactory<U> extends AbstractDAOFactory<U>
 	{
 		public DefaultDAOFactory(@NonNull DataSource dataSource)
@@ -99,6 +111,11 @@ public abstract class AbstractDAOFactory<T> implements FactoryBean<T>
 			super(dataSource);
 		}
 
+		public DefaultDAOFactory(@NonNull DataSource dataSource, EmbeddedStore embeddedStore)
+		{
+			super(dataSource,embeddedStore);
+		}
+
 		@Override
 		public U createDB2DAO()
 		{
@@ -140,6 +157,12 @@ public abstract class AbstractDAOFactory<T> implements FactoryBean<T>
 		{
 			throw new RuntimeException("Postgres not supported!");
 		}
+
+		@Override
+		public U createEmbeddedDAO(EmbeddedStore embeddedStore)
+		{
+			throw new RuntimeException("Embedded store not supported!");
+		}
 	}
 
 }
@@ -15,16 +15,24 @@
  */
 package nl.clockwork.ebms.dao;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.activation.DataHandler;
@@ -34,9 +42,14 @@ import javax.xml.transform.TransformerException;
 import org.apache.commons.io.IOUtils;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.transaction.TransactionStatus;
@@ -51,6 +64,7 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.val;
+import lombok.var;
 import lombok.experimental.FieldDefaults;
 import nl.clockwork.ebms.EbMSAction;
 import nl.clockwork.ebms.EbMSAttachmentFactory;
@@ -75,19 +89,23 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 	@AllArgsConstructor
 	private static class EbMSMessageContextRowMapper implements RowMapper<EbMSMessageContext>
 	{
-		public static final String SELECT =
-				"select cpa_id," +
-				" from_party_id," +
-				" from_role," +
-				" to_party_id," +
-				" to_role," +
-				" service," +
-				" action," +
-				" time_stamp," +
-				" conversation_id," +
-				" message_id," +
-				" ref_to_message_id," +
-				" status";
+		public static final String SELECT = select("");
+
+		public static String select(String alias)
+		{
+			return "select " + alias + "cpa_id," +
+				" " + alias + "from_party_id," +
+				" " + alias + "from_role," +
+				" " + alias + "to_party_id," +
+				" " + alias + "to_role," +
+				" " + alias + "service," +
+				" " + alias + "action," +
+				" " + alias + "time_stamp," +
+				" " + alias + "conversation_id," +
+				" " + alias + "message_id," +
+				" " + alias + "ref_to_message_id," +
+				" " + alias + "status";
+		}
 
 		@Override
 		public EbMSMessageContext mapRow(ResultSet rs, int rowNum) throws SQLException
@@ -106,16 +124,20 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 					.build();
 		}
 	}
+	private static final int MAX_IN_PARAMETERS = 500;
 	@NonNull
 	TransactionTemplate transactionTemplate;
 	@NonNull
 	JdbcTemplate jdbcTemplate;
+	@NonNull
+	EbMSContentCodec contentCodec;
+	AttachmentStore attachmentStore;
 
-	RowMapper<EbMSAttachment> ebMSAttachmentRowMapper =	(rs,rowNum) ->
+	RowMapper<EbMSAttachment> cachedEbMSAttachmentRowMapper =	(rs,rowNum) ->
 	{
-		try
+		try (val content = getAttachmentContent(rs))
 		{
-			return EbMSAttachmentFactory.createCachedEbMSAttachment(rs.getString("name"),rs.getString("content_id"),rs.getString("content_type"),rs.getBinaryStream("content"));
+			return EbMSAttachmentFactory.createCachedEbMSAttachment(rs.getString("name"),rs.getString("content_id"),rs.getString("content_type"),content);
 		}
 		catch (IOException e)
 		{
@@ -124,26 +146,21 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 	};
 	RowMapper<EbMSDataSource> ebMSDataSourceRowMapper =	(rs,rowNum) ->
 	{
-		try
+		try (val content = getAttachmentContent(rs))
 		{
-			return new EbMSDataSource(rs.getString("name"),rs.getString("content_id"),rs.getString("content_type"),IOUtils.toByteArray(rs.getBinaryStream("content")));
+			return new EbMSDataSource(rs.getString("name"),rs.getString("content_id"),rs.getString("content_type"),IOUtils.toByteArray(content));
 		}
 		catch (IOException e)
 		{
 			throw new DataRetrievalFailureException("",e);
 		}
 	};
+
+	RowMapper<EbMSAttachment> ebMSAttachmentRowMapper =	(rs,rowNum) -> createEbMSAttachment(rs,rowNum);
 	RowMapper<EbMSDataSourceMTOM> ebMSDataSourceMTOMRowMapper =	(rs,rowNum) ->
 	{
-		try
-		{
-			val a = EbMSAttachmentFactory.createCachedEbMSAttachment(rs.getString("name"),rs.getString("content_id"),rs.getString("content_type"),rs.getBinaryStream("content"));
-			return new EbMSDataSourceMTOM(a.getContentId(),new DataHandler(a));
-		}
-		catch (IOException e)
-		{
-			throw new DataRetrievalFailureException("",e);
-		}
+		val a = createEbMSAttachment(rs,rowNum);
+		return new EbMSDataSourceMTOM(a.getContentId(),new DataHandler(a));
 	};
 
 	@Override
@@ -161,6 +178,23 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 		);
 	}
 
+	@Override
+	public void executeReadOnlyTransaction(final Runnable runnable)
+	{
+		val readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),transactionTemplate);
+		readOnlyTransactionTemplate.setReadOnly(true);
+		readOnlyTransactionTemplate.execute(
+			new TransactionCallbackWithoutResult()
+			{
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus transactionStatus)
+				{
+					runnable.run();
+				}
+			}
+		);
+	}
+
 	@Override
 	public boolean existsMessage(String messageId)
 	{
@@ -193,15 +227,27 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 	@Override
 	public Optional<EbMSMessageContent> getMessageContent(String messageId)
 	{
-		val dataSources = getAttachments(messageId,ebMSDataSourceRowMapper);
-		return getMessageContext(messageId).map(mc -> new EbMSMessageContent(mc,dataSources));
+		return getMessageWithAttachments(
+				EbMSMessageContextRowMapper.select("m.") + ", a.content attachment_content",
+				" where m.message_id = ?" +
+				" and m.message_nr = 0",
+				new EbMSMessageContextRowMapper(),
+				ebMSDataSourceRowMapper,
+				messageId
+			).map(t -> new EbMSMessageContent(t._1,t._2));
 	}
 
 	@Override
 	public Optional<EbMSMessageContentMTOM> getMessageContentMTOM(String messageId)
 	{
-		val dataSources = getAttachments(messageId,ebMSDataSourceMTOMRowMapper);
-		return getMessageContext(messageId).map(mc -> new EbMSMessageContentMTOM(mc,dataSources));
+		return getMessageWithAttachments(
+				EbMSMessageContextRowMapper.select("m.") + ", a.content attachment_content",
+				" where m.message_id = ?" +
+				" and m.message_nr = 0",
+				new EbMSMessageContextRowMapper(),
+				ebMSDataSourceMTOMRowMapper,
+				messageId
+			).map(t -> new EbMSMessageContentMTOM(t._1,t._2));
 	}
 
 	@Override
@@ -232,12 +278,9 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 				" where cpa_id = ?" +
 				" and ref_to_message_id = ?" +
 				" and message_nr = 0" +
-				(actions.length == 0 
-						? "" 
-						: " and service = '" + EbMSAction.EBMS_SERVICE_URI + "' and action in ('" + Arrays.stream(actions).map(a -> a.getAction()).collect(Collectors.joining("','")) + "')"),
+				getActionFilter(actions),
 				new EbMSMessageContextRowMapper(),
-				cpaId,
-				refToMessageId
+				getActionParameters(actions,cpaId,refToMessageId)
 			));
 		}
 		catch(EmptyResultDataAccessException e)
@@ -251,16 +294,15 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 	{
 		try
 		{
-			return Optional.of(DOMUtils.read(
-					jdbcTemplate.queryForObject(
-							"select content" +
-							" from ebms_message" +
-							" where message_id = ?" +
-							" and message_nr = 0",
-							String.class,
-							messageId
-						)
-			));
+			val content = jdbcTemplate.queryForObject(
+					"select content, content_codec, binary_content" +
+					" from ebms_message" +
+					" where message_id = ?" +
+					" and message_nr = 0",
+					(rs,rowNum) -> getContent(rs),
+					messageId
+				);
+			return content == null ? Optional.empty() : Optional.of(DOMUtils.read(new ByteArrayInputStream(content),"UTF-8"));
 		}
 		catch(EmptyResultDataAccessException e)
 		{
@@ -275,77 +317,36 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 	@Override
 	public Optional<EbMSDocument> getEbMSDocumentIfUnsent(String messageId)
 	{
-		try
-		{
-			val content = jdbcTemplate.queryForObject(
-					"select content" +
-					" from ebms_message" +
-					" where message_id = ?" +
-					" and message_nr = 0" +
-					" and (status is null or status = " + EbMSMessageStatus.CREATED.getId() + ")",
-					String.class,
-					messageId);
-			val builder = EbMSDocument.builder()
-				.contentId(messageId)
-				.message(DOMUtils.read(content))
-				.attachments(getAttachments(messageId,ebMSAttachmentRowMapper));
-			return Optional.of(builder.build());
-		}
-		catch(EmptyResultDataAccessException e)
-		{
-			return Optional.empty();
-		}
-		catch (ParserConfigurationException | SAXException | IOException  e)
-		{
-			throw new DataRetrievalFailureException("",e);
-		}
+		return getMessageWithAttachments(
+				"select m.content, m.content_codec, m.binary_content, a.content attachment_content",
+				" where m.message_id = ?" +
+				" and m.message_nr = 0" +
+				" and (m.status is null or m.status = " + EbMSMessageStatus.CREATED.getId() + ")",
+				(rs,rowNum) -> getContent(rs),
+				ebMSAttachmentRowMapper,
+				messageId
+			).map(t -> EbMSDocument.builder()
+					.contentId(messageId)
+					.content(t._1)
+					.attachments(t._2)
+					.build());
 	}
 	
 	@Override
 	public Optional<EbMSDocument> getEbMSDocumentByRefToMessageId(String cpaId, String refToMessageId, EbMSAction...actions)
 	{
-		try
-		{
-			val document = jdbcTemplate.queryForObject(
-					"select message_id, content" +
-					" from ebms_message" +
-					" where cpa_id = ?" +
-					" and ref_to_message_id = ?" +
-					" and message_nr = 0" +
-					(actions.length == 0 
-							? "" 
-							: " and service = '" + EbMSAction.EBMS_SERVICE_URI + "' and action in ('" + Arrays.stream(actions).map(a -> a.getAction()).collect(Collectors.joining("','")) + "')"),
-					new RowMapper<EbMSDocument>()
-					{
-						@Override
-						public EbMSDocument mapRow(ResultSet rs, int rowNum) throws SQLException
-						{
-							try
-							{
-								return EbMSDocument.builder()
-										.contentId(rs.getString("message_id"))
-										.message(DOMUtils.read(rs.getString("content")))
-										.build();
-							}
-							catch (ParserConfigurationException | SAXException | IOException e)
-							{
-								throw new SQLException(e);
-							}
-						}
-					},
-					cpaId,
-					refToMessageId
-				);
-			val builder = EbMSDocument.builder()
-					.contentId(document != null ? document.getContentId() : null)
-					.message(document != null ? document.getMessage() : null)
-					.attachments(getAttachments(refToMessageId,ebMSAttachmentRowMapper));
-			return Optional.of(builder.build());
-		}
-		catch(EmptyResultDataAccessException e)
-		{
-			return Optional.empty();
-		}
+		return getMessageWithAttachments(
+				"select m.message_id, m.content, m.content_codec, m.binary_content, a.content attachment_content",
+				" where m.cpa_id = ?" +
+				" and m.ref_to_message_id = ?" +
+				" and m.message_nr = 0" +
+				getActionFilter(actions),
+				(rs,rowNum) -> EbMSDocument.builder()
+						.contentId(rs.getString("message_id"))
+						.content(getContent(rs)),
+				ebMSAttachmentRowMapper,
+				getActionParameters(actions,cpaId,refToMessageId)
+			).map(t -> t._1.attachments(t._2).build());
 	}
 	
 	@Override
@@ -372,32 +373,123 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 	public List<String> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status)
 	{
 		val parameters = new ArrayList<Object>();
+		parameters.add(status.getId());
 		return jdbcTemplate.queryForList(
 				"select message_id" +
 				" from ebms_message" +
 				" where message_nr = 0" +
-				" and status = " + status.getId() +
+				" and status = ?" +
 				EbMSDAO.getMessageContextFilter(messageContext,parameters) +
 				" order by time_stamp asc",
 				parameters.toArray(new Object[0]),
 				String.class);
 	}
 
-	public abstract String getMessageIdsQuery(String messageContextFilter, EbMSMessageStatus status, int maxNr);
+	public abstract String getMessageIdsQuery(String messageContextFilter);
+
+	@Override
+	public List<Tuple2<Instant,String>> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, Tuple2<Instant,String> after, int maxNr)
+	{
+		val parameters = new ArrayList<Object>();
+		parameters.add(status.getId());
+		val messageContextFilter = EbMSDAO.getMessageContextFilter(messageContext,parameters);
+		val sql = "select time_stamp, message_id" +
+				" from ebms_message" +
+				" where message_nr = 0" +
+				" and status = ?" +
+				messageContextFilter +
+				EbMSDAO.getKeysetFilter("time_stamp","message_id",after,parameters) +
+				" order by time_stamp asc, message_id asc";
+		return jdbcTemplate.query(
+				c ->
+				{
+					PreparedStatement ps = c.prepareStatement(sql);
+					ps.setMaxRows(maxNr);
+					return ps;
+				},
+				new ArgumentPreparedStatementSetter(parameters.toArray()),
+				new RowMapperResultSetExtractor<>((rs,rowNum) -> Tuple.of(rs.getTimestamp("time_stamp").toInstant(),rs.getString("message_id"))));
+	}
+
+	@Override
+	public void streamMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, int fetchSize, Consumer<String> consumer)
+	{
+		val parameters = new ArrayList<Object>();
+		parameters.add(status.getId());
+		val messageContextFilter = EbMSDAO.getMessageContextFilter(messageContext,parameters);
+		val sql = "select message_id" +
+				" from ebms_message" +
+				" where message_nr = 0" +
+				" and status = ?" +
+				messageContextFilter +
+				" order by time_stamp asc";
+		jdbcTemplate.query(
+				c ->
+				{
+					PreparedStatement ps = c.prepareStatement(sql,ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
+					ps.setFetchSize(fetchSize);
+					return ps;
+				},
+				new ArgumentPreparedStatementSetter(parameters.toArray()),
+				(ResultSetExtractor<Void>)rs ->
+				{
+					while (rs.next())
+						consumer.accept(rs.getString("message_id"));
+					return null;
+				});
+	}
+
+	@Override
+	public List<Tuple2<Instant,String>> getExpiredMessageIds(Instant persistTime, Tuple2<Instant,String> after, int maxNr, String cpaId, String...excludedCpaIds)
+	{
+		val parameters = new ArrayList<Object>();
+		parameters.add(Timestamp.from(persistTime));
+		val sql = new StringBuilder(
+				"select persist_time, message_id" +
+				" from ebms_message" +
+				" where persist_time < ?" +
+				" and message_nr = 0");
+		if (cpaId != null)
+		{
+			sql.append(" and cpa_id = ?");
+			parameters.add(cpaId);
+		}
+		if (excludedCpaIds.length > 0)
+		{
+			sql.append(" and cpa_id not in (" + Arrays.stream(excludedCpaIds).map(c -> "?").collect(Collectors.joining(",")) + ")");
+			parameters.addAll(Arrays.asList(excludedCpaIds));
+		}
+		sql.append(EbMSDAO.getKeysetFilter("persist_time","message_id",after,parameters));
+		sql.append(
+				" and (status is null or status not in (" + EbMSMessageStatus.CREATED.getId() + "," + EbMSMessageStatus.RECEIVED.getId() + "))" +
+				" and not exists (select 1 from ebms_event where ebms_event.message_id = ebms_message.message_id)" +
+				" order by persist_time, message_id");
+		return jdbcTemplate.query(
+				c ->
+				{
+					PreparedStatement ps = c.prepareStatement(sql.toString());
+					ps.setMaxRows(maxNr);
+					return ps;
+				},
+				new ArgumentPreparedStatementSetter(parameters.toArray()),
+				new RowMapperResultSetExtractor<>((rs,rowNum) -> Tuple.of(rs.getTimestamp("persist_time").toInstant(),rs.getString("message_id"))));
+	}
 
 	@Override
 	public List<String> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, int maxNr)
 	{
 		val parameters = new ArrayList<Object>();
+		parameters.add(status.getId());
 		val messageContextFilter = EbMSDAO.getMessageContextFilter(messageContext,parameters);
+		parameters.add(maxNr);
 		return jdbcTemplate.queryForList(
-				getMessageIdsQuery(messageContextFilter,status,maxNr),
+				getMessageIdsQuery(messageContextFilter),
 				parameters.toArray(new Object[0]),
 				String.class);
 	}
 
 	@Override
-	public String insertMessage(final Instant timestamp, final Instant persistTime, final Document document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments, final EbMSMessageStatus status)
+	public String insertMessage(final Instant timestamp, final Instant persistTime, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments, final EbMSMessageStatus status)
 	{
 		try
 		{
@@ -425,8 +517,10 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 							"content," +
 							"status," +
 							"status_time," +
-							"persist_time" +
-						") values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)",
+							"persist_time," +
+							"content_codec," +
+							"binary_content" +
+						") values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)",
 						new int[]{4,5}
 					);
 					ps.setTimestamp(1,Timestamp.from(timestamp));
@@ -441,7 +535,7 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 					ps.setString(10,messageHeader.getTo().getRole());
 					ps.setString(11,EbMSMessageUtils.toString(messageHeader.getService()));
 					ps.setString(12,messageHeader.getAction());
-					ps.setString(13,DOMUtils.toString(document,"UTF-8"));
+					setContent(ps,13,17,document);
 					ps.setObject(14,status != null ? status.getId() : null,java.sql.Types.INTEGER);
 					ps.setTimestamp(15,status != null ? Timestamp.from(timestamp) : null);
 					ps.setTimestamp(16,persistTime != null ? Timestamp.from(persistTime) : null);
@@ -453,7 +547,7 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 				}
 			},
 			keyHolder);
-			insertAttachments(keyHolder,attachments);
+			insertAttachments(keyHolder,timestamp,attachments);
 			return (String)keyHolder.getKeys().get("message_id");
 		}
 		catch (IOException e)
@@ -463,7 +557,7 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 	}
 
 	@Override
-	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final Document document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
+	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
 	{
 		try
 		{
@@ -489,8 +583,10 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 							"to_role," +
 							"service," +
 							"action," +
-							"content" +
-						") values (?,?,?,?,(select max(message_nr) + 1 from ebms_message where message_id = ?),?,?,?,?,?,?,?,?,?)",
+							"content," +
+							"content_codec," +
+							"binary_content" +
+						") values (?,?,?,?,(select max(message_nr) + 1 from ebms_message where message_id = ?),?,?,?,?,?,?,?,?,?,?,?)",
 						new int[]{4,5}
 					);
 					ps.setTimestamp(1,Timestamp.from(timestamp));
@@ -506,7 +602,7 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 					ps.setString(11,messageHeader.getTo().getRole());
 					ps.setString(12,EbMSMessageUtils.toString(messageHeader.getService()));
 					ps.setString(13,messageHeader.getAction());
-					ps.setString(14,DOMUtils.toString(document,"UTF-8"));
+					setContent(ps,14,15,document);
 					return ps;
 				}
 				catch (TransformerException e)
@@ -515,7 +611,7 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 				}
 			},
 			keyHolder);
-			insertAttachments(keyHolder,attachments);
+			insertAttachments(keyHolder,timestamp,attachments);
 			return Tuple.of((String)keyHolder.getKeys().get("message_id"),(Integer)keyHolder.getKeys().get("message_nr"));
 		}
 		catch (IOException e)
@@ -524,30 +620,123 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 		}
 	}
 
-	protected void insertAttachments(KeyHolder keyHolder, List<EbMSAttachment> attachments) throws InvalidDataAccessApiUsageException, IOException
+	protected void insertAttachments(KeyHolder keyHolder, Instant timestamp, List<EbMSAttachment> attachments) throws InvalidDataAccessApiUsageException, IOException
 	{
-		val orderNr = new AtomicInteger();
-		for (val attachment: attachments)
+		if (attachments.isEmpty())
+			return;
+		val keys = keyHolder.getKeys();
+		val streams = new ArrayList<InputStream>();
+		try
 		{
-			jdbcTemplate.update(c ->
+			jdbcTemplate.batchUpdate(
+					"insert into ebms_attachment (message_id,message_nr,order_nr,name,content_id,content_type,content,content_digest,time_stamp) values (?,?,?,?,?,?,?,?,?)",
+					new BatchPreparedStatementSetter()
+					{
+						@Override
+						public void setValues(PreparedStatement ps, int i) throws SQLException
+						{
+							try
+							{
+								val a = attachments.get(i);
+								ps.setObject(1,keys.get("message_id"));
+								ps.setObject(2,keys.get("message_nr"));
+								ps.setInt(3,i);
+								ps.setString(4,a.getName());
+								ps.setString(5,a.getContentId());
+								ps.setString(6,a.getContentType());
+								setAttachmentContent(ps,7,a).ifPresent(streams::add);
+								ps.setTimestamp(9,Timestamp.from(timestamp));
+							}
+							catch (IOException e)
+							{
+								throw new SQLException(e);
+							}
+						}
+
+						@Override
+						public int getBatchSize()
+						{
+							return attachments.size();
+						}
+					});
+		}
+		finally
+		{
+			close(streams,attachments);
+		}
+	}
+
+	protected Optional<InputStream> setAttachmentContent(PreparedStatement ps, int contentIndex, EbMSAttachment attachment) throws SQLException, IOException
+	{
+		if (attachmentStore != null)
+		{
+			ps.setBytes(contentIndex,null);
+			ps.setString(contentIndex + 1,attachmentStore.store(attachment));
+			return Optional.empty();
+		}
+		else
+		{
+			val content = attachment.getInputStream();
+			if (attachment.getContentLength() < 0)
+				ps.setBinaryStream(contentIndex,content);
+			else
+				ps.setBinaryStream(contentIndex,content,attachment.getContentLength());
+			ps.setString(contentIndex + 1,null);
+			return Optional.of(content);
+		}
+	}
+
+	protected void close(List<InputStream> streams, List<EbMSAttachment> attachments)
+	{
+		streams.forEach(IOUtils::closeQuietly);
+		attachments.forEach(EbMSAttachment::close);
+	}
+
+	protected InputStream getAttachmentContent(ResultSet rs) throws SQLException, IOException
+	{
+		val digest = rs.getString("content_digest");
+		if (digest == null)
+			return rs.getBinaryStream("attachment_content");
+		else if (attachmentStore == null)
+			throw new DataRetrievalFailureException("No attachment store configured to load content " + digest);
+		else
+			return attachmentStore.load(digest);
+	}
+
+	protected void setContent(PreparedStatement ps, int contentIndex, int contentCodecIndex, EbMSDocument document) throws SQLException, TransformerException
+	{
+		try
+		{
+			ps.setString(contentIndex,contentCodec == EbMSContentCodec.NONE ? document.getContentAsString() : null);
+			ps.setInt(contentCodecIndex,contentCodec.getId());
+			ps.setBytes(contentCodecIndex + 1,contentCodec == EbMSContentCodec.NONE ? null : contentCodec.encode(document.getContent()));
+		}
+		catch (IOException e)
+		{
+			throw new SQLException(e);
+		}
+	}
+
+	protected byte[] getContent(ResultSet rs) throws SQLException
+	{
+		try
+		{
+			val id = rs.getInt("content_codec");
+			val contentCodec = EbMSContentCodec.get(id).orElseThrow(() -> new SQLException("Unknown content_codec " + id));
+			if (contentCodec == EbMSContentCodec.NONE)
 			{
-				try (val a = attachment)
-				{
-					val ps = c.prepareStatement("insert into ebms_attachment (message_id,message_nr,order_nr,name,content_id,content_type,content) values (?,?,?,?,?,?,?)");
-					ps.setObject(1,keyHolder.getKeys().get("message_id"));
-					ps.setObject(2,keyHolder.getKeys().get("message_nr"));
-					ps.setInt(3,orderNr.getAndIncrement());
-					ps.setString(4,a.getName());
-					ps.setString(5,a.getContentId());
-					ps.setString(6,a.getContentType());
-					ps.setBinaryStream(7,a.getInputStream());
-					return ps;
-				}
-				catch (IOException e)
-				{
-					throw new SQLException(e);
-				}
-			});
+				val content = rs.getString("content");
+				return content == null ? null : content.getBytes(StandardCharsets.UTF_8);
+			}
+			else
+			{
+				val content = rs.getBytes("binary_content");
+				return content == null ? null : contentCodec.decode(content);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new SQLException(e);
 		}
 	}
 
@@ -572,23 +761,122 @@ abstract class AbstractEbMSDAO implements EbMSDAO
 	@Override
 	public int deleteAttachments(String messageId)
 	{
-		return jdbcTemplate.update(
-				"delete from ebms_attachment" +
-				" where message_id = ?",
-				messageId
-			);
+		releaseAttachmentContent(Collections.singletonList(messageId));
+		return jdbcTemplate.update(getDeleteAttachmentsQuery(),messageId);
+	}
+
+	protected void releaseAttachmentContent(List<String> messageIds)
+	{
+		if (attachmentStore != null)
+			for (var i = 0; i < messageIds.size(); i += MAX_IN_PARAMETERS)
+			{
+				val batch = messageIds.subList(i,Math.min(i + MAX_IN_PARAMETERS,messageIds.size()));
+				attachmentStore.release(jdbcTemplate.queryForList(getAttachmentContentQuery(batch.size()),String.class,batch.toArray()));
+			}
+	}
+
+	protected String getAttachmentContentQuery(int messageIds)
+	{
+		return "select distinct content_digest" +
+				" from ebms_attachment" +
+				" where message_id in (" + getInParameters(messageIds) + ")" +
+				" and content_digest is not null";
+	}
+
+	protected static String getInParameters(int count)
+	{
+		return String.join(",",Collections.nCopies(count,"?"));
+	}
+
+	protected String getDeleteAttachmentsQuery()
+	{
+		return "delete from ebms_attachment" +
+				" where message_id = ?";
+	}
+
+	@Override
+	public Set<String> getReferencedAttachmentContent(Collection<String> digests)
+	{
+		return digests.isEmpty() ? Collections.<String>emptySet() : new HashSet<>(jdbcTemplate.queryForList(
+				"select distinct content_digest" +
+				" from ebms_attachment" +
+				" where content_digest in (" + getInParameters(digests.size()) + ")",
+				String.class,
+				digests.toArray()));
+	}
+
+	@Override
+	public void deleteMessages(List<String> messageIds)
+	{
+		releaseAttachmentContent(messageIds);
+		val parameters = messageIds.stream().map(id -> new Object[]{id}).collect(Collectors.toList());
+		jdbcTemplate.batchUpdate(getDeleteAttachmentsQuery(),parameters);
+		jdbcTemplate.batchUpdate("delete from ebms_event_log where message_id = ?",parameters);
+		jdbcTemplate.batchUpdate("delete from ebms_message_event where message_id = ?",parameters);
+		jdbcTemplate.batchUpdate("delete from ebms_message where message_id = ?",parameters);
+	}
+
+	protected String getActionFilter(EbMSAction...actions)
+	{
+		return actions.length == 0
+				? ""
+				: " and service = ? and action in (" + Arrays.stream(actions).map(a -> "?").collect(Collectors.joining(",")) + ")";
+	}
+
+	protected Object[] getActionParameters(EbMSAction[] actions, Object...parameters)
+	{
+		val result = new ArrayList<Object>(Arrays.asList(parameters));
+		if (actions.length > 0)
+		{
+			result.add(EbMSAction.EBMS_SERVICE_URI);
+			Arrays.stream(actions).map(EbMSAction::getAction).forEach(result::add);
+		}
+		return result.toArray();
+	}
+
+	protected EbMSAttachment createEbMSAttachment(ResultSet rs, int rowNum) throws SQLException
+	{
+		val digest = rs.getString("content_digest");
+		if (digest != null && attachmentStore != null)
+			return EbMSAttachmentFactory.createStoredEbMSAttachment(rs.getString("name"),rs.getString("content_id"),rs.getString("content_type"),attachmentStore,digest);
+		return cachedEbMSAttachmentRowMapper.mapRow(rs,rowNum);
+	}
+
+	protected String getMessageAttachmentJoin()
+	{
+		return " from ebms_message m" +
+				" left join ebms_attachment a" +
+				" on m.message_id = a.message_id" +
+				" and m.message_nr = a.message_nr";
 	}
 
-	protected <T> List<T> getAttachments(String messageId, RowMapper<T> rowMapper)
+	protected <T,U> Optional<Tuple2<T,List<U>>> getMessageWithAttachments(String select, String where, RowMapper<T> messageRowMapper, RowMapper<U> attachmentRowMapper, Object...args)
 	{
 		return jdbcTemplate.query(
-				"select name, content_id, content_type, content" + 
-						" from ebms_attachment" + 
-						" where message_id = ?" +
-						" and message_nr = 0" +
-						" order by order_nr",
-						rowMapper,
-						messageId
-					);
+				select + ", m.message_id attachment_message_id, a.order_nr, a.name, a.content_id, a.content_type, a.content_digest" +
+				getMessageAttachmentJoin() +
+				where +
+				" order by a.order_nr",
+				(ResultSetExtractor<Optional<Tuple2<T,List<U>>>>)rs ->
+				{
+					T message = null;
+					String messageId = null;
+					val attachments = new ArrayList<U>();
+					for (int rowNum = 0; rs.next(); rowNum++)
+					{
+						if (rowNum == 0)
+						{
+							messageId = rs.getString("attachment_message_id");
+							message = messageRowMapper.mapRow(rs,rowNum);
+						}
+						else if (!messageId.equals(rs.getString("attachment_message_id")))
+							throw new IncorrectResultSizeDataAccessException(1);
+						if (rs.getString("content_id") != null)
+							attachments.add(attachmentRowMapper.mapRow(rs,rowNum));
+					}
+					return message == null ? Optional.empty() : Optional.of(Tuple.of(message,attachments));
+				},
+				args
+			);
 	}
 }
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+import nl.clockwork.ebms.model.EbMSAttachment;
+
+public interface AttachmentStore
+{
+	String store(EbMSAttachment attachment) throws IOException;
+	String store(InputStream content) throws IOException;
+	InputStream load(String digest) throws IOException;
+	void release(Collection<String> digests);
+	int collectGarbage(Function<Collection<String>,Set<String>> getReferenced) throws IOException;
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+class AttachmentStoreCollector implements Runnable
+{
+	@NonNull
+	AttachmentStore attachmentStore;
+	@NonNull
+	EbMSDAO ebMSDAO;
+
+	@Override
+	public void run()
+	{
+		try
+		{
+			val result = attachmentStore.collectGarbage(ebMSDAO::getReferencedAttachmentContent);
+			log.info("Collected " + result + " unreferenced attachment files");
+		}
+		catch (Exception e)
+		{
+			log.error("",e);
+		}
+	}
+}
@@ -15,19 +15,31 @@
  */
 package nl.clockwork.ebms.dao;
 
+import java.nio.file.Paths;
+import java.time.Duration;
+
 import javax.sql.DataSource;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import lombok.AccessLevel;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.EbMSAttachmentFactory;
+import nl.clockwork.ebms.dao.PostgreSQLPartitionManager.PartitionInterval;
 
 @Configuration
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -38,12 +50,88 @@ public abstract class DAOConfig
 	PlatformTransactionManager dataSourceTransactionManager;
 	@Autowired
 	DataSource dataSource;
+	@Autowired(required = false)
+	EmbeddedStore embeddedStore;
+	@Value("${ebmsMessage.content.codec}")
+	EbMSContentCodec contentCodec;
+	@Value("${ebmsMessage.attachment.store.directory}")
+	String attachmentStoreDirectory;
+	@Value("${ebmsMessage.attachment.store.gracePeriod}")
+	String attachmentStoreGracePeriod;
+	@Value("${ebmsMessage.attachment.store.gcInterval}")
+	long attachmentStoreGcInterval;
+	@Value("${ebmsMessage.partition.interval}")
+	PartitionInterval partitionInterval;
+	@Value("${ebmsMessage.partition.precreate}")
+	int partitionPrecreate;
+	@Value("${ebmsMessage.partition.retention}")
+	int partitionRetention;
+	@Value("${ebmsMessage.partition.executionInterval}")
+	long partitionExecutionInterval;
 
 	@Bean
 	public EbMSDAOFactory ebMSDAO()
 	{
 		val transactionTemplate = new TransactionTemplate(dataSourceTransactionManager);
 		val jdbcTemplate = new JdbcTemplate(dataSource);
-		return new EbMSDAOFactory(dataSource,transactionTemplate,jdbcTemplate);
+		return new EbMSDAOFactory(dataSource,embeddedStore,transactionTemplate,jdbcTemplate,contentCodec,attachmentStore());
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	@Conditional(PartitionedTables.class)
+	public ThreadPoolTaskScheduler partitionManager()
+	{
+		if (!AbstractDAOFactory.getDriverClassName(dataSource).contains("postgresql"))
+			throw new IllegalStateException("Partitioned tables are only supported on PostgreSQL");
+		val result = new ThreadPoolTaskScheduler();
+		result.setDaemon(true);
+		result.initialize();
+		result.scheduleWithFixedDelay(
+				new PostgreSQLPartitionManager(
+						new TransactionTemplate(dataSourceTransactionManager),
+						new JdbcTemplate(dataSource),
+						partitionInterval,
+						partitionPrecreate,
+						partitionRetention,
+						attachmentStore()),
+				partitionExecutionInterval);
+		return result;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	@Conditional(AttachmentStoreEnabled.class)
+	public ThreadPoolTaskScheduler attachmentStoreCollector(EbMSDAO ebMSDAO)
+	{
+		val result = new ThreadPoolTaskScheduler();
+		result.setDaemon(true);
+		result.initialize();
+		result.scheduleWithFixedDelay(new AttachmentStoreCollector(attachmentStore(),ebMSDAO),attachmentStoreGcInterval);
+		return result;
+	}
+
+	@Bean
+	public AttachmentStore attachmentStore()
+	{
+		val result = StringUtils.isEmpty(attachmentStoreDirectory) ? null : new FileSystemAttachmentStore(Paths.get(attachmentStoreDirectory),Duration.parse(attachmentStoreGracePeriod));
+		EbMSAttachmentFactory.init(result);
+		return result;
+	}
+
+	public static class AttachmentStoreEnabled implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return StringUtils.isNotEmpty(context.getEnvironment().getProperty("ebmsMessage.attachment.store.directory"));
+		}
+	}
+
+	public static class PartitionedTables implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return context.getEnvironment().getProperty("ebms.jdbc.partitioned",Boolean.class,false);
+		}
 	}
 }
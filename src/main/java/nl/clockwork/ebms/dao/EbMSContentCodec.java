@@ -0,0 +1,119 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+@Getter
+public enum EbMSContentCodec
+{
+	NONE(0)
+	{
+		@Override
+		protected OutputStream encoder(OutputStream out)
+		{
+			return out;
+		}
+
+		@Override
+		protected InputStream decoder(InputStream in)
+		{
+			return in;
+		}
+	},
+	GZIP(1)
+	{
+		@Override
+		protected OutputStream encoder(OutputStream out) throws IOException
+		{
+			return new GZIPOutputStream(out);
+		}
+
+		@Override
+		protected InputStream decoder(InputStream in) throws IOException
+		{
+			return new GZIPInputStream(in);
+		}
+	},
+	DEFLATE(2)
+	{
+		@Override
+		protected OutputStream encoder(OutputStream out)
+		{
+			return new DeflaterOutputStream(out);
+		}
+
+		@Override
+		protected InputStream decoder(InputStream in)
+		{
+			return new InflaterInputStream(in);
+		}
+	};
+
+	int id;
+
+	protected abstract OutputStream encoder(OutputStream out) throws IOException;
+
+	protected abstract InputStream decoder(InputStream in) throws IOException;
+
+	public byte[] encode(byte[] content) throws IOException
+	{
+		val result = new ByteArrayOutputStream();
+		try (val out = encoder(result))
+		{
+			out.write(content);
+		}
+		return result.toByteArray();
+	}
+
+	public byte[] decode(byte[] content) throws IOException
+	{
+		try (val in = decoder(new ByteArrayInputStream(content)))
+		{
+			return IOUtils.toByteArray(in);
+		}
+	}
+
+	public static Stream<EbMSContentCodec> stream()
+	{
+		return Stream.of(values());
+	}
+
+	public static Optional<EbMSContentCodec> get(int id)
+	{
+		return stream().filter(c -> c.getId() == id).findFirst();
+	}
+}
@@ -15,9 +15,13 @@
  */
 package nl.clockwork.ebms.dao;
 
+import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.w3c.dom.Document;
 
@@ -35,6 +39,7 @@ import nl.clockwork.ebms.service.model.EbMSMessageContext;
 public interface EbMSDAO
 {
 	void executeTransaction(Runnable runnable);
+	void executeReadOnlyTransaction(Runnable runnable);
 
 	boolean existsMessage(String messageId);
 	boolean existsIdenticalMessage(EbMSBaseMessage message);
@@ -51,13 +56,18 @@ public interface EbMSDAO
 
 	List<String> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status);
 	List<String> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, int maxNr);
+	List<Tuple2<Instant,String>> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, Tuple2<Instant,String> after, int maxNr);
+	void streamMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, int fetchSize, Consumer<String> consumer);
+	List<Tuple2<Instant,String>> getExpiredMessageIds(Instant persistTime, Tuple2<Instant,String> after, int maxNr, String cpaId, String...excludedCpaIds);
 
-	String insertMessage(Instant timestamp, Instant persistTime, Document document, EbMSBaseMessage message, List<EbMSAttachment> attachments, EbMSMessageStatus status);
-	Tuple2<String,Integer> insertDuplicateMessage(Instant timestamp, Document document, EbMSBaseMessage message, List<EbMSAttachment> attachments);
+	String insertMessage(Instant timestamp, Instant persistTime, EbMSDocument document, EbMSBaseMessage message, List<EbMSAttachment> attachments, EbMSMessageStatus status);
+	Tuple2<String,Integer> insertDuplicateMessage(Instant timestamp, EbMSDocument document, EbMSBaseMessage message, List<EbMSAttachment> attachments);
 
 	int updateMessage(String messageId, EbMSMessageStatus oldStatus, EbMSMessageStatus newStatus);
 
 	int deleteAttachments(String messageId);
+	Set<String> getReferencedAttachmentContent(Collection<String> digests);
+	void deleteMessages(List<String> messageIds);
 
 	public static String getMessageContextFilter(EbMSMessageContext messageContext, List<Object> parameters)
 	{
@@ -128,4 +138,14 @@ public interface EbMSDAO
 		}
 		return result.toString();
 	}
+
+	public static String getKeysetFilter(String timestampColumn, String idColumn, Tuple2<Instant,String> after, List<Object> parameters)
+	{
+		if (after == null)
+			return "";
+		parameters.add(Timestamp.from(after._1));
+		parameters.add(Timestamp.from(after._1));
+		parameters.add(after._2);
+		return " and (" + timestampColumn + " > ? or (" + timestampColumn + " = ? and " + idColumn + " > ?))";
+	}
 }
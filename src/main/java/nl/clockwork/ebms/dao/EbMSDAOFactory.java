@@ -31,12 +31,27 @@ class EbMSDAOFactory extends AbstractDAOFactory<EbMSDAO>
 	TransactionTemplate transactionTemplate; 
 	@NonNull
 	JdbcTemplate jdbcTemplate;
+	@NonNull
+	EbMSContentCodec contentCodec;
+	AttachmentStore attachmentStore;
 
 	public EbMSDAOFactory(DataSource dataSource, @NonNull TransactionTemplate transactionTemplate, @NonNull JdbcTemplate jdbcTemplate)
 	{
-		super(dataSource);
+		this(dataSource,transactionTemplate,jdbcTemplate,EbMSContentCodec.NONE,null);
+	}
+
+	public EbMSDAOFactory(DataSource dataSource, @NonNull TransactionTemplate transactionTemplate, @NonNull JdbcTemplate jdbcTemplate, @NonNull EbMSContentCodec contentCodec, AttachmentStore attachmentStore)
+	{
+		this(dataSource,null,transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
+	}
+
+	public EbMSDAOFactory(DataSource dataSource, EmbeddedStore embeddedStore, @NonNull TransactionTemplate transactionTemplate, @NonNull JdbcTemplate jdbcTemplate, @NonNull EbMSContentCodec contentCodec, AttachmentStore attachmentStore)
+	{
+		super(dataSource,embeddedStore);
 		this.transactionTemplate = transactionTemplate;
 		this.jdbcTemplate = jdbcTemplate;
+		this.contentCodec = contentCodec;
+		this.attachmentStore = attachmentStore;
 	}
 
 	@Override
@@ -48,42 +63,50 @@ class EbMSDAOFactory extends AbstractDAOFactory<EbMSDAO>
 	@Override
 	public EbMSDAO createDB2DAO()
 	{
-		return new DB2EbMSDAO(transactionTemplate,jdbcTemplate);
+		return new DB2EbMSDAO(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
 	public EbMSDAO createH2DAO()
 	{
-		return new H2EbMSDAO(transactionTemplate,jdbcTemplate);
+		return new H2EbMSDAO(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
 	public EbMSDAO createHSQLDBDAO()
 	{
-		return new HSQLDBEbMSDAO(transactionTemplate,jdbcTemplate);
+		return new HSQLDBEbMSDAO(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
 	public EbMSDAO createMSSQLDAO()
 	{
-		return new MSSQLEbMSDAO(transactionTemplate,jdbcTemplate);
+		return new MSSQLEbMSDAO(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
 	public EbMSDAO createMySQLDAO()
 	{
-		return new MySQLEbMSDAO(transactionTemplate,jdbcTemplate);
+		return new MySQLEbMSDAO(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
 	public EbMSDAO createOracleDAO()
 	{
-		return new OracleEbMSDAO(transactionTemplate,jdbcTemplate);
+		return new OracleEbMSDAO(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
 	public EbMSDAO createPostgreSQLDAO()
 	{
-		return new PostgreSQLEbMSDAO(transactionTemplate,jdbcTemplate);
+		return new PostgreSQLEbMSDAO(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
+	}
+
+	@Override
+	public EbMSDAO createEmbeddedDAO(EmbeddedStore embeddedStore)
+	{
+		if (attachmentStore == null)
+			throw new IllegalStateException("Embedded store requires an attachment store! Set ebmsMessage.attachment.store.directory");
+		return new EmbeddedEbMSDAO(transactionTemplate,embeddedStore,contentCodec,attachmentStore);
 	}
 }
@@ -0,0 +1,558 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import static nl.clockwork.ebms.dao.EmbeddedStore.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.activation.DataHandler;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+
+import org.apache.commons.io.IOUtils;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.EbMSAction;
+import nl.clockwork.ebms.EbMSAttachmentFactory;
+import nl.clockwork.ebms.EbMSMessageStatus;
+import nl.clockwork.ebms.EbMSMessageUtils;
+import nl.clockwork.ebms.model.EbMSAttachment;
+import nl.clockwork.ebms.model.EbMSBaseMessage;
+import nl.clockwork.ebms.model.EbMSDocument;
+import nl.clockwork.ebms.service.model.EbMSDataSource;
+import nl.clockwork.ebms.service.model.EbMSDataSourceMTOM;
+import nl.clockwork.ebms.service.model.EbMSMessageContent;
+import nl.clockwork.ebms.service.model.EbMSMessageContentMTOM;
+import nl.clockwork.ebms.service.model.EbMSMessageContext;
+import nl.clockwork.ebms.util.DOMUtils;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+class EmbeddedEbMSDAO implements EbMSDAO
+{
+	private static final int NAME = 0;
+	private static final int CONTENT_ID = 1;
+	private static final int CONTENT_TYPE = 2;
+	private static final int CONTENT_DIGEST = 3;
+
+	@NonNull
+	TransactionTemplate transactionTemplate;
+	@NonNull
+	EmbeddedStore embeddedStore;
+	@NonNull
+	EbMSContentCodec contentCodec;
+	@NonNull
+	AttachmentStore attachmentStore;
+
+	@Override
+	public void executeTransaction(final Runnable runnable)
+	{
+		transactionTemplate.execute(
+			new TransactionCallbackWithoutResult()
+			{
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus transactionStatus)
+				{
+					runnable.run();
+				}
+			}
+		);
+	}
+
+	@Override
+	public void executeReadOnlyTransaction(final Runnable runnable)
+	{
+		val readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),transactionTemplate);
+		readOnlyTransactionTemplate.setReadOnly(true);
+		readOnlyTransactionTemplate.execute(
+			new TransactionCallbackWithoutResult()
+			{
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus transactionStatus)
+				{
+					runnable.run();
+				}
+			}
+		);
+	}
+
+	@Override
+	public boolean existsMessage(String messageId)
+	{
+		return embeddedStore.execute(t -> messages(t).containsKey(key(messageId,0)));
+	}
+
+	@Override
+	public boolean existsIdenticalMessage(EbMSBaseMessage message)
+	{
+		return getMessage(message.getMessageHeader().getMessageData().getMessageId())
+				.map(m -> message.getMessageHeader().getCPAId().equals(m[CPA_ID]))
+				.orElse(false);
+	}
+
+	@Override
+	public Optional<EbMSMessageContent> getMessageContent(String messageId)
+	{
+		return embeddedStore.execute(t -> Optional.ofNullable(messages(t).get(key(messageId,0)))
+				.map(m -> new EbMSMessageContent(EmbeddedStore.getMessageContext(messageId,m),getAttachments(t,messageId,this::createEbMSDataSource))));
+	}
+
+	@Override
+	public Optional<EbMSMessageContentMTOM> getMessageContentMTOM(String messageId)
+	{
+		return embeddedStore.execute(t -> Optional.ofNullable(messages(t).get(key(messageId,0)))
+				.map(m -> new EbMSMessageContentMTOM(EmbeddedStore.getMessageContext(messageId,m),getAttachments(t,messageId,this::createEbMSDataSourceMTOM))));
+	}
+
+	@Override
+	public Optional<EbMSMessageContext> getMessageContext(String messageId)
+	{
+		return getMessage(messageId).map(m -> EmbeddedStore.getMessageContext(messageId,m));
+	}
+
+	@Override
+	public Optional<EbMSMessageContext> getMessageContextByRefToMessageId(String cpaId, String refToMessageId, EbMSAction...actions)
+	{
+		return embeddedStore.execute(t -> getMessageIdByRefToMessageId(t,cpaId,refToMessageId,actions)
+				.map(id -> EmbeddedStore.getMessageContext(id,messages(t).get(key(id,0)))));
+	}
+
+	@Override
+	public Optional<Document> getDocument(String messageId)
+	{
+		try
+		{
+			val content = getMessage(messageId).map(m -> getContent(m));
+			return content.isPresent() ? Optional.of(DOMUtils.read(new ByteArrayInputStream(content.get()),"UTF-8")) : Optional.empty();
+		}
+		catch (ParserConfigurationException | SAXException | IOException e)
+		{
+			throw new DataRetrievalFailureException("",e);
+		}
+	}
+
+	@Override
+	public Optional<EbMSDocument> getEbMSDocumentIfUnsent(String messageId)
+	{
+		return embeddedStore.execute(t -> Optional.ofNullable(messages(t).get(key(messageId,0)))
+				.filter(m -> m[STATUS] == null || (Integer)m[STATUS] == EbMSMessageStatus.CREATED.getId())
+				.map(m -> EbMSDocument.builder()
+						.contentId(messageId)
+						.content(getContent(m))
+						.attachments(getAttachments(t,messageId,this::createEbMSAttachment))
+						.build()));
+	}
+
+	@Override
+	public Optional<EbMSDocument> getEbMSDocumentByRefToMessageId(String cpaId, String refToMessageId, EbMSAction...actions)
+	{
+		return embeddedStore.execute(t -> getMessageIdByRefToMessageId(t,cpaId,refToMessageId,actions)
+				.map(id -> EbMSDocument.builder()
+						.contentId(id)
+						.content(getContent(messages(t).get(key(id,0))))
+						.attachments(getAttachments(t,id,this::createEbMSAttachment))
+						.build()));
+	}
+
+	@Override
+	public Optional<Instant> getPersistTime(String messageId)
+	{
+		return getMessage(messageId).map(m -> toInstant(m[PERSIST_TIME]));
+	}
+
+	@Override
+	public Optional<EbMSAction> getMessageAction(String messageId)
+	{
+		return getMessage(messageId).flatMap(m -> EbMSAction.get((String)m[ACTION]));
+	}
+
+	@Override
+	public List<String> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status)
+	{
+		return getMessageIds(messageContext,status,Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<String> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, int maxNr)
+	{
+		return embeddedStore.execute(t -> getMessageIds(t,messageContext,status,null).limit(maxNr).map(Tuple2::_2).collect(Collectors.toList()));
+	}
+
+	@Override
+	public List<Tuple2<Instant,String>> getMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, Tuple2<Instant,String> after, int maxNr)
+	{
+		return embeddedStore.execute(t -> getMessageIds(t,messageContext,status,after).limit(maxNr).collect(Collectors.toList()));
+	}
+
+	@Override
+	public void streamMessageIds(EbMSMessageContext messageContext, EbMSMessageStatus status, int fetchSize, Consumer<String> consumer)
+	{
+		embeddedStore.execute(t ->
+		{
+			getMessageIds(t,messageContext,status,null).map(Tuple2::_2).forEach(consumer);
+			return null;
+		});
+	}
+
+	private Stream<Tuple2<Instant,String>> getMessageIds(Transaction transaction, EbMSMessageContext messageContext, EbMSMessageStatus status, Tuple2<Instant,String> after)
+	{
+		val messages = messages(transaction);
+		return keys(
+					transaction.openMap(MESSAGE_STATUS),
+					new Object[]{status.getId()},
+					after == null ? null : new Object[]{status.getId(),toLong(after._1),after._2})
+				.filter(k -> messageContext == null || matches(messageContext,EmbeddedStore.getMessageContext((String)k[2],messages.get(key((String)k[2],0)))))
+				.map(k -> Tuple.of(toInstant(k[1]),(String)k[2]));
+	}
+
+	@Override
+	public List<Tuple2<Instant,String>> getExpiredMessageIds(Instant persistTime, Tuple2<Instant,String> after, int maxNr, String cpaId, String...excludedCpaIds)
+	{
+		val excluded = Arrays.asList(excludedCpaIds);
+		val before = toLong(persistTime);
+		return embeddedStore.execute(t ->
+		{
+			val messages = messages(t);
+			val events = t.openMap(EVENT);
+			return keys(
+						t.openMap(MESSAGE_PERSIST_TIME),
+						new Object[0],
+						after == null ? null : new Object[]{toLong(after._1),after._2},
+						k -> (Long)k[0] < before)
+					.filter(k ->
+					{
+						val m = messages.get(key((String)k[1],0));
+						return (cpaId == null || cpaId.equals(m[CPA_ID]))
+								&& !excluded.contains(m[CPA_ID])
+								&& (m[STATUS] == null || ((Integer)m[STATUS] != EbMSMessageStatus.CREATED.getId() && (Integer)m[STATUS] != EbMSMessageStatus.RECEIVED.getId()))
+								&& !events.containsKey(k[1]);
+					})
+					.limit(maxNr)
+					.map(k -> Tuple.of(toInstant(k[0]),(String)k[1]))
+					.collect(Collectors.toList());
+		});
+	}
+
+	@Override
+	public String insertMessage(final Instant timestamp, final Instant persistTime, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments, final EbMSMessageStatus status)
+	{
+		val messageId = message.getMessageHeader().getMessageData().getMessageId();
+		val record = createMessage(timestamp,document,message);
+		record[STATUS] = status != null ? status.getId() : null;
+		record[STATUS_TIME] = status != null ? toLong(timestamp) : null;
+		record[PERSIST_TIME] = toLong(persistTime);
+		val attachmentRecords = createAttachments(attachments);
+		return embeddedStore.execute(t ->
+		{
+			if (messages(t).putIfAbsent(key(messageId,0),record) != null)
+				throw new DuplicateKeyException("Message " + messageId + " already exists");
+			insertIndexes(t,messageId,record);
+			insertAttachments(t,messageId,0,attachmentRecords);
+			return messageId;
+		});
+	}
+
+	@Override
+	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
+	{
+		val messageId = message.getMessageHeader().getMessageData().getMessageId();
+		val record = createMessage(timestamp,document,message);
+		val attachmentRecords = createAttachments(attachments);
+		return embeddedStore.execute(t ->
+		{
+			val messages = messages(t);
+			val messageNr = keys(messages,new Object[]{messageId},null)
+					.mapToInt(k -> (Integer)k[1])
+					.max()
+					.orElseThrow(() -> new DataIntegrityViolationException("Message " + messageId + " not found")) + 1;
+			if (messages.putIfAbsent(key(messageId,messageNr),record) != null)
+				throw new DuplicateKeyException("Message " + messageId + " with message_nr " + messageNr + " already exists");
+			insertAttachments(t,messageId,messageNr,attachmentRecords);
+			return Tuple.of(messageId,messageNr);
+		});
+	}
+
+	private Object[] createMessage(Instant timestamp, EbMSDocument document, EbMSBaseMessage message)
+	{
+		try
+		{
+			val messageHeader = message.getMessageHeader();
+			val result = new Object[MESSAGE_FIELDS];
+			result[TIME_STAMP] = toLong(timestamp);
+			result[CPA_ID] = messageHeader.getCPAId();
+			result[CONVERSATION_ID] = messageHeader.getConversationId();
+			result[REF_TO_MESSAGE_ID] = messageHeader.getMessageData().getRefToMessageId();
+			result[TIME_TO_LIVE] = toLong(messageHeader.getMessageData().getTimeToLive());
+			result[FROM_PARTY_ID] = EbMSMessageUtils.toString(messageHeader.getFrom().getPartyId().get(0));
+			result[FROM_ROLE] = messageHeader.getFrom().getRole();
+			result[TO_PARTY_ID] = EbMSMessageUtils.toString(messageHeader.getTo().getPartyId().get(0));
+			result[TO_ROLE] = messageHeader.getTo().getRole();
+			result[SERVICE] = EbMSMessageUtils.toString(messageHeader.getService());
+			result[ACTION] = messageHeader.getAction();
+			result[CONTENT_CODEC] = contentCodec.getId();
+			result[CONTENT] = contentCodec.encode(document.getContent());
+			return result;
+		}
+		catch (TransformerException | IOException e)
+		{
+			throw new DataRetrievalFailureException("",e);
+		}
+	}
+
+	private void insertIndexes(Transaction transaction, String messageId, Object[] message)
+	{
+		if (message[STATUS] != null)
+			transaction.openMap(MESSAGE_STATUS).put(new Object[]{message[STATUS],message[TIME_STAMP],messageId},Boolean.TRUE);
+		if (message[REF_TO_MESSAGE_ID] != null)
+			transaction.openMap(MESSAGE_REF).put(new Object[]{message[CPA_ID],message[REF_TO_MESSAGE_ID],messageId},Boolean.TRUE);
+		if (message[PERSIST_TIME] != null)
+			transaction.openMap(MESSAGE_PERSIST_TIME).put(new Object[]{message[PERSIST_TIME],messageId},Boolean.TRUE);
+	}
+
+	private void deleteIndexes(Transaction transaction, String messageId, Object[] message)
+	{
+		if (message[STATUS] != null)
+			transaction.openMap(MESSAGE_STATUS).remove(new Object[]{message[STATUS],message[TIME_STAMP],messageId});
+		if (message[REF_TO_MESSAGE_ID] != null)
+			transaction.openMap(MESSAGE_REF).remove(new Object[]{message[CPA_ID],message[REF_TO_MESSAGE_ID],messageId});
+		if (message[PERSIST_TIME] != null)
+			transaction.openMap(MESSAGE_PERSIST_TIME).remove(new Object[]{message[PERSIST_TIME],messageId});
+	}
+
+	private List<Object[]> createAttachments(List<EbMSAttachment> attachments)
+	{
+		try
+		{
+			val result = new ArrayList<Object[]>();
+			for (val a : attachments)
+				result.add(new Object[]{a.getName(),a.getContentId(),a.getContentType(),attachmentStore.store(a)});
+			return result;
+		}
+		catch (IOException e)
+		{
+			throw new DataRetrievalFailureException("",e);
+		}
+		finally
+		{
+			attachments.forEach(EbMSAttachment::close);
+		}
+	}
+
+	private void insertAttachments(Transaction transaction, String messageId, int messageNr, List<Object[]> attachments)
+	{
+		val attachmentMap = transaction.<Object[],Object[]>openMap(ATTACHMENT);
+		val digestMap = transaction.<Object[],Boolean>openMap(ATTACHMENT_DIGEST);
+		for (int i = 0; i < attachments.size(); i++)
+		{
+			val a = attachments.get(i);
+			attachmentMap.put(new Object[]{messageId,messageNr,i},a);
+			digestMap.put(new Object[]{a[CONTENT_DIGEST],messageId,messageNr,i},Boolean.TRUE);
+		}
+	}
+
+	@Override
+	public int updateMessage(String messageId, EbMSMessageStatus oldStatus, EbMSMessageStatus newStatus)
+	{
+		return embeddedStore.execute(t ->
+		{
+			val messages = messages(t);
+			val key = key(messageId,0);
+			val message = messages.containsKey(key) ? messages.lock(key) : null;
+			if (message == null || oldStatus == null || !Integer.valueOf(oldStatus.getId()).equals(message[STATUS]))
+				return 0;
+			val result = message.clone();
+			result[STATUS] = newStatus.getId();
+			result[STATUS_TIME] = toLong(Instant.now());
+			messages.put(key,result);
+			deleteIndexes(t,messageId,message);
+			insertIndexes(t,messageId,result);
+			return 1;
+		});
+	}
+
+	@Override
+	public int deleteAttachments(String messageId)
+	{
+		return embeddedStore.execute(t -> deleteAttachments(t,messageId));
+	}
+
+	private int deleteAttachments(Transaction transaction, String messageId)
+	{
+		val attachmentMap = transaction.<Object[],Object[]>openMap(ATTACHMENT);
+		val digestMap = transaction.<Object[],Boolean>openMap(ATTACHMENT_DIGEST);
+		val keys = keys(attachmentMap,new Object[]{messageId},null).collect(Collectors.toList());
+		val digests = new ArrayList<String>();
+		for (val k : keys)
+		{
+			val a = attachmentMap.remove(k);
+			digestMap.remove(new Object[]{a[CONTENT_DIGEST],k[0],k[1],k[2]});
+			digests.add((String)a[CONTENT_DIGEST]);
+		}
+		attachmentStore.release(digests);
+		return keys.size();
+	}
+
+	@Override
+	public Set<String> getReferencedAttachmentContent(Collection<String> digests)
+	{
+		return embeddedStore.execute(t ->
+		{
+			val digestMap = t.<Object[],Boolean>openMap(ATTACHMENT_DIGEST);
+			return digests.stream().filter(d -> keys(digestMap,new Object[]{d},null).findAny().isPresent()).collect(Collectors.toSet());
+		});
+	}
+
+	@Override
+	public void deleteMessages(List<String> messageIds)
+	{
+		embeddedStore.execute(t ->
+		{
+			val eventLog = t.<Object[],Object[]>openMap(EVENT_LOG);
+			val messageEvents = t.<String,Object[]>openMap(MESSAGE_EVENT);
+			val unprocessedMessageEvents = t.<Object[],Boolean>openMap(MESSAGE_EVENT_UNPROCESSED);
+			val messages = messages(t);
+			for (val messageId : messageIds)
+			{
+				deleteAttachments(t,messageId);
+				keys(eventLog,new Object[]{messageId},null).collect(Collectors.toList()).forEach(eventLog::remove);
+				val messageEvent = messageEvents.remove(messageId);
+				if (messageEvent != null)
+					unprocessedMessageEvents.remove(new Object[]{messageEvent[MESSAGE_EVENT_TIME_STAMP],messageId});
+				for (val k : keys(messages,new Object[]{messageId},null).collect(Collectors.toList()))
+				{
+					val message = messages.remove(k);
+					if ((Integer)k[1] == 0)
+						deleteIndexes(t,messageId,message);
+				}
+			}
+			return null;
+		});
+	}
+
+	private Optional<Object[]> getMessage(String messageId)
+	{
+		return embeddedStore.execute(t -> Optional.ofNullable(messages(t).get(key(messageId,0))));
+	}
+
+	private Optional<String> getMessageIdByRefToMessageId(Transaction transaction, String cpaId, String refToMessageId, EbMSAction...actions)
+	{
+		val messages = messages(transaction);
+		val serviceActions = EbMSAction.getActions(actions);
+		return keys(transaction.openMap(MESSAGE_REF),new Object[]{cpaId,refToMessageId},null)
+				.map(k -> (String)k[2])
+				.filter(id -> actions.length == 0 || hasServiceAction(messages.get(key(id,0)),serviceActions))
+				.findFirst();
+	}
+
+	private static boolean hasServiceAction(Object[] message, List<String> actions)
+	{
+		return EbMSAction.EBMS_SERVICE_URI.equals(message[SERVICE]) && actions.contains(message[ACTION]);
+	}
+
+	private byte[] getContent(Object[] message)
+	{
+		try
+		{
+			val id = (Integer)message[CONTENT_CODEC];
+			return EbMSContentCodec.get(id)
+					.orElseThrow(() -> new DataRetrievalFailureException("Unknown content_codec " + id))
+					.decode((byte[])message[CONTENT]);
+		}
+		catch (IOException e)
+		{
+			throw new DataRetrievalFailureException("",e);
+		}
+	}
+
+	private <T> List<T> getAttachments(Transaction transaction, String messageId, Function<Object[],T> mapper)
+	{
+		val attachmentMap = transaction.<Object[],Object[]>openMap(ATTACHMENT);
+		return keys(attachmentMap,new Object[]{messageId,0},null)
+				.map(attachmentMap::get)
+				.map(mapper)
+				.collect(Collectors.toList());
+	}
+
+	private byte[] getAttachmentContent(Object[] attachment) throws IOException
+	{
+		try (val content = attachmentStore.load((String)attachment[CONTENT_DIGEST]))
+		{
+			return IOUtils.toByteArray(content);
+		}
+	}
+
+	private EbMSAttachment createEbMSAttachment(Object[] attachment)
+	{
+		return EbMSAttachmentFactory.createStoredEbMSAttachment((String)attachment[NAME],(String)attachment[CONTENT_ID],(String)attachment[CONTENT_TYPE],attachmentStore,(String)attachment[CONTENT_DIGEST]);
+	}
+
+	private EbMSDataSource createEbMSDataSource(Object[] attachment)
+	{
+		try
+		{
+			return new EbMSDataSource((String)attachment[NAME],(String)attachment[CONTENT_ID],(String)attachment[CONTENT_TYPE],getAttachmentContent(attachment));
+		}
+		catch (IOException e)
+		{
+			throw new DataRetrievalFailureException("",e);
+		}
+	}
+
+	private EbMSDataSourceMTOM createEbMSDataSourceMTOM(Object[] attachment)
+	{
+		val a = createEbMSAttachment(attachment);
+		return new EbMSDataSourceMTOM(a.getContentId(),new DataHandler(a));
+	}
+
+	private static TransactionMap<Object[],Object[]> messages(Transaction transaction)
+	{
+		return transaction.openMap(MESSAGE);
+	}
+
+	private static Object[] key(String messageId, int messageNr)
+	{
+		return new Object[]{messageId,messageNr};
+	}
+}
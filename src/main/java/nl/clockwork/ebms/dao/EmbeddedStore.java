@@ -0,0 +1,271 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.h2.mvstore.tx.TransactionStore;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.transaction.support.ResourceHolderSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.EbMSMessageStatus;
+import nl.clockwork.ebms.service.model.EbMSMessageContext;
+import nl.clockwork.ebms.service.model.Party;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EmbeddedStore implements AutoCloseable
+{
+	@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+	@AllArgsConstructor
+	@Getter
+	static class TransactionHolder extends ResourceHolderSupport
+	{
+		@NonNull
+		Transaction transaction;
+
+		public boolean isActive()
+		{
+			return transaction.getStatus() == Transaction.STATUS_OPEN;
+		}
+	}
+
+	public static final String CPA = "cpa";
+	public static final String MESSAGE = "ebms_message";
+	public static final String MESSAGE_STATUS = "ebms_message_status";
+	public static final String MESSAGE_REF = "ebms_message_ref";
+	public static final String MESSAGE_PERSIST_TIME = "ebms_message_persist_time";
+	public static final String ATTACHMENT = "ebms_attachment";
+	public static final String ATTACHMENT_DIGEST = "ebms_attachment_digest";
+	public static final String EVENT = "ebms_event";
+	public static final String EVENT_TIME = "ebms_event_time";
+	public static final String EVENT_LOG = "ebms_event_log";
+	public static final String MESSAGE_EVENT = "ebms_message_event";
+	public static final String MESSAGE_EVENT_UNPROCESSED = "ebms_message_event_unprocessed";
+
+	static final int TIME_STAMP = 0;
+	static final int CPA_ID = 1;
+	static final int CONVERSATION_ID = 2;
+	static final int REF_TO_MESSAGE_ID = 3;
+	static final int TIME_TO_LIVE = 4;
+	static final int FROM_PARTY_ID = 5;
+	static final int FROM_ROLE = 6;
+	static final int TO_PARTY_ID = 7;
+	static final int TO_ROLE = 8;
+	static final int SERVICE = 9;
+	static final int ACTION = 10;
+	static final int CONTENT_CODEC = 11;
+	static final int CONTENT = 12;
+	static final int STATUS = 13;
+	static final int STATUS_TIME = 14;
+	static final int PERSIST_TIME = 15;
+	static final int MESSAGE_FIELDS = 16;
+
+	public static final int MESSAGE_EVENT_TYPE = 0;
+	public static final int MESSAGE_EVENT_TIME_STAMP = 1;
+	public static final int MESSAGE_EVENT_PROCESSED = 2;
+
+	MVStore store;
+	TransactionStore transactionStore;
+	int lockTimeout;
+	boolean sync;
+
+	public EmbeddedStore(String path, int cacheSize, int lockTimeout, boolean sync)
+	{
+		val builder = new MVStore.Builder().cacheSize(cacheSize);
+		if (StringUtils.isNotEmpty(path))
+			builder.fileName(path);
+		this.store = builder.open();
+		this.transactionStore = new TransactionStore(store);
+		this.transactionStore.init();
+		this.transactionStore.endLeftoverTransactions();
+		this.lockTimeout = lockTimeout;
+		this.sync = sync;
+	}
+
+	Transaction begin()
+	{
+		val result = transactionStore.begin();
+		result.setTimeoutMillis(lockTimeout);
+		return result;
+	}
+
+	void commit(Transaction transaction)
+	{
+		transaction.commit();
+		if (sync)
+		{
+			store.commit();
+			store.sync();
+		}
+	}
+
+	public <T> T execute(Function<Transaction,T> callback)
+	{
+		try
+		{
+			val transactionHolder = (TransactionHolder)TransactionSynchronizationManager.getResource(this);
+			if (transactionHolder != null && transactionHolder.isActive())
+				return callback.apply(transactionHolder.getTransaction());
+			val transaction = begin();
+			T result;
+			try
+			{
+				result = callback.apply(transaction);
+			}
+			catch (RuntimeException | Error e)
+			{
+				transaction.rollback();
+				throw e;
+			}
+			commit(transaction);
+			return result;
+		}
+		catch (IllegalStateException e)
+		{
+			switch (DataUtils.getErrorCode(e.getMessage()))
+			{
+				case DataUtils.ERROR_TRANSACTION_LOCKED:
+					throw new CannotAcquireLockException(e.getMessage(),e);
+				case DataUtils.ERROR_TRANSACTIONS_DEADLOCK:
+					throw new DeadlockLoserDataAccessException(e.getMessage(),e);
+				default:
+					throw new DataAccessResourceFailureException(e.getMessage(),e);
+			}
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		transactionStore.close();
+		store.close();
+	}
+
+	public static Stream<Object[]> keys(TransactionMap<Object[],?> map, Object[] prefix, Object[] after)
+	{
+		return keys(map,prefix,after,k -> true);
+	}
+
+	public static Stream<Object[]> keys(TransactionMap<Object[],?> map, Object[] prefix, Object[] after, Predicate<Object[]> condition)
+	{
+		val iterator = map.keyIterator(after == null ? prefix : after);
+		return Streams.stream(new AbstractIterator<Object[]>()
+		{
+			@Override
+			protected Object[] computeNext()
+			{
+				while (iterator.hasNext())
+				{
+					val key = iterator.next();
+					if (!startsWith(key,prefix) || !condition.test(key))
+						break;
+					if (after == null || !Arrays.equals(key,after))
+						return key;
+				}
+				return endOfData();
+			}
+		});
+	}
+
+	private static boolean startsWith(Object[] key, Object[] prefix)
+	{
+		if (key.length < prefix.length)
+			return false;
+		for (int i = 0; i < prefix.length; i++)
+			if (!Objects.equals(key[i],prefix[i]))
+				return false;
+		return true;
+	}
+
+	public static Long toLong(Instant instant)
+	{
+		return instant == null ? null : instant.getEpochSecond() * 1000000000L + instant.getNano();
+	}
+
+	public static Instant toInstant(Object value)
+	{
+		return value == null ? null : Instant.ofEpochSecond(0,(Long)value);
+	}
+
+	public static Optional<EbMSMessageContext> getMessageContext(Transaction transaction, String messageId)
+	{
+		return Optional.ofNullable(transaction.<Object[],Object[]>openMap(MESSAGE).get(new Object[]{messageId,0}))
+				.map(m -> getMessageContext(messageId,m));
+	}
+
+	static EbMSMessageContext getMessageContext(String messageId, Object[] message)
+	{
+		return EbMSMessageContext.builder()
+				.cpaId((String)message[CPA_ID])
+				.fromParty(new Party((String)message[FROM_PARTY_ID],(String)message[FROM_ROLE]))
+				.toParty(new Party((String)message[TO_PARTY_ID],(String)message[TO_ROLE]))
+				.service((String)message[SERVICE])
+				.action((String)message[ACTION])
+				.timestamp(toInstant(message[TIME_STAMP]))
+				.conversationId((String)message[CONVERSATION_ID])
+				.messageId(messageId)
+				.refToMessageId((String)message[REF_TO_MESSAGE_ID])
+				.messageStatus(message[STATUS] == null ? null : EbMSMessageStatus.get((Integer)message[STATUS]).orElse(null))
+				.build();
+	}
+
+	public static boolean matches(EbMSMessageContext filter, EbMSMessageContext messageContext)
+	{
+		return filter == null ||
+				(matches(filter.getCpaId(),messageContext.getCpaId())
+				&& matches(filter.getFromParty(),messageContext.getFromParty())
+				&& matches(filter.getToParty(),messageContext.getToParty())
+				&& matches(filter.getService(),messageContext.getService())
+				&& matches(filter.getAction(),messageContext.getAction())
+				&& matches(filter.getConversationId(),messageContext.getConversationId())
+				&& matches(filter.getMessageId(),messageContext.getMessageId())
+				&& matches(filter.getRefToMessageId(),messageContext.getRefToMessageId())
+				&& (filter.getMessageStatus() == null || filter.getMessageStatus() == messageContext.getMessageStatus()));
+	}
+
+	private static boolean matches(Party filter, Party party)
+	{
+		return filter == null || (matches(filter.getPartyId(),party.getPartyId()) && matches(filter.getRole(),party.getRole()));
+	}
+
+	private static boolean matches(String filter, String value)
+	{
+		return filter == null || filter.equals(value);
+	}
+}
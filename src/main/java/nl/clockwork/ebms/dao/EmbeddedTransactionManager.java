@@ -0,0 +1,142 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.EmbeddedStore.TransactionHolder;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+public class EmbeddedTransactionManager extends AbstractPlatformTransactionManager
+{
+	private static final long serialVersionUID = 1L;
+
+	@FieldDefaults(level = AccessLevel.PRIVATE)
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@Getter
+	@Setter
+	private static class EmbeddedTransactionObject implements SmartTransactionObject
+	{
+		TransactionHolder transactionHolder;
+
+		@Override
+		public boolean isRollbackOnly()
+		{
+			return transactionHolder.isRollbackOnly();
+		}
+
+		@Override
+		public void flush()
+		{
+		}
+	}
+
+	@NonNull
+	EmbeddedStore embeddedStore;
+
+	@Override
+	protected Object doGetTransaction()
+	{
+		return new EmbeddedTransactionObject((TransactionHolder)TransactionSynchronizationManager.getResource(embeddedStore));
+	}
+
+	@Override
+	protected boolean isExistingTransaction(Object transaction)
+	{
+		return ((EmbeddedTransactionObject)transaction).getTransactionHolder() != null;
+	}
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition)
+	{
+		val transactionHolder = new TransactionHolder(embeddedStore.begin());
+		transactionHolder.setSynchronizedWithTransaction(true);
+		((EmbeddedTransactionObject)transaction).setTransactionHolder(transactionHolder);
+		TransactionSynchronizationManager.bindResource(embeddedStore,transactionHolder);
+	}
+
+	@Override
+	protected Object doSuspend(Object transaction)
+	{
+		((EmbeddedTransactionObject)transaction).setTransactionHolder(null);
+		return TransactionSynchronizationManager.unbindResource(embeddedStore);
+	}
+
+	@Override
+	protected void doResume(Object transaction, Object suspendedResources)
+	{
+		TransactionSynchronizationManager.bindResource(embeddedStore,suspendedResources);
+	}
+
+	@Override
+	protected void doCommit(DefaultTransactionStatus status)
+	{
+		try
+		{
+			embeddedStore.commit(getTransactionHolder(status).getTransaction());
+		}
+		catch (IllegalStateException e)
+		{
+			throw new TransactionSystemException("Could not commit embedded store transaction",e);
+		}
+	}
+
+	@Override
+	protected void doRollback(DefaultTransactionStatus status)
+	{
+		try
+		{
+			getTransactionHolder(status).getTransaction().rollback();
+		}
+		catch (IllegalStateException e)
+		{
+			throw new TransactionSystemException("Could not roll back embedded store transaction",e);
+		}
+	}
+
+	@Override
+	protected void doSetRollbackOnly(DefaultTransactionStatus status)
+	{
+		getTransactionHolder(status).setRollbackOnly();
+	}
+
+	@Override
+	protected void doCleanupAfterCompletion(Object transaction)
+	{
+		TransactionSynchronizationManager.unbindResource(embeddedStore);
+		((EmbeddedTransactionObject)transaction).getTransactionHolder().clear();
+	}
+
+	private TransactionHolder getTransactionHolder(DefaultTransactionStatus status)
+	{
+		return ((EmbeddedTransactionObject)status.getTransaction()).getTransactionHolder();
+	}
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import nl.clockwork.ebms.model.EbMSAttachment;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+public class FileSystemAttachmentStore implements AttachmentStore
+{
+	public static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final String GARBAGE_SUFFIX = ".gc";
+	private static final String CANDIDATES = "candidates";
+	private static final int BATCH_SIZE = 500;
+	@NonNull
+	Path directory;
+	@NonNull
+	Duration gracePeriod;
+
+	@Override
+	public String store(EbMSAttachment attachment) throws IOException
+	{
+		val digest = attachment.getDigest(DIGEST_ALGORITHM).map(Hex::encodeHexString);
+		if (digest.isPresent() && touch(getPath(digest.get())))
+			return digest.get();
+		try (val in = attachment.getInputStream())
+		{
+			return store(in);
+		}
+	}
+
+	@Override
+	public String store(InputStream content) throws IOException
+	{
+		Files.createDirectories(directory);
+		val tmp = Files.createTempFile(directory,"attachment",TMP_SUFFIX);
+		try
+		{
+			val messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+			try (val out = new DigestOutputStream(Files.newOutputStream(tmp),messageDigest))
+			{
+				IOUtils.copy(content,out);
+			}
+			val result = Hex.encodeHexString(messageDigest.digest());
+			val path = getPath(result);
+			Files.createDirectories(path.getParent());
+			Files.move(tmp,path,StandardCopyOption.ATOMIC_MOVE);
+			markCandidate(result);
+			return result;
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		finally
+		{
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	@Override
+	public InputStream load(String digest) throws IOException
+	{
+		val path = getPath(digest);
+		try
+		{
+			return Files.newInputStream(path);
+		}
+		catch (NoSuchFileException e)
+		{
+			return Files.newInputStream(getGarbagePath(path));
+		}
+	}
+
+	@Override
+	public void release(Collection<String> digests)
+	{
+		for (val digest : digests)
+			try
+			{
+				markCandidate(digest);
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to mark attachment content " + digest + " for collection",e);
+			}
+	}
+
+	@Override
+	public int collectGarbage(Function<Collection<String>,Set<String>> getReferenced) throws IOException
+	{
+		if (!Files.isDirectory(directory))
+			return 0;
+		val expiryTime = Instant.now().minus(gracePeriod);
+		deleteTempFiles(expiryTime);
+		val candidatesDirectory = directory.resolve(CANDIDATES);
+		if (!Files.isDirectory(candidatesDirectory))
+			return 0;
+		List<String> candidates;
+		try (val files = Files.list(candidatesDirectory))
+		{
+			candidates = files.filter(p -> isExpired(p,expiryTime)).map(p -> p.getFileName().toString()).collect(Collectors.toList());
+		}
+		var result = 0;
+		for (var i = 0; i < candidates.size(); i += BATCH_SIZE)
+		{
+			val batch = candidates.subList(i,Math.min(i + BATCH_SIZE,candidates.size()));
+			val referenced = getReferenced.apply(batch);
+			for (val digest : batch)
+			{
+				val path = getPath(digest);
+				if (referenced.contains(digest) || (!Files.exists(path) && !Files.exists(getGarbagePath(path))))
+					unmarkCandidate(digest,expiryTime);
+				else if (collect(path,expiryTime))
+				{
+					unmarkCandidate(digest,expiryTime);
+					result++;
+				}
+			}
+		}
+		return result;
+	}
+
+	private void deleteTempFiles(Instant expiryTime) throws IOException
+	{
+		try (val files = Files.list(directory))
+		{
+			for (val path : files.filter(p -> p.getFileName().toString().endsWith(TMP_SUFFIX)).filter(p -> isExpired(p,expiryTime)).collect(Collectors.toList()))
+				Files.deleteIfExists(path);
+		}
+	}
+
+	private boolean collect(Path path, Instant expiryTime) throws IOException
+	{
+		val garbage = getGarbagePath(path);
+		if (!Files.exists(path))
+			return Files.deleteIfExists(garbage);
+		if (!isExpired(path,expiryTime))
+			return false;
+		try
+		{
+			Files.move(path,garbage,StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (NoSuchFileException e)
+		{
+			return false;
+		}
+		if (isExpired(garbage,expiryTime))
+		{
+			Files.delete(garbage);
+			log.debug("Deleted attachment content " + path.getFileName());
+			return true;
+		}
+		try
+		{
+			Files.move(garbage,path);
+		}
+		catch (FileAlreadyExistsException e)
+		{
+			Files.delete(garbage);
+		}
+		return false;
+	}
+
+	private void markCandidate(String digest) throws IOException
+	{
+		val path = getCandidatePath(digest);
+		if (!touch(path))
+		{
+			Files.createDirectories(path.getParent());
+			try
+			{
+				Files.createFile(path);
+			}
+			catch (FileAlreadyExistsException e)
+			{
+				touch(path);
+			}
+		}
+	}
+
+	private void unmarkCandidate(String digest, Instant expiryTime) throws IOException
+	{
+		val path = getCandidatePath(digest);
+		if (isExpired(path,expiryTime))
+			Files.deleteIfExists(path);
+	}
+
+	private boolean touch(Path path) throws IOException
+	{
+		try
+		{
+			Files.setLastModifiedTime(path,FileTime.from(Instant.now()));
+			return true;
+		}
+		catch (NoSuchFileException e)
+		{
+			return false;
+		}
+	}
+
+	private static boolean isExpired(Path path, Instant expiryTime)
+	{
+		try
+		{
+			return Files.getLastModifiedTime(path).toInstant().isBefore(expiryTime);
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	private Path getPath(String digest)
+	{
+		return directory.resolve(digest.substring(0,2)).resolve(digest.substring(2,4)).resolve(digest);
+	}
+
+	private Path getCandidatePath(String digest)
+	{
+		return directory.resolve(CANDIDATES).resolve(digest);
+	}
+
+	private static Path getGarbagePath(Path path)
+	{
+		return path.resolveSibling(path.getFileName() + GARBAGE_SUFFIX);
+	}
+}
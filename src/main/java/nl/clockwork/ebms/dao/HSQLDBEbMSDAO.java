@@ -18,24 +18,22 @@ package nl.clockwork.ebms.dao;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.support.TransactionTemplate;
 
-import nl.clockwork.ebms.EbMSMessageStatus;
-
 class HSQLDBEbMSDAO extends AbstractEbMSDAO
 {
-	public HSQLDBEbMSDAO(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate)
+	public HSQLDBEbMSDAO(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate, EbMSContentCodec contentCodec, AttachmentStore attachmentStore)
 	{
-		super(transactionTemplate,jdbcTemplate);
+		super(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
-	public String getMessageIdsQuery(String messageContextFilter, EbMSMessageStatus status, int maxNr)
+	public String getMessageIdsQuery(String messageContextFilter)
 	{
 		return "select message_id" +
 		" from ebms_message" +
 		" where message_nr = 0" + 
-		" and status = " + status.getId() +
+		" and status = ?" +
 		messageContextFilter +
 		" order by time_stamp asc" +
-		" limit " + maxNr;
+		" limit ?";
 	}
 }
@@ -27,37 +27,36 @@ import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.transaction.support.TransactionTemplate;
-import org.w3c.dom.Document;
 
 import io.vavr.Tuple;
 import io.vavr.Tuple2;
 import lombok.val;
-import nl.clockwork.ebms.EbMSMessageStatus;
 import nl.clockwork.ebms.EbMSMessageUtils;
 import nl.clockwork.ebms.model.EbMSAttachment;
 import nl.clockwork.ebms.model.EbMSBaseMessage;
-import nl.clockwork.ebms.util.DOMUtils;
+import nl.clockwork.ebms.model.EbMSDocument;
 
 class MSSQLEbMSDAO extends MySQLEbMSDAO
 {
-	public MSSQLEbMSDAO(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate)
+	public MSSQLEbMSDAO(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate, EbMSContentCodec contentCodec, AttachmentStore attachmentStore)
 	{
-		super(transactionTemplate,jdbcTemplate);
+		super(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
-	public String getMessageIdsQuery(String messageContextFilter, EbMSMessageStatus status, int maxNr)
+	public String getMessageIdsQuery(String messageContextFilter)
 	{
-		return "select top " + maxNr + " message_id" +
+		return "select message_id" +
 		" from ebms_message" +
 		" where message_nr = 0" +
-		" and status = " + status.getId() +
+		" and status = ?" +
 		messageContextFilter +
-		" order by time_stamp asc";
+		" order by time_stamp asc" +
+		" offset 0 rows fetch next ? rows only";
 	}
 
 	@Override
-	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final Document document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
+	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
 	{
 		try
 		{
@@ -80,8 +79,10 @@ class MSSQLEbMSDAO extends MySQLEbMSDAO
 							"to_role," +
 							"service," +
 							"action," +
-							"content" +
-						") values (?,?,?,?,(select max(message_nr) + 1 as nr from ebms_message where message_id = ?),?,?,?,?,?,?,?)",
+							"content," +
+							"content_codec," +
+							"binary_content" +
+						") values (?,?,?,?,(select max(message_nr) + 1 as nr from ebms_message where message_id = ?),?,?,?,?,?,?,?,?,?)",
 						new int[]{1}
 					);
 					ps.setTimestamp(1,Timestamp.from(timestamp));
@@ -96,7 +97,7 @@ class MSSQLEbMSDAO extends MySQLEbMSDAO
 					ps.setString(9,messageHeader.getTo().getRole());
 					ps.setString(10,EbMSMessageUtils.toString(messageHeader.getService()));
 					ps.setString(11,messageHeader.getAction());
-					ps.setString(12,DOMUtils.toString(document,"UTF-8"));
+					setContent(ps,12,13,document);
 					return ps;
 				}
 				catch (TransformerException e)
@@ -105,7 +106,7 @@ class MSSQLEbMSDAO extends MySQLEbMSDAO
 				}
 			},
 			keyHolder);
-			insertAttachments(keyHolder.getKey().longValue(),attachments);
+			insertAttachments(keyHolder.getKey().longValue(),timestamp,attachments);
 			return Tuple.of((String)keyHolder.getKeys().get("message_id"),(Integer)keyHolder.getKeys().get("message_nr"));
 		}
 		catch (IOException e)
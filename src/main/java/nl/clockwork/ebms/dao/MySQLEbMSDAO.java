@@ -16,24 +16,22 @@
 package nl.clockwork.ebms.dao;
 
 import java.io.IOException;
-import java.sql.Connection;
+import java.io.InputStream;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.transform.TransformerException;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.transaction.support.TransactionTemplate;
-import org.w3c.dom.Document;
 
 import io.vavr.Tuple;
 import io.vavr.Tuple2;
@@ -42,29 +40,29 @@ import nl.clockwork.ebms.EbMSMessageStatus;
 import nl.clockwork.ebms.EbMSMessageUtils;
 import nl.clockwork.ebms.model.EbMSAttachment;
 import nl.clockwork.ebms.model.EbMSBaseMessage;
-import nl.clockwork.ebms.util.DOMUtils;
+import nl.clockwork.ebms.model.EbMSDocument;
 
 class MySQLEbMSDAO extends AbstractEbMSDAO
 {
-	public MySQLEbMSDAO(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate)
+	public MySQLEbMSDAO(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate, EbMSContentCodec contentCodec, AttachmentStore attachmentStore)
 	{
-		super(transactionTemplate,jdbcTemplate);
+		super(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
-	public String getMessageIdsQuery(String messageContextFilter, EbMSMessageStatus status, int maxNr)
+	public String getMessageIdsQuery(String messageContextFilter)
 	{
 		return "select message_id" +
 		" from ebms_message" +
 		" where message_nr = 0" +
-		" and status = " + status.getId() +
+		" and status = ?" +
 		messageContextFilter +
 		" order by time_stamp asc" +
-		" limit " + maxNr;
+		" limit ?";
 	}
 
 	@Override
-	public String insertMessage(final Instant timestamp, final Instant persistTime, final Document document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments, final EbMSMessageStatus status)
+	public String insertMessage(final Instant timestamp, final Instant persistTime, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments, final EbMSMessageStatus status)
 	{
 		try
 		{
@@ -91,8 +89,10 @@ class MySQLEbMSDAO extends AbstractEbMSDAO
 							"content," +
 							"status," +
 							"status_time," +
-							"persist_time" +
-						") values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)",
+							"persist_time," +
+							"content_codec," +
+							"binary_content" +
+						") values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)",
 						new int[]{1}
 					);
 					ps.setTimestamp(1,Timestamp.from(timestamp));
@@ -108,7 +108,7 @@ class MySQLEbMSDAO extends AbstractEbMSDAO
 					ps.setString(10,messageHeader.getTo().getRole());
 					ps.setString(11,EbMSMessageUtils.toString(messageHeader.getService()));
 					ps.setString(12,messageHeader.getAction());
-					ps.setString(13,DOMUtils.toString(document,"UTF-8"));
+					setContent(ps,13,17,document);
 					ps.setObject(14,status != null ? status.getId() : null,java.sql.Types.INTEGER);
 					ps.setTimestamp(15,status != null ? Timestamp.from(timestamp) : null);
 					ps.setTimestamp(16,persistTime != null ? Timestamp.from(persistTime) : null);
@@ -120,7 +120,7 @@ class MySQLEbMSDAO extends AbstractEbMSDAO
 				}
 			},
 			keyHolder);
-			insertAttachments(keyHolder.getKey().longValue(),attachments);
+			insertAttachments(keyHolder.getKey().longValue(),timestamp,attachments);
 			return (String)keyHolder.getKeys().get("message_id");
 		}
 		catch (IOException e)
@@ -130,7 +130,7 @@ class MySQLEbMSDAO extends AbstractEbMSDAO
 	}
 
 	@Override
-	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final Document document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
+	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
 	{
 		try
 		{
@@ -155,8 +155,10 @@ class MySQLEbMSDAO extends AbstractEbMSDAO
 							"to_role," +
 							"service," +
 							"action," +
-							"content" +
-						") values (?,?,?,?,(select nr from (select max(message_nr) + 1 as nr from ebms_message where message_id = ?) as c),?,?,?,?,?,?,?,?,?)",
+							"content," +
+							"content_codec," +
+							"binary_content" +
+						") values (?,?,?,?,(select nr from (select max(message_nr) + 1 as nr from ebms_message where message_id = ?) as c),?,?,?,?,?,?,?,?,?,?,?)",
 						new int[]{1}
 					);
 					ps.setTimestamp(1,Timestamp.from(timestamp));
@@ -173,7 +175,7 @@ class MySQLEbMSDAO extends AbstractEbMSDAO
 					ps.setString(11,messageHeader.getTo().getRole());
 					ps.setString(12,EbMSMessageUtils.toString(messageHeader.getService()));
 					ps.setString(13,messageHeader.getAction());
-					ps.setString(14,DOMUtils.toString(document,"UTF-8"));
+					setContent(ps,14,15,document);
 					return ps;
 				}
 				catch (TransformerException e)
@@ -182,7 +184,7 @@ class MySQLEbMSDAO extends AbstractEbMSDAO
 				}
 			},
 			keyHolder);
-			insertAttachments(keyHolder.getKey().longValue(),attachments);
+			insertAttachments(keyHolder.getKey().longValue(),timestamp,attachments);
 			return Tuple.of((String)keyHolder.getKeys().get("message_id"),(Integer)keyHolder.getKeys().get("message_nr"));
 		}
 		catch (IOException e)
@@ -191,60 +193,80 @@ class MySQLEbMSDAO extends AbstractEbMSDAO
 		}
 	}
 
-	protected void insertAttachments(long messageId, List<EbMSAttachment> attachments) throws DataAccessException, IOException
+	protected void insertAttachments(long messageId, Instant timestamp, List<EbMSAttachment> attachments) throws DataAccessException, IOException
 	{
-		val orderNr = new AtomicInteger(0);
-		for (val attachment: attachments)
+		if (attachments.isEmpty())
+			return;
+		val streams = new ArrayList<InputStream>();
+		try
 		{
-			jdbcTemplate.update(
-				new PreparedStatementCreator()
-				{
-					@Override
-					public PreparedStatement createPreparedStatement(Connection connection) throws SQLException
+			jdbcTemplate.batchUpdate(
+					"insert into ebms_attachment (" +
+						"ebms_message_id," +
+						"order_nr," +
+						"name," +
+						"content_id," +
+						"content_type," +
+						"content," +
+						"content_digest," +
+						"time_stamp" +
+					") values (?,?,?,?,?,?,?,?)",
+					new BatchPreparedStatementSetter()
 					{
-						try (val a = attachment)
+						@Override
+						public void setValues(PreparedStatement ps, int i) throws SQLException
 						{
-							val ps = connection.prepareStatement
-							(
-								"insert into ebms_attachment (" +
-									"ebms_message_id," +
-									"order_nr," +
-									"name," +
-									"content_id," +
-									"content_type," +
-									"content" +
-								") values (?,?,?,?,?,?)"
-							);
-							ps.setObject(1,messageId);
-							ps.setInt(2,orderNr.getAndIncrement());
-							ps.setString(3,a.getName());
-							ps.setString(4,a.getContentId());
-							ps.setString(5,a.getContentType());
-							ps.setBlob(6,a.getInputStream());
-							return ps;
+							try
+							{
+								val a = attachments.get(i);
+								ps.setObject(1,messageId);
+								ps.setInt(2,i);
+								ps.setString(3,a.getName());
+								ps.setString(4,a.getContentId());
+								ps.setString(5,a.getContentType());
+								setAttachmentContent(ps,6,a).ifPresent(streams::add);
+								ps.setTimestamp(8,Timestamp.from(timestamp));
+							}
+							catch (IOException e)
+							{
+								throw new SQLException(e);
+							}
 						}
-						catch (IOException e)
+
+						@Override
+						public int getBatchSize()
 						{
-							throw new SQLException(e);
+							return attachments.size();
 						}
-					}
-				}
-			);
+					});
+		}
+		finally
+		{
+			close(streams,attachments);
 		}
 	}
 
 	@Override
-	protected <T> List<T> getAttachments(String messageId, RowMapper<T> rowMapper)
+	protected String getMessageAttachmentJoin()
+	{
+		return " from ebms_message m" +
+				" left join ebms_attachment a" +
+				" on m.id = a.ebms_message_id";
+	}
+
+	@Override
+	protected String getAttachmentContentQuery(int messageIds)
+	{
+		return "select distinct content_digest" +
+				" from ebms_attachment" +
+				" where ebms_message_id in (select id from ebms_message where message_id in (" + getInParameters(messageIds) + "))" +
+				" and content_digest is not null";
+	}
+
+	@Override
+	protected String getDeleteAttachmentsQuery()
 	{
-		return jdbcTemplate.query(
-			"select a.name, a.content_id, a.content_type, a.content" + 
-			" from ebms_message m, ebms_attachment a" +
-			" where m.message_id = ?" +
-			" and m.message_nr = 0" +
-			" and m.id = a.ebms_message_id" +
-			" order by a.order_nr",
-			rowMapper,
-			messageId
-		);
+		return "delete from ebms_attachment" +
+				" where ebms_message_id in (select id from ebms_message where message_id = ?)";
 	}
 }
@@ -34,7 +34,6 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.transaction.support.TransactionTemplate;
-import org.w3c.dom.Document;
 
 import io.vavr.Tuple;
 import io.vavr.Tuple2;
@@ -43,7 +42,7 @@ import nl.clockwork.ebms.EbMSMessageStatus;
 import nl.clockwork.ebms.EbMSMessageUtils;
 import nl.clockwork.ebms.model.EbMSAttachment;
 import nl.clockwork.ebms.model.EbMSBaseMessage;
-import nl.clockwork.ebms.util.DOMUtils;
+import nl.clockwork.ebms.model.EbMSDocument;
 
 class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 {
@@ -81,25 +80,25 @@ class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 		}
 	}
 
-	public PostgreSQLEbMSDAO(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate)
+	public PostgreSQLEbMSDAO(TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate, EbMSContentCodec contentCodec, AttachmentStore attachmentStore)
 	{
-		super(transactionTemplate,jdbcTemplate);
+		super(transactionTemplate,jdbcTemplate,contentCodec,attachmentStore);
 	}
 
 	@Override
-	public String getMessageIdsQuery(String messageContextFilter, EbMSMessageStatus status, int maxNr)
+	public String getMessageIdsQuery(String messageContextFilter)
 	{
 		return "select message_id" +
 		" from ebms_message" +
 		" where message_nr = 0" +
-		" and status=" + status.getId() +
+		" and status = ?" +
 		messageContextFilter +
 		" order by time_stamp asc" +
-		" limit " + maxNr;
+		" limit ?";
 	}
 
 	@Override
-	public String insertMessage(final Instant timestamp, final Instant persistTime, final Document document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments, final EbMSMessageStatus status)
+	public String insertMessage(final Instant timestamp, final Instant persistTime, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments, final EbMSMessageStatus status)
 	{
 		try
 		{
@@ -125,8 +124,10 @@ class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 							"content," +
 							"status," +
 							"status_time," +
-							"persist_time" +
-						") values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)" +
+							"persist_time," +
+							"content_codec," +
+							"binary_content" +
+						") values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)" +
 						" returning message_id, message_nr"
 					);
 					ps.setTimestamp(1,Timestamp.from(timestamp));
@@ -142,7 +143,7 @@ class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 					ps.setString(10,messageHeader.getTo().getRole());
 					ps.setString(11,EbMSMessageUtils.toString(messageHeader.getService()));
 					ps.setString(12,messageHeader.getAction());
-					ps.setString(13,DOMUtils.toString(document,"UTF-8"));
+					setContent(ps,13,17,document);
 					ps.setObject(14,status != null ? status.getId() : null,java.sql.Types.INTEGER);
 					ps.setTimestamp(15,status != null ? Timestamp.from(timestamp) : null);
 					ps.setTimestamp(16,persistTime != null ? Timestamp.from(persistTime) : null);
@@ -154,7 +155,7 @@ class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 				}
 			},
 			new KeyExtractor());
-			insertAttachments(keyHolder,attachments);
+			insertAttachments(keyHolder,timestamp,attachments);
 			return (String) (keyHolder != null ? keyHolder.getKeys().get("message_id") : null);
 		}
 		catch (IOException e)
@@ -164,7 +165,7 @@ class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 	}
 	
 	@Override
-	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final Document document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
+	public Tuple2<String,Integer> insertDuplicateMessage(final Instant timestamp, final EbMSDocument document, final EbMSBaseMessage message, final List<EbMSAttachment> attachments)
 	{
 		try
 		{
@@ -188,8 +189,10 @@ class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 							"to_role," +
 							"service," +
 							"action," +
-							"content" +
-						") values (?,?,?,?,(select max(message_nr) + 1 from ebms_message where message_id = ?),?,?,?,?,?,?,?,?,?)" +
+							"content," +
+							"content_codec," +
+							"binary_content" +
+						") values (?,?,?,?,(select max(message_nr) + 1 from ebms_message where message_id = ?),?,?,?,?,?,?,?,?,?,?,?)" +
 						" returning message_id, message_nr"
 					);
 					ps.setTimestamp(1,Timestamp.from(timestamp));
@@ -206,7 +209,7 @@ class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 					ps.setString(11,messageHeader.getTo().getRole());
 					ps.setString(12,EbMSMessageUtils.toString(messageHeader.getService()));
 					ps.setString(13,messageHeader.getAction());
-					ps.setString(14,DOMUtils.toString(document,"UTF-8"));
+					setContent(ps,14,15,document);
 					return ps;
 				}
 				catch (TransformerException e)
@@ -216,7 +219,7 @@ class PostgreSQLEbMSDAO extends AbstractEbMSDAO
 			},
 			new KeyExtractor()
 			);
-			insertAttachments(keyHolder,attachments);
+			insertAttachments(keyHolder,timestamp,attachments);
 			return Tuple.of((String) (keyHolder != null ? keyHolder.getKeys().get("message_id") : null),(Integer) (keyHolder != null ? keyHolder.getKeys().get("message_nr") : null));
 		}
 		catch (IOException e)
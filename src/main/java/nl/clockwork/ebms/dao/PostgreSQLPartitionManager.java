@@ -0,0 +1,219 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import lombok.var;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import nl.clockwork.ebms.EbMSMessageStatus;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+class PostgreSQLPartitionManager implements Runnable
+{
+	@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+	@AllArgsConstructor
+	public enum PartitionInterval
+	{
+		DAILY(ChronoUnit.DAYS), MONTHLY(ChronoUnit.MONTHS);
+
+		ChronoUnit unit;
+
+		public LocalDateTime getStart(LocalDateTime timestamp)
+		{
+			val result = timestamp.truncatedTo(ChronoUnit.DAYS);
+			return this == MONTHLY ? result.withDayOfMonth(1) : result;
+		}
+
+		public LocalDateTime getEnd(LocalDateTime start)
+		{
+			return start.plus(1,unit);
+		}
+	}
+	@Value
+	private static class Partition
+	{
+		String suffix;
+		LocalDateTime start;
+		LocalDateTime end;
+	}
+	private static final Pattern BOUND = Pattern.compile("^FOR VALUES FROM \\('([^']+)'\\) TO \\('([^']+)'\\)$");
+	private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+	@NonNull
+	TransactionTemplate transactionTemplate;
+	@NonNull
+	JdbcTemplate jdbcTemplate;
+	@NonNull
+	PartitionInterval interval;
+	int precreate;
+	int retention;
+	AttachmentStore attachmentStore;
+
+	@Override
+	public void run()
+	{
+		try
+		{
+			val partitions = getPartitions();
+			createPartitions(partitions);
+			dropPartitions(partitions);
+		}
+		catch (Exception e)
+		{
+			log.error("",e);
+		}
+	}
+
+	private List<Partition> getPartitions()
+	{
+		return jdbcTemplate.query(
+				"select substring(c.relname from 14) suffix, pg_get_expr(c.relpartbound,c.oid) bound" +
+				" from pg_inherits i" +
+				" join pg_class c on c.oid = i.inhrelid" +
+				" join pg_class p on p.oid = i.inhparent" +
+				" where p.relname = 'ebms_message'" +
+				" and pg_get_expr(c.relpartbound,c.oid) <> 'DEFAULT'" +
+				" order by c.relname",
+				(rs,rowNum) -> toPartition(rs.getString("suffix"),rs.getString("bound")));
+	}
+
+	private Partition toPartition(String suffix, String bound)
+	{
+		val m = BOUND.matcher(bound);
+		if (!m.matches())
+			throw new IllegalStateException("Unsupported partition bound " + bound + " for partition ebms_message_" + suffix);
+		return new Partition(suffix,Timestamp.valueOf(m.group(1)).toLocalDateTime(),Timestamp.valueOf(m.group(2)).toLocalDateTime());
+	}
+
+	private void createPartitions(List<Partition> partitions)
+	{
+		val now = LocalDateTime.now();
+		val until = interval.getStart(now).plus(precreate + 1,interval.unit);
+		var start = partitions.stream().map(Partition::getEnd).max(LocalDateTime::compareTo).orElse(interval.getStart(now));
+		while (start.isBefore(until))
+		{
+			val end = interval.getEnd(start);
+			createPartition(start,end);
+			start = end;
+		}
+	}
+
+	private void createPartition(LocalDateTime start, LocalDateTime end)
+	{
+		val suffix = start.format(SUFFIX);
+		transactionTemplate.execute(status ->
+		{
+			val moved = detachDefaultRows(start,end);
+			jdbcTemplate.execute(createPartitionStatement("ebms_message",suffix,start,end));
+			jdbcTemplate.execute(createPartitionStatement("ebms_attachment",suffix,start,end));
+			if (moved)
+			{
+				jdbcTemplate.execute("insert into ebms_message select * from ebms_message_moved");
+				jdbcTemplate.execute("insert into ebms_attachment select * from ebms_attachment_moved");
+			}
+			return null;
+		});
+		log.info("Created partition " + suffix + " [" + start + "," + end + ")");
+	}
+
+	private String createPartitionStatement(String table, String suffix, LocalDateTime start, LocalDateTime end)
+	{
+		// partition bounds cannot be bound in DDL, so the database quotes them
+		return jdbcTemplate.queryForObject(
+				"select format('create table %I partition of %I for values from (%L) to (%L)',?,?,cast(? as timestamp),cast(? as timestamp))",
+				String.class,
+				table + "_" + suffix,
+				table,
+				Timestamp.valueOf(start),
+				Timestamp.valueOf(end));
+	}
+
+	private boolean detachDefaultRows(LocalDateTime start, LocalDateTime end)
+	{
+		val range = " where time_stamp >= ? and time_stamp < ?";
+		val from = Timestamp.valueOf(start);
+		val to = Timestamp.valueOf(end);
+		if (!jdbcTemplate.queryForObject("select exists (select 1 from ebms_message_default" + range + ")",Boolean.class,from,to))
+			return false;
+		jdbcTemplate.execute("create temporary table ebms_message_moved (like ebms_message_default) on commit drop");
+		jdbcTemplate.execute("create temporary table ebms_attachment_moved (like ebms_attachment_default) on commit drop");
+		jdbcTemplate.update("insert into ebms_message_moved select * from ebms_message_default" + range,from,to);
+		jdbcTemplate.update("insert into ebms_attachment_moved select * from ebms_attachment_default" + range,from,to);
+		jdbcTemplate.update("delete from ebms_attachment_default" + range,from,to);
+		jdbcTemplate.update("delete from ebms_message_default" + range,from,to);
+		log.info("Moving rows [" + start + "," + end + ") out of the default partition");
+		return true;
+	}
+
+	private void dropPartitions(List<Partition> partitions)
+	{
+		val now = LocalDateTime.now();
+		val before = interval.getStart(now).minus(retention,interval.unit);
+		partitions.stream()
+				.filter(p -> !p.getEnd().isAfter(before))
+				.forEach(p -> dropPartition(p,now));
+	}
+
+	private boolean isExpired(Partition partition, LocalDateTime now)
+	{
+		return !jdbcTemplate.queryForObject(
+				"select exists (select 1 from ebms_message_" + partition.getSuffix() + " m" +
+				" where m.message_nr = 0" +
+				" and (m.persist_time is null" +
+				" or m.persist_time >= ?" +
+				" or m.status in (" + EbMSMessageStatus.CREATED.getId() + "," + EbMSMessageStatus.RECEIVED.getId() + ")" +
+				" or exists (select 1 from ebms_event e where e.message_id = m.message_id)))",
+				Boolean.class,
+				Timestamp.valueOf(now));
+	}
+
+	private void dropPartition(Partition partition, LocalDateTime now)
+	{
+		val suffix = partition.getSuffix();
+		val dropped = transactionTemplate.execute(status ->
+		{
+			jdbcTemplate.execute("lock table ebms_message_" + suffix + " in share mode");
+			if (!isExpired(partition,now))
+				return false;
+			jdbcTemplate.update("delete from ebms_event_log where message_id in (select message_id from ebms_message_" + suffix + ")");
+			jdbcTemplate.update("delete from ebms_message_event where message_id in (select message_id from ebms_message_" + suffix + ")");
+			jdbcTemplate.update("delete from ebms_message_id where (message_id,message_nr) in (select message_id,message_nr from ebms_message_" + suffix + ")");
+			if (attachmentStore != null)
+				attachmentStore.release(jdbcTemplate.queryForList("select distinct content_digest from ebms_attachment_" + suffix + " where content_digest is not null",String.class));
+			jdbcTemplate.execute("drop table ebms_attachment_" + suffix);
+			jdbcTemplate.execute("drop table ebms_message_" + suffix);
+			return true;
+		});
+		if (dropped)
+			log.info("Dropped partition " + suffix + " [" + partition.getStart() + "," + partition.getEnd() + ")");
+	}
+}
@@ -16,7 +16,10 @@
 package nl.clockwork.ebms.datasource;
 
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.UUID;
@@ -29,8 +32,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.flywaydb.core.Flyway;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.ClassUtils;
 
 import com.atomikos.jdbc.AtomikosDataSourceBean;
 import com.ibm.db2.jcc.DB2XADataSource;
@@ -44,6 +53,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.EmbeddedStore;
 import nl.clockwork.ebms.transaction.TransactionManagerConfig.AtomikosTransactionManagerType;
 import nl.clockwork.ebms.transaction.TransactionManagerConfig.BitronixTransactionManagerType;
 import nl.clockwork.ebms.transaction.TransactionManagerConfig.DefaultTransactionManagerType;
@@ -103,6 +113,12 @@ public class DataSourceConfig
 	boolean updateDb;
 	@Value("${ebms.jdbc.strict}")
 	boolean updateDbStrict;
+	@Value("${ebms.jdbc.partitioned}")
+	boolean partitioned;
+	@Value("${ebmsMessage.partition.interval}")
+	String partitionInterval;
+	@Value("${ebmsMessage.partition.precreate}")
+	int partitionPrecreate;
 	@Value("${ebms.pool.autoCommit}")
 	boolean isAutoCommit;
 	@Value("${ebms.pool.connectionTimeout}")
@@ -117,10 +133,67 @@ public class DataSourceConfig
 	int minPoolSize;
 	@Value("${ebms.pool.maxPoolSize}")
 	int maxPoolSize;
+	@Value("${ebms.pool.statementCacheSize}")
+	int statementCacheSize;
+	@Value("${ebms.jdbc.replica.url}")
+	String replicaJdbcUrl;
+	@Value("${ebms.jdbc.replica.username}")
+	String replicaUsername;
+	@Value("${ebms.jdbc.replica.password}")
+	String replicaPassword;
+	@Value("${ebms.jdbc.replica.maxLag}")
+	long replicaMaxLag;
+	@Value("${ebms.embedded.path}")
+	String embeddedPath;
+	@Value("${ebms.embedded.cacheSize}")
+	int embeddedCacheSize;
+	@Value("${ebms.embedded.lockTimeout}")
+	int embeddedLockTimeout;
+	@Value("${ebms.embedded.sync}")
+	boolean embeddedSync;
 	
 	@Bean(destroyMethod = "close")
 	@Conditional(DefaultTransactionManagerType.class)
 	public DataSource hikariDataSource()
+	{
+		return new HikariDataSource(createHikariConfig(jdbcUrl,username,password));
+	}
+
+	@Bean(destroyMethod = "close", autowireCandidate = false)
+	@Conditional(ReplicaDataSourceType.class)
+	public DataSource replicaDataSource()
+	{
+		val config = createHikariConfig(replicaJdbcUrl,replicaUsername,replicaPassword);
+		config.setReadOnly(true);
+		return new HikariDataSource(config);
+	}
+
+	@Bean
+	@Primary
+	@Conditional(ReplicaDataSourceType.class)
+	public DataSource replicaRoutingDataSource()
+	{
+		return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(hikariDataSource(),replicaDataSource()));
+	}
+
+	@Bean
+	public ReplicaRouter replicaRouter()
+	{
+		return new ReplicaRouter(Duration.ofMillis(replicaMaxLag));
+	}
+
+	@Bean(destroyMethod = "close")
+	@Conditional(EmbeddedStoreType.class)
+	public EmbeddedStore embeddedStore()
+	{
+		if (transactionManagerType != TransactionManagerType.DEFAULT)
+			throw new IllegalStateException("Embedded store is only supported with transactionManager.type DEFAULT");
+		if (!ClassUtils.isPresent("org.h2.mvstore.tx.TransactionStore",getClass().getClassLoader()))
+			throw new IllegalStateException("Embedded store requires com.h2database:h2 on the classpath");
+		return new EmbeddedStore(embeddedPath,embeddedCacheSize,embeddedLockTimeout,embeddedSync);
+	}
+
+	private HikariConfig createHikariConfig(String jdbcUrl, String username, String password)
 	{
 		val config = new HikariConfig();
 		config.setDriverClassName(driverClassName);
@@ -134,7 +207,8 @@ public class DataSourceConfig
 		config.setConnectionTestQuery(testQuery);
 		config.setMinimumIdle(minPoolSize);
 		config.setMaximumPoolSize(maxPoolSize);
-		return new HikariDataSource(config);
+		config.setDataSourceProperties(createStatementCacheProperties());
+		return config;
 	}
 
 	@Bean(destroyMethod = "close")
@@ -162,7 +236,7 @@ public class DataSourceConfig
 		result.setDisabled(false);
 		result.setIgnoreRecoveryFailures(false);
 		result.setMaxIdleTime(60);
-		result.setPreparedStatementCacheSize(0);
+		result.setPreparedStatementCacheSize(statementCacheSize);
 		result.setShareTransactionConnections(false);
 		result.setTwoPcOrderingPosition(1);
 		result.setUseTmJoin(true);
@@ -228,7 +302,8 @@ public class DataSourceConfig
 			{
 				val config = Flyway.configure()
 						.dataSource(jdbcUrl,username,password)
-						.locations(l)
+						.locations(getLocations(l))
+						.placeholders(getPlaceholders())
 						.ignoreMissingMigrations(true)
 						.outOfOrder(true);
 				config.load().migrate();
@@ -236,6 +311,21 @@ public class DataSourceConfig
 		}
 	}
 
+	private String[] getLocations(String location)
+	{
+		return partitioned && location.equals(Location.POSTGRES.location)
+				? new String[]{location,location + ".partitioned"}
+				: new String[]{location};
+	}
+
+	private Map<String,String> getPlaceholders()
+	{
+		val result = new HashMap<String,String>();
+		result.put("partitionInterval",partitionInterval);
+		result.put("partitionPrecreate",String.valueOf(partitionPrecreate));
+		return result;
+	}
+
 	private Properties createDriverProperties()
 	{
 		val result = new Properties();
@@ -249,4 +339,50 @@ public class DataSourceConfig
     result.put("password",password);
 		return result;
 	}
+
+	private Properties createStatementCacheProperties()
+	{
+		val result = new Properties();
+		if (statementCacheSize > 0)
+		{
+			if (jdbcUrl.startsWith(Location.MYSQL.jdbcUrl) || jdbcUrl.startsWith(Location.MARIADB.jdbcUrl))
+			{
+				result.put("cachePrepStmts","true");
+				result.put("useServerPrepStmts","true");
+				result.put("prepStmtCacheSize",String.valueOf(statementCacheSize));
+				result.put("prepStmtCacheSqlLimit","2048");
+			}
+			else if (jdbcUrl.startsWith(Location.POSTGRES.jdbcUrl))
+				result.put("preparedStatementCacheQueries",String.valueOf(statementCacheSize));
+			else if (jdbcUrl.startsWith(Location.ORACLE.jdbcUrl))
+				result.put("oracle.jdbc.implicitStatementCacheSize",String.valueOf(statementCacheSize));
+			else if (jdbcUrl.startsWith(Location.MSSQL.jdbcUrl))
+			{
+				result.put("disableStatementPooling","false");
+				result.put("statementPoolingCacheSize",String.valueOf(statementCacheSize));
+			}
+			else if (jdbcUrl.startsWith(Location.DB2.jdbcUrl))
+				result.put("maxStatements",String.valueOf(statementCacheSize));
+		}
+		return result;
+	}
+
+	public static class ReplicaDataSourceType implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return context.getEnvironment().getProperty("transactionManager.type",TransactionManagerType.class,TransactionManagerType.DEFAULT) == TransactionManagerType.DEFAULT
+					&& StringUtils.isNotEmpty(context.getEnvironment().getProperty("ebms.jdbc.replica.url"));
+		}
+	}
+
+	public static class EmbeddedStoreType implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return StringUtils.isNotEmpty(context.getEnvironment().getProperty("ebms.embedded.path"));
+		}
+	}
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.datasource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReplicaRouter
+{
+	private static final ThreadLocal<Boolean> replica = ThreadLocal.withInitial(() -> false);
+	Cache<String,Boolean> recentWrites;
+
+	public ReplicaRouter(@NonNull Duration maxLag)
+	{
+		recentWrites = CacheBuilder.newBuilder().expireAfterWrite(maxLag).build();
+	}
+
+	public static boolean isReplica()
+	{
+		return replica.get();
+	}
+
+	public void written(String id)
+	{
+		recentWrites.put(id,Boolean.TRUE);
+	}
+
+	public boolean isWritten(String id)
+	{
+		return recentWrites.getIfPresent(id) != null;
+	}
+
+	public <T> T read(Supplier<T> supplier)
+	{
+		if (replica.get())
+			return supplier.get();
+		replica.set(true);
+		try
+		{
+			return supplier.get();
+		}
+		finally
+		{
+			replica.remove();
+		}
+	}
+
+	public <T> Optional<T> read(String id, Supplier<Optional<T>> supplier)
+	{
+		if (isWritten(id))
+			return supplier.get();
+		val result = read(supplier);
+		return result.isPresent() ? result : supplier.get();
+	}
+
+	public <T> List<T> read(Supplier<List<T>> supplier, Function<T,String> id)
+	{
+		val result = read(supplier);
+		return result.stream().anyMatch(t -> isWritten(id.apply(t))) ? supplier.get() : result;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.datasource;
+
+import java.util.HashMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Getter
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource
+{
+	private enum Target
+	{
+		PRIMARY, REPLICA;
+	}
+	@NonNull
+	DataSource primary;
+	@NonNull
+	DataSource replica;
+
+	public ReplicaRoutingDataSource(@NonNull DataSource primary, @NonNull DataSource replica)
+	{
+		this.primary = primary;
+		this.replica = replica;
+		val targetDataSources = new HashMap<Object,Object>();
+		targetDataSources.put(Target.PRIMARY,primary);
+		targetDataSources.put(Target.REPLICA,replica);
+		setTargetDataSources(targetDataSources);
+		setDefaultTargetDataSource(primary);
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey()
+	{
+		if (TransactionSynchronizationManager.isActualTransactionActive())
+			return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Target.REPLICA : Target.PRIMARY;
+		return ReplicaRouter.isReplica() ? Target.REPLICA : Target.PRIMARY;
+	}
+}
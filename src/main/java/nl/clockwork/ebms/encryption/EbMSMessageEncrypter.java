@@ -17,16 +17,13 @@ package nl.clockwork.ebms.encryption;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateExpiredException;
-import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.X509Certificate;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Date;
 
 import javax.crypto.SecretKey;
 import javax.xml.parsers.ParserConfigurationException;
@@ -52,7 +49,6 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
-import lombok.extern.slf4j.Slf4j;
 import nl.clockwork.ebms.EbMSAttachmentFactory;
 import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.cpa.CPAUtils;
@@ -68,7 +64,6 @@ import nl.clockwork.ebms.util.StreamUtils;
 import nl.clockwork.ebms.validation.ValidationException;
 import nl.clockwork.ebms.validation.ValidatorException;
 
-@Slf4j
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @RequiredArgsConstructor
 public class EbMSMessageEncrypter
@@ -136,33 +131,7 @@ public class EbMSMessageEncrypter
 
 	private void validateCertificate(EbMSTrustStore trustStore, X509Certificate certificate) throws KeyStoreException, ValidationException
 	{
-		try
-		{
-			certificate.checkValidity(new Date());
-			val aliases = trustStore.aliases();
-			while (aliases.hasMoreElements())
-			{
-				try
-				{
-					val c = trustStore.getCertificate(aliases.nextElement());
-					if (c instanceof X509Certificate)
-						if (certificate.getIssuerDN().getName().equals(((X509Certificate)c).getSubjectDN().getName()))
-						{
-							certificate.verify(c.getPublicKey());
-							return;
-						}
-				}
-				catch (GeneralSecurityException e)
-				{
-					log.trace("",e);
-				}
-			}
-			throw new ValidationException("Certificate " + certificate.getIssuerDN() + " not found!");
-		}
-		catch (CertificateExpiredException | CertificateNotYetValidException e)
-		{
-			throw new ValidationException(e);
-		}
+		SecurityUtils.validateCertificate(trustStore,certificate,Instant.now());
 	}
 
 	private EbMSAttachment encrypt(Document document, X509Certificate certificate, String encryptionAlgorithm, EbMSAttachment attachment) throws ValidatorException
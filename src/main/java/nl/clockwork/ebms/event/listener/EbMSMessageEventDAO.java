@@ -15,8 +15,11 @@
  */
 package nl.clockwork.ebms.event.listener;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
 
+import io.vavr.Tuple2;
 import nl.clockwork.ebms.service.model.EbMSMessageContext;
 import nl.clockwork.ebms.service.model.EbMSMessageEvent;
 
@@ -24,6 +27,8 @@ public interface EbMSMessageEventDAO
 {
 	List<EbMSMessageEvent> getEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types);
 	List<EbMSMessageEvent> getEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types, int maxNr);
+	List<Tuple2<Instant,EbMSMessageEvent>> getEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types, Tuple2<Instant,String> after, int maxNr);
+	void streamEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types, int fetchSize, Consumer<EbMSMessageEvent> consumer);
 	String insertEbMSMessageEvent(String messageId, EbMSMessageEventType eventType);
 	int processEbMSMessageEvent(String messageId);
-}
\ No newline at end of file
+}
\ No newline at end of file
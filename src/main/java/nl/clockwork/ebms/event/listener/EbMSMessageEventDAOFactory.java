@@ -23,6 +23,7 @@ import lombok.AccessLevel;
 import lombok.NonNull;
 import lombok.experimental.FieldDefaults;
 import nl.clockwork.ebms.dao.AbstractDAOFactory;
+import nl.clockwork.ebms.dao.EmbeddedStore;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 class EbMSMessageEventDAOFactory extends AbstractDAOFactory<EbMSMessageEventDAO>
@@ -179,7 +180,12 @@ class EbMSMessageEventDAOFactory extends AbstractDAOFactory<EbMSMessageEventDAO>
 
 	public EbMSMessageEventDAOFactory(DataSource dataSource,	@NonNull JdbcTemplate jdbcTemplate)
 	{
-		super(dataSource);
+		this(dataSource,null,jdbcTemplate);
+	}
+
+	public EbMSMessageEventDAOFactory(DataSource dataSource, EmbeddedStore embeddedStore, @NonNull JdbcTemplate jdbcTemplate)
+	{
+		super(dataSource,embeddedStore);
 		this.jdbcTemplate = jdbcTemplate;
 	}
 
@@ -230,4 +236,10 @@ class EbMSMessageEventDAOFactory extends AbstractDAOFactory<EbMSMessageEventDAO>
 	{
 		return new PostgreSQLEbMSMessageEventDAO(jdbcTemplate);
 	}
+
+	@Override
+	public EbMSMessageEventDAO createEmbeddedDAO(EmbeddedStore embeddedStore)
+	{
+		return new EmbeddedEbMSMessageEventDAO(embeddedStore);
+	}
 }
@@ -15,18 +15,25 @@
  */
 package nl.clockwork.ebms.event.listener;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
 
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
@@ -84,6 +91,62 @@ abstract class EbMSMessageEventDAOImpl implements EbMSMessageEventDAO
 		);
 	}
 
+	@Override
+	public List<Tuple2<Instant,EbMSMessageEvent>> getEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types, Tuple2<Instant,String> after, int maxNr)
+	{
+		val parameters = new ArrayList<Object>();
+		val messageContextFilter = EbMSDAO.getMessageContextFilter(messageContext,parameters);
+		val sql = "select ebms_message_event.time_stamp, ebms_message_event.message_id, ebms_message_event.event_type" +
+				" from ebms_message_event, ebms_message" +
+				" where ebms_message_event.processed = 0" +
+				" and ebms_message_event.event_type in (" + join(types == null ? EbMSMessageEventType.values() : types,",") + ")" +
+				" and ebms_message_event.message_id = ebms_message.message_id" +
+				" and ebms_message.message_nr = 0" +
+				messageContextFilter +
+				EbMSDAO.getKeysetFilter("ebms_message_event.time_stamp","ebms_message_event.message_id",after,parameters) +
+				" order by ebms_message_event.time_stamp asc, ebms_message_event.message_id asc";
+		val rowMapper = new EbMSMessageEventRowMapper();
+		return jdbcTemplate.query(
+				c ->
+				{
+					PreparedStatement ps = c.prepareStatement(sql);
+					ps.setMaxRows(maxNr);
+					return ps;
+				},
+				new ArgumentPreparedStatementSetter(parameters.toArray()),
+				new RowMapperResultSetExtractor<>((rs,rowNum) -> Tuple.of(rs.getTimestamp("time_stamp").toInstant(),rowMapper.mapRow(rs,rowNum))));
+	}
+
+	@Override
+	public void streamEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types, int fetchSize, Consumer<EbMSMessageEvent> consumer)
+	{
+		val parameters = new ArrayList<Object>();
+		val messageContextFilter = EbMSDAO.getMessageContextFilter(messageContext,parameters);
+		val sql = "select ebms_message_event.message_id, ebms_message_event.event_type" +
+				" from ebms_message_event, ebms_message" +
+				" where ebms_message_event.processed = 0" +
+				" and ebms_message_event.event_type in (" + join(types == null ? EbMSMessageEventType.values() : types,",") + ")" +
+				" and ebms_message_event.message_id = ebms_message.message_id" +
+				" and ebms_message.message_nr = 0" +
+				messageContextFilter +
+				" order by ebms_message.time_stamp asc";
+		val rowMapper = new EbMSMessageEventRowMapper();
+		jdbcTemplate.query(
+				c ->
+				{
+					PreparedStatement ps = c.prepareStatement(sql,ResultSet.TYPE_FORWARD_ONLY,ResultSet.CONCUR_READ_ONLY);
+					ps.setFetchSize(fetchSize);
+					return ps;
+				},
+				new ArgumentPreparedStatementSetter(parameters.toArray()),
+				(ResultSetExtractor<Void>)rs ->
+				{
+					while (rs.next())
+						consumer.accept(rowMapper.mapRow(rs,rs.getRow()));
+					return null;
+				});
+	}
+
 	@Override
 	public String insertEbMSMessageEvent(String messageId, EbMSMessageEventType type)
 	{
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.event.listener;
+
+import static nl.clockwork.ebms.dao.EmbeddedStore.MESSAGE_EVENT_PROCESSED;
+import static nl.clockwork.ebms.dao.EmbeddedStore.MESSAGE_EVENT_TIME_STAMP;
+import static nl.clockwork.ebms.dao.EmbeddedStore.MESSAGE_EVENT_TYPE;
+import static nl.clockwork.ebms.dao.EmbeddedStore.keys;
+import static nl.clockwork.ebms.dao.EmbeddedStore.toInstant;
+import static nl.clockwork.ebms.dao.EmbeddedStore.toLong;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.springframework.dao.DuplicateKeyException;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.EmbeddedStore;
+import nl.clockwork.ebms.service.model.EbMSMessageContext;
+import nl.clockwork.ebms.service.model.EbMSMessageEvent;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+class EmbeddedEbMSMessageEventDAO implements EbMSMessageEventDAO
+{
+	@NonNull
+	EmbeddedStore embeddedStore;
+
+	@Override
+	public List<EbMSMessageEvent> getEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types)
+	{
+		return getEbMSMessageEvents(messageContext,types,Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<EbMSMessageEvent> getEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types, int maxNr)
+	{
+		return embeddedStore.execute(t -> getEbMSMessageEvents(t,messageContext,types,null).limit(maxNr).map(Tuple2::_2).collect(Collectors.toList()));
+	}
+
+	@Override
+	public List<Tuple2<Instant,EbMSMessageEvent>> getEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types, Tuple2<Instant,String> after, int maxNr)
+	{
+		return embeddedStore.execute(t -> getEbMSMessageEvents(t,messageContext,types,after).limit(maxNr).collect(Collectors.toList()));
+	}
+
+	@Override
+	public void streamEbMSMessageEvents(EbMSMessageContext messageContext, EbMSMessageEventType[] types, int fetchSize, Consumer<EbMSMessageEvent> consumer)
+	{
+		embeddedStore.execute(t ->
+		{
+			getEbMSMessageEvents(t,messageContext,types,null).map(Tuple2::_2).forEach(consumer);
+			return null;
+		});
+	}
+
+	private Stream<Tuple2<Instant,EbMSMessageEvent>> getEbMSMessageEvents(Transaction transaction, EbMSMessageContext messageContext, EbMSMessageEventType[] types, Tuple2<Instant,String> after)
+	{
+		val messageEvents = messageEvents(transaction);
+		val eventTypes = Arrays.asList(types == null ? EbMSMessageEventType.values() : types);
+		return keys(unprocessedMessageEvents(transaction),new Object[0],after == null ? null : new Object[]{toLong(after._1),after._2})
+				.map(k -> Tuple.of(toInstant(k[0]),new EbMSMessageEvent((String)k[1],EbMSMessageEventType.values()[(Integer)messageEvents.get(k[1])[MESSAGE_EVENT_TYPE]])))
+				.filter(e -> eventTypes.contains(e._2.getType()))
+				.filter(e -> EmbeddedStore.getMessageContext(transaction,e._2.getMessageId()).filter(c -> EmbeddedStore.matches(messageContext,c)).isPresent());
+	}
+
+	@Override
+	public String insertEbMSMessageEvent(String messageId, EbMSMessageEventType type)
+	{
+		val timestamp = toLong(Instant.now());
+		return embeddedStore.execute(t ->
+		{
+			if (messageEvents(t).putIfAbsent(messageId,new Object[]{type.getId(),timestamp,false}) != null)
+				throw new DuplicateKeyException("Message event " + messageId + " already exists");
+			unprocessedMessageEvents(t).put(new Object[]{timestamp,messageId},Boolean.TRUE);
+			return messageId;
+		});
+	}
+
+	@Override
+	public int processEbMSMessageEvent(String messageId)
+	{
+		return embeddedStore.execute(t ->
+		{
+			val messageEvents = messageEvents(t);
+			val messageEvent = messageEvents.containsKey(messageId) ? messageEvents.lock(messageId) : null;
+			if (messageEvent == null)
+				return 0;
+			if (!(Boolean)messageEvent[MESSAGE_EVENT_PROCESSED])
+			{
+				val result = messageEvent.clone();
+				result[MESSAGE_EVENT_PROCESSED] = true;
+				messageEvents.put(messageId,result);
+				unprocessedMessageEvents(t).remove(new Object[]{messageEvent[MESSAGE_EVENT_TIME_STAMP],messageId});
+			}
+			return 1;
+		});
+	}
+
+	private static TransactionMap<String,Object[]> messageEvents(Transaction transaction)
+	{
+		return transaction.openMap(EmbeddedStore.MESSAGE_EVENT);
+	}
+
+	private static TransactionMap<Object[],Boolean> unprocessedMessageEvents(Transaction transaction)
+	{
+		return transaction.openMap(EmbeddedStore.MESSAGE_EVENT_UNPROCESSED);
+	}
+}
@@ -42,6 +42,7 @@ import lombok.AccessLevel;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.dao.EmbeddedStore;
 
 @Configuration
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -67,6 +68,8 @@ public class EventListenerConfig
 	JMSDestinationType jmsDestinationType;
 	@Autowired
 	DataSource dataSource;
+	@Autowired(required = false)
+	EmbeddedStore embeddedStore;
 
 	@Bean
 	public EventListener eventListener()
@@ -88,7 +91,7 @@ public class EventListenerConfig
 	public EbMSMessageEventDAOFactory ebMSMessageEventDAO()
 	{
 		val jdbcTemplate = new JdbcTemplate(dataSource);
-		return new EbMSMessageEventDAOFactory(dataSource,jdbcTemplate);
+		return new EbMSMessageEventDAOFactory(dataSource,embeddedStore,jdbcTemplate);
 	}
 
 	private Map<String,Destination> createEbMSMessageEventDestinations(JMSDestinationType jmsDestinationType)
@@ -23,6 +23,7 @@ import lombok.AccessLevel;
 import lombok.NonNull;
 import lombok.experimental.FieldDefaults;
 import nl.clockwork.ebms.dao.AbstractDAOFactory;
+import nl.clockwork.ebms.dao.EmbeddedStore;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
@@ -35,14 +36,14 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 		}
 
 		@Override
-		public String getEventsBeforeQuery(int maxNr, String serverId)
+		public String getEventsBeforeQuery(String serverId)
 		{
 			return "select cpa_id, send_channel_id, receive_channel_id, message_id, time_to_live, time_stamp, is_confidential, retries" +
 					" from ebms_event" +
 					" where time_stamp <= ?" +
-					(serverId == null ? " and server_id is null" : " and server_id = '" + serverId + "'") +
+					getServerIdFilter(serverId) +
 					" order by time_stamp asc" +
-					" fetch first " + maxNr + " rows only";
+					" fetch first ? rows only";
 		}
 	}
 	private static class H2EbMSEventDAO extends EbMSEventDAOImpl
@@ -53,14 +54,14 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 		}
 
 		@Override
-		public String getEventsBeforeQuery(int maxNr, String serverId)
+		public String getEventsBeforeQuery(String serverId)
 		{
 			return "select cpa_id, send_channel_id, receive_channel_id, message_id, time_to_live, time_stamp, is_confidential, retries" +
 					" from ebms_event" +
 					" where time_stamp <= ?" +
-					(serverId == null ? " and server_id is null" : " and server_id = '" + serverId + "'") +
+					getServerIdFilter(serverId) +
 					" order by time_stamp asc" +
-					" fetch first " + maxNr + " rows only";
+					" fetch first ? rows only";
 		}
 	}
 	private static class HSQLDBEbMSEventDAO extends EbMSEventDAOImpl
@@ -71,14 +72,14 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 		}
 
 		@Override
-		public String getEventsBeforeQuery(int maxNr, String serverId)
+		public String getEventsBeforeQuery(String serverId)
 		{
 			return "select cpa_id, send_channel_id, receive_channel_id, message_id, time_to_live, time_stamp, is_confidential, retries" +
 					" from ebms_event" +
 					" where time_stamp <= ?" +
-					(serverId == null ? " and server_id is null" : " and server_id = '" + serverId + "'") +
+					getServerIdFilter(serverId) +
 					" order by time_stamp asc" +
-					" limit " + maxNr;
+					" limit ?";
 		}
 	}
 	private static class MSSQLEbMSEventDAO extends EbMSEventDAOImpl
@@ -89,13 +90,14 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 		}
 
 		@Override
-		public String getEventsBeforeQuery(int maxNr, String serverId)
+		public String getEventsBeforeQuery(String serverId)
 		{
-			return "select top " + maxNr + " cpa_id, send_channel_id, receive_channel_id, message_id, time_to_live, time_stamp, is_confidential, retries" +
+			return "select cpa_id, send_channel_id, receive_channel_id, message_id, time_to_live, time_stamp, is_confidential, retries" +
 					" from ebms_event" +
 					" where time_stamp <= ?" +
-					(serverId == null ? " and server_id is null" : " and server_id = '" + serverId + "'") +
-					" order by time_stamp asc";
+					getServerIdFilter(serverId) +
+					" order by time_stamp asc" +
+					" offset 0 rows fetch next ? rows only";
 		}
 	}
 	private static class MySQLEbMSEventDAO extends EbMSEventDAOImpl
@@ -106,14 +108,14 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 		}
 
 		@Override
-		public String getEventsBeforeQuery(int maxNr, String serverId)
+		public String getEventsBeforeQuery(String serverId)
 		{
 			return "select cpa_id, send_channel_id, receive_channel_id, message_id, time_to_live, time_stamp, is_confidential, retries" +
 					" from ebms_event" +
 					" where time_stamp <= ?" +
-					(serverId == null ? " and server_id is null" : " and server_id = '" + serverId + "'") +
+					getServerIdFilter(serverId) +
 					" order by time_stamp asc" +
-					" limit " + maxNr;
+					" limit ?";
 		}
 	}
 	private static class OracleEbMSEventDAO extends EbMSEventDAOImpl
@@ -124,15 +126,15 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 		}
 
 		@Override
-		public String getEventsBeforeQuery(int maxNr, String serverId)
+		public String getEventsBeforeQuery(String serverId)
 		{
 			return "select * from (" +
 					"select cpa_id, send_channel_id, receive_channel_id, message_id, time_to_live, time_stamp, is_confidential, retries" +
 					" from ebms_event" +
 					" where time_stamp <= ?" +
-					(serverId == null ? " and server_id is null" : " and server_id = '" + serverId + "'") +
+					getServerIdFilter(serverId) +
 					" order by time_stamp asc)" +
-					" where ROWNUM <= " + maxNr;
+					" where ROWNUM <= ?";
 		}
 	}
 	private static class PostgreSQLEbMSEventDAO extends EbMSEventDAOImpl
@@ -143,14 +145,14 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 		}
 
 		@Override
-		public String getEventsBeforeQuery(int maxNr, String serverId)
+		public String getEventsBeforeQuery(String serverId)
 		{
 			return "select cpa_id, send_channel_id, receive_channel_id, message_id, time_to_live, time_stamp, is_confidential, retries" +
 					" from ebms_event" +
 					" where time_stamp <= ?" +
-					(serverId == null ? " and server_id is null" : " and server_id = '" + serverId + "'") +
+					getServerIdFilter(serverId) +
 					" order by time_stamp asc" +
-					" limit " + maxNr;
+					" limit ?";
 		}
 	}
 	@NonNull
@@ -158,7 +160,12 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 
 	public EbMSEventDAOFactory(DataSource dataSource,	@NonNull JdbcTemplate jdbcTemplate)
 	{
-		super(dataSource);
+		this(dataSource,null,jdbcTemplate);
+	}
+
+	public EbMSEventDAOFactory(DataSource dataSource, EmbeddedStore embeddedStore, @NonNull JdbcTemplate jdbcTemplate)
+	{
+		super(dataSource,embeddedStore);
 		this.jdbcTemplate = jdbcTemplate;
 	}
 
@@ -209,4 +216,10 @@ class EbMSEventDAOFactory extends AbstractDAOFactory<EbMSEventDAO>
 	{
 		return new PostgreSQLEbMSEventDAO(jdbcTemplate);
 	}
+
+	@Override
+	public EbMSEventDAO createEmbeddedDAO(EmbeddedStore embeddedStore)
+	{
+		return new EmbeddedEbMSEventDAO(embeddedStore);
+	}
 }
@@ -19,6 +19,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -27,6 +29,7 @@ import org.springframework.jdbc.core.RowMapper;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
+import lombok.val;
 import lombok.experimental.FieldDefaults;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -65,18 +68,33 @@ abstract class EbMSEventDAOImpl implements EbMSEventDAO
 				EbMSEventRowMapper.SELECT +
 				" from ebms_event" +
 				" where time_stamp <= ?" +
-				(serverId == null ? " and server_id is null" : " and server_id = '" + serverId + "'") +
+				getServerIdFilter(serverId) +
 				" order by time_stamp asc",
 				new EbMSEventRowMapper(),
-				Timestamp.from(timestamp));
+				getParameters(timestamp,serverId));
 	}
 
-	public abstract String getEventsBeforeQuery(int maxNr, String serverId);
+	public abstract String getEventsBeforeQuery(String serverId);
 
 	@Override
 	public List<EbMSEvent> getEventsBefore(Instant timestamp, String serverId, int maxNr)
 	{
-		return jdbcTemplate.query(getEventsBeforeQuery(maxNr,serverId),new EbMSEventRowMapper(),Timestamp.from(timestamp));
+		return jdbcTemplate.query(getEventsBeforeQuery(serverId),new EbMSEventRowMapper(),getParameters(timestamp,serverId,maxNr));
+	}
+
+	protected static String getServerIdFilter(String serverId)
+	{
+		return serverId == null ? " and server_id is null" : " and server_id = ?";
+	}
+
+	private static Object[] getParameters(Instant timestamp, String serverId, Object...parameters)
+	{
+		val result = new ArrayList<Object>();
+		result.add(Timestamp.from(timestamp));
+		if (serverId != null)
+			result.add(serverId);
+		result.addAll(Arrays.asList(parameters));
+		return result.toArray();
 	}
 	
 	@Override
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.event.processor;
+
+import static nl.clockwork.ebms.dao.EmbeddedStore.keys;
+import static nl.clockwork.ebms.dao.EmbeddedStore.toInstant;
+import static nl.clockwork.ebms.dao.EmbeddedStore.toLong;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.springframework.dao.DuplicateKeyException;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.EmbeddedStore;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+class EmbeddedEbMSEventDAO implements EbMSEventDAO
+{
+	private static final int CPA_ID = 0;
+	private static final int SEND_CHANNEL_ID = 1;
+	private static final int RECEIVE_CHANNEL_ID = 2;
+	private static final int TIME_TO_LIVE = 3;
+	private static final int TIME_STAMP = 4;
+	private static final int IS_CONFIDENTIAL = 5;
+	private static final int RETRIES = 6;
+	private static final int SERVER_ID = 7;
+
+	@NonNull
+	EmbeddedStore embeddedStore;
+
+	@Override
+	public List<EbMSEvent> getEventsBefore(Instant timestamp, String serverId)
+	{
+		return getEventsBefore(timestamp,serverId,Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<EbMSEvent> getEventsBefore(Instant timestamp, String serverId, int maxNr)
+	{
+		val before = toLong(timestamp);
+		return embeddedStore.execute(t ->
+		{
+			val events = events(t);
+			return keys(t.openMap(EmbeddedStore.EVENT_TIME),new Object[]{serverId},null,k -> (Long)k[1] <= before)
+					.limit(maxNr)
+					.map(k -> createEbMSEvent((String)k[2],events.get(k[2])))
+					.collect(Collectors.toList());
+		});
+	}
+
+	@Override
+	public String insertEvent(EbMSEvent event, String serverId)
+	{
+		val record = new Object[]{
+				event.getCpaId(),
+				event.getSendDeliveryChannelId(),
+				event.getReceiveDeliveryChannelId(),
+				toLong(event.getTimeToLive()),
+				toLong(event.getTimestamp()),
+				event.isConfidential(),
+				event.getRetries(),
+				serverId};
+		return embeddedStore.execute(t ->
+		{
+			if (events(t).putIfAbsent(event.getMessageId(),record) != null)
+				throw new DuplicateKeyException("Event " + event.getMessageId() + " already exists");
+			eventTimes(t).put(timeKey(event.getMessageId(),record),Boolean.TRUE);
+			return event.getMessageId();
+		});
+	}
+
+	@Override
+	public int updateEvent(EbMSEvent event)
+	{
+		return embeddedStore.execute(t ->
+		{
+			val events = events(t);
+			val record = events.containsKey(event.getMessageId()) ? events.lock(event.getMessageId()) : null;
+			if (record == null)
+				return 0;
+			val result = record.clone();
+			result[TIME_STAMP] = toLong(event.getTimestamp());
+			result[RETRIES] = event.getRetries();
+			events.put(event.getMessageId(),result);
+			eventTimes(t).remove(timeKey(event.getMessageId(),record));
+			eventTimes(t).put(timeKey(event.getMessageId(),result),Boolean.TRUE);
+			return 1;
+		});
+	}
+
+	@Override
+	public int deleteEvent(String messageId)
+	{
+		return embeddedStore.execute(t ->
+		{
+			val record = events(t).remove(messageId);
+			if (record == null)
+				return 0;
+			eventTimes(t).remove(timeKey(messageId,record));
+			return 1;
+		});
+	}
+
+	@Override
+	public void insertEventLog(String messageId, Instant timestamp, String uri, EbMSEventStatus status, String errorMessage)
+	{
+		embeddedStore.execute(t -> t.openMap(EmbeddedStore.EVENT_LOG).put(
+				new Object[]{messageId,toLong(timestamp),UUID.randomUUID().toString()},
+				new Object[]{uri,status.getId(),errorMessage}));
+	}
+
+	private static EbMSEvent createEbMSEvent(String messageId, Object[] event)
+	{
+		return EbMSEvent.builder()
+				.cpaId((String)event[CPA_ID])
+				.sendDeliveryChannelId((String)event[SEND_CHANNEL_ID])
+				.receiveDeliveryChannelId((String)event[RECEIVE_CHANNEL_ID])
+				.messageId(messageId)
+				.timeToLive(toInstant(event[TIME_TO_LIVE]))
+				.timestamp(toInstant(event[TIME_STAMP]))
+				.confidential((Boolean)event[IS_CONFIDENTIAL])
+				.retries((Integer)event[RETRIES])
+				.build();
+	}
+
+	private static Object[] timeKey(String messageId, Object[] event)
+	{
+		return new Object[]{event[SERVER_ID],event[TIME_STAMP],messageId};
+	}
+
+	private static TransactionMap<String,Object[]> events(Transaction transaction)
+	{
+		return transaction.openMap(EmbeddedStore.EVENT);
+	}
+
+	private static TransactionMap<Object[],Boolean> eventTimes(Transaction transaction)
+	{
+		return transaction.openMap(EmbeddedStore.EVENT_TIME);
+	}
+}
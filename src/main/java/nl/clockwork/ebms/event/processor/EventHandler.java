@@ -41,6 +41,7 @@ import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.cpa.CPAUtils;
 import nl.clockwork.ebms.cpa.URLMapper;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.datasource.ReplicaRouter;
 import nl.clockwork.ebms.encryption.EbMSMessageEncrypter;
 import nl.clockwork.ebms.event.listener.EventListener;
 import nl.clockwork.ebms.model.EbMSDocument;
@@ -69,6 +70,8 @@ class EventHandler
 	EbMSMessageEncrypter messageEncrypter;
 	@NonNull
 	EbMSMessageProcessor messageProcessor;
+	@NonNull
+	ReplicaRouter replicaRouter;
 	TimedTask timedTask;
 	boolean deleteEbMSAttachmentsOnMessageProcessed;
 
@@ -82,6 +85,7 @@ class EventHandler
 			@NonNull EbMSHttpClientFactory ebMSClientFactory,
 			@NonNull EbMSMessageEncrypter messageEncrypter,
 			@NonNull EbMSMessageProcessor messageProcessor,
+			@NonNull ReplicaRouter replicaRouter,
 			TimedTask timedTask,
 			boolean deleteEbMSAttachmentsOnMessageProcessed)
 	{
@@ -93,6 +97,7 @@ class EventHandler
 		this.ebMSClientFactory = ebMSClientFactory;
 		this.messageEncrypter = messageEncrypter;
 		this.messageProcessor = messageProcessor;
+		this.replicaRouter = replicaRouter;
 		this.deleteEbMSAttachmentsOnMessageProcessed = deleteEbMSAttachmentsOnMessageProcessed;
 		this.timedTask = timedTask;
 	}
@@ -157,6 +162,7 @@ class EventHandler
 					}
 			};
 			ebMSDAO.executeTransaction(runnable);
+			replicaRouter.written(event.getMessageId());
 		}
 		catch (final Exception e)
 		{
@@ -173,6 +179,7 @@ class EventHandler
 					}
 			};
 			ebMSDAO.executeTransaction(runnable);
+			replicaRouter.written(event.getMessageId());
 		}
 		finally
 		{
@@ -212,6 +219,7 @@ class EventHandler
 				}
 		};
 		ebMSDAO.executeTransaction(runnable);
+		replicaRouter.written(event.getMessageId());
 	}
 
 	private EbMSClient createClient(EbMSEvent event) throws CertificateException
@@ -233,6 +241,7 @@ class EventHandler
 			eventManager.deleteEvent(event.getMessageId());
 		};
 		ebMSDAO.executeTransaction(runnable);
+		replicaRouter.written(event.getMessageId());
 	}
 
 	private void updateMessage(final String messageId)
@@ -33,6 +33,7 @@ import lombok.val;
 import lombok.experimental.FieldDefaults;
 import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.dao.EmbeddedStore;
 import nl.clockwork.ebms.event.processor.EventProcessorConfig.DefaultEventProcessorType;
 import nl.clockwork.ebms.event.processor.EventProcessorConfig.EventProcessorType;
 import nl.clockwork.ebms.event.processor.EventProcessorConfig.JmsEventProcessorType;
@@ -60,6 +61,8 @@ public class EventManagerConfig
 	PlatformTransactionManager dataSourceTransactionManager;
 	@Autowired
 	DataSource dataSource;
+	@Autowired(required = false)
+	EmbeddedStore embeddedStore;
 
 	@Bean
 	@Conditional(DefaultEventProcessorType.class)
@@ -79,7 +82,7 @@ public class EventManagerConfig
 	public EbMSEventDAOFactory ebMSEventDAO()
 	{
 		val jdbcTemplate = new JdbcTemplate(dataSource);
-		return new EbMSEventDAOFactory(dataSource,jdbcTemplate);
+		return new EbMSEventDAOFactory(dataSource,embeddedStore,jdbcTemplate);
 	}
 
 	private EbMSEventManager createDefaultEventManager()
@@ -39,6 +39,7 @@ import nl.clockwork.ebms.client.EbMSHttpClientFactory;
 import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.cpa.URLMapper;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.datasource.ReplicaRouter;
 import nl.clockwork.ebms.encryption.EbMSMessageEncrypter;
 import nl.clockwork.ebms.event.listener.EventListener;
 import nl.clockwork.ebms.processor.EbMSMessageProcessor;
@@ -88,6 +89,8 @@ public class EventProcessorConfig
 	EbMSMessageEncrypter messageEncrypter;
 	@Autowired
 	EbMSMessageProcessor messageProcessor;
+	@Autowired
+	ReplicaRouter replicaRouter;
 	@Value("${ebmsMessage.deleteContentOnProcessed}")
 	boolean deleteEbMSAttachmentsOnMessageProcessed;
 	@Autowired
@@ -151,6 +154,7 @@ public class EventProcessorConfig
 				.ebMSClientFactory(ebMSClientFactory)
 				.messageEncrypter(messageEncrypter)
 				.messageProcessor(messageProcessor)
+				.replicaRouter(replicaRouter)
 				.timedTask(new TimedTask(eventHandlerTaskExecutionInterval))
 				.deleteEbMSAttachmentsOnMessageProcessed(deleteEbMSAttachmentsOnMessageProcessed)
 				.build();
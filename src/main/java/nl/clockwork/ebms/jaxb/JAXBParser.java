@@ -25,6 +25,7 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.bind.ValidationEventHandler;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
@@ -153,14 +154,26 @@ public class JAXBParser<T>
 		return handle(null,n);
 	}
 
-	@SuppressWarnings("unchecked")
 	public T handle(Schema schema, Node n) throws JAXBException
+	{
+		return handle(schema,n,null);
+	}
+
+	public T handle(Node n, ValidationEventHandler eventHandler) throws JAXBException
+	{
+		return handle(null,n,eventHandler);
+	}
+
+	@SuppressWarnings("unchecked")
+	public T handle(Schema schema, Node n, ValidationEventHandler eventHandler) throws JAXBException
 	{
 		if (n == null)
 			return null;
 		val unmarshaller = context.createUnmarshaller();
 		if (schema != null)
 			unmarshaller.setSchema(schema);
+		if (eventHandler != null)
+			unmarshaller.setEventHandler(eventHandler);
 		val o = unmarshaller.unmarshal(n);
 		if (o instanceof JAXBElement<?>)
 			return ((JAXBElement<T>)o).getValue();
@@ -241,4 +254,4 @@ public class JAXBParser<T>
 		return (JAXBParser<L>)xmlHandlers.get(clazz);
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -18,6 +18,8 @@ package nl.clockwork.ebms.model;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Map;
+import java.util.Optional;
 
 import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.commons.io.output.CloseShieldOutputStream;
@@ -43,6 +45,20 @@ public class CachedEbMSAttachment implements EbMSAttachment
 	String contentType;
 	@NonNull
 	CachedOutputStream content;
+	@NonNull
+	Map<String,byte[]> digests;
+
+	@Override
+	public long getContentLength()
+	{
+		return content.size();
+	}
+
+	@Override
+	public Optional<byte[]> getDigest(String algorithm)
+	{
+		return Optional.ofNullable(digests.get(algorithm));
+	}
 
 	@Override
 	public InputStream getInputStream() throws IOException
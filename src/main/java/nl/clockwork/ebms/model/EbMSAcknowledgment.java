@@ -39,4 +39,10 @@ public class EbMSAcknowledgment extends EbMSMessageResponse
 		super(messageHeader,signature);
 		this.acknowledgment = acknowledgment;
 	}
+
+	public EbMSAcknowledgment(MessageHeader messageHeader, @NonNull Memoized<SignatureType> signature, @NonNull Acknowledgment acknowledgment)
+	{
+		super(messageHeader,signature);
+		this.acknowledgment = acknowledgment;
+	}
 }
@@ -17,6 +17,7 @@ package nl.clockwork.ebms.model;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Optional;
 
 import javax.activation.DataSource;
 
@@ -24,6 +25,10 @@ public interface EbMSAttachment extends AutoCloseable, DataSource
 {
 	public String getContentId();
 
+	public long getContentLength();
+
+	public Optional<byte[]> getDigest(String algorithm);
+
 	public void writeTo(OutputStream outputStream) throws IOException;
 
 	public void close();
@@ -34,5 +34,17 @@ public abstract class EbMSBaseMessage implements Serializable
 	private static final long serialVersionUID = 1L;
 	@NonNull
 	MessageHeader messageHeader;
-	SignatureType signature;
+	@NonNull
+	@Getter(AccessLevel.NONE)
+	Memoized<SignatureType> signature;
+
+	public EbMSBaseMessage(@NonNull MessageHeader messageHeader, SignatureType signature)
+	{
+		this(messageHeader,Memoized.of(() -> signature));
+	}
+
+	public SignatureType getSignature()
+	{
+		return signature.get();
+	}
 }
@@ -15,29 +15,86 @@
  */
 package nl.clockwork.ebms.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+
 import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
 
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Builder.Default;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.val;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import nl.clockwork.ebms.util.DOMUtils;
 
-@Builder
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@AllArgsConstructor
-@Getter
 public class EbMSDocument
 {
+	@Getter
 	String contentId;
-	@NonNull
+	@NonFinal
 	Document message;
+	@NonFinal
+	byte[] content;
 	@NonNull
-	@Default
-	List<EbMSAttachment> attachments = Collections.emptyList();
+	@Getter
+	List<EbMSAttachment> attachments;
+
+	@Builder
+	public EbMSDocument(String contentId, Document message, byte[] content, List<EbMSAttachment> attachments)
+	{
+		if (message == null && content == null)
+			throw new NullPointerException("message is marked non-null but is null");
+		this.contentId = contentId;
+		this.message = message;
+		this.content = content;
+		this.attachments = attachments == null ? Collections.emptyList() : attachments;
+	}
+
+	public synchronized Document getMessage()
+	{
+		try
+		{
+			if (message == null)
+				message = DOMUtils.read(new ByteArrayInputStream(content),"UTF-8");
+			return message;
+		}
+		catch (ParserConfigurationException | SAXException | IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public synchronized Document getMessageForUpdate()
+	{
+		val result = getMessage();
+		content = null;
+		return result;
+	}
+
+	public synchronized byte[] getContent() throws TransformerException
+	{
+		if (content == null)
+		{
+			val out = new ByteArrayOutputStream();
+			DOMUtils.write(message,out,"UTF-8");
+			content = out.toByteArray();
+		}
+		return content;
+	}
+
+	public String getContentAsString() throws TransformerException
+	{
+		return new String(getContent(),StandardCharsets.UTF_8);
+	}
 }
@@ -38,12 +38,22 @@ public class EbMSMessage extends EbMSRequestMessage
 	private static final long serialVersionUID = 1L;
 	MessageOrder messageOrder;
 	AckRequested ackRequested;
-	Manifest manifest;
+	@Getter(AccessLevel.NONE)
+	Memoized<Manifest> manifest;
 	@NonNull
 	List<EbMSAttachment> attachments;
 
 	@Builder
 	public EbMSMessage(@NonNull MessageHeader messageHeader, SignatureType signature, SyncReply syncReply, MessageOrder messageOrder, AckRequested ackRequested, Manifest manifest, List<EbMSAttachment> attachments)
+	{
+		super(messageHeader,signature,syncReply);
+		this.messageOrder = messageOrder;
+		this.ackRequested = ackRequested;
+		this.manifest = Memoized.of(() -> manifest);
+		this.attachments = attachments == null ? Collections.emptyList() : attachments;
+	}
+
+	public EbMSMessage(@NonNull MessageHeader messageHeader, @NonNull Memoized<SignatureType> signature, SyncReply syncReply, MessageOrder messageOrder, AckRequested ackRequested, @NonNull Memoized<Manifest> manifest, List<EbMSAttachment> attachments)
 	{
 		super(messageHeader,signature,syncReply);
 		this.messageOrder = messageOrder;
@@ -52,6 +62,11 @@ public class EbMSMessage extends EbMSRequestMessage
 		this.attachments = attachments == null ? Collections.emptyList() : attachments;
 	}
 
+	public Manifest getManifest()
+	{
+		return manifest.get();
+	}
+
 	public String getContentId()
 	{
 		return getMessageHeader().getMessageData().getMessageId();
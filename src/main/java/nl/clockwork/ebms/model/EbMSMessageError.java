@@ -31,12 +31,24 @@ public class EbMSMessageError extends EbMSMessageResponse
 {
 	private static final long serialVersionUID = 1L;
 	@NonNull
-	ErrorList errorList;
+	@Getter(AccessLevel.NONE)
+	Memoized<ErrorList> errorList;
 
 	@Builder
 	public EbMSMessageError(MessageHeader messageHeader, SignatureType signature, @NonNull ErrorList errorList)
+	{
+		super(messageHeader,signature);
+		this.errorList = Memoized.of(() -> errorList);
+	}
+
+	public EbMSMessageError(MessageHeader messageHeader, @NonNull Memoized<SignatureType> signature, @NonNull Memoized<ErrorList> errorList)
 	{
 		super(messageHeader,signature);
 		this.errorList = errorList;
 	}
+
+	public ErrorList getErrorList()
+	{
+		return errorList.get();
+	}
 }
@@ -26,4 +26,9 @@ public abstract class EbMSMessageResponse extends EbMSResponseMessage
 	{
 		super(messageHeader,signature);
 	}
+
+	public EbMSMessageResponse(MessageHeader messageHeader, Memoized<SignatureType> signature)
+	{
+		super(messageHeader,signature);
+	}
 }
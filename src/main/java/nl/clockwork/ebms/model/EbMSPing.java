@@ -31,4 +31,9 @@ public class EbMSPing extends EbMSRequestMessage
 	{
 		super(messageHeader,signature,syncReply);
 	}
+
+	public EbMSPing(@NonNull MessageHeader messageHeader, @NonNull Memoized<SignatureType> signature, SyncReply syncReply)
+	{
+		super(messageHeader,signature,syncReply);
+	}
 }
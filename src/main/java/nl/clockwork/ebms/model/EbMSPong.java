@@ -30,4 +30,9 @@ public class EbMSPong extends EbMSResponseMessage
 	{
 		super(messageHeader,signature);
 	}
+
+	public EbMSPong(@NonNull MessageHeader messageHeader, @NonNull Memoized<SignatureType> signature)
+	{
+		super(messageHeader,signature);
+	}
 }
@@ -36,4 +36,10 @@ public abstract class EbMSRequestMessage extends EbMSBaseMessage
 		super(messageHeader,signature);
 		this.syncReply = syncReply;
 	}
+
+	public EbMSRequestMessage(@NonNull MessageHeader messageHeader, @NonNull Memoized<SignatureType> signature, SyncReply syncReply)
+	{
+		super(messageHeader,signature);
+		this.syncReply = syncReply;
+	}
 }
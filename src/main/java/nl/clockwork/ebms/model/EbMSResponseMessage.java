@@ -26,4 +26,9 @@ public abstract class EbMSResponseMessage extends EbMSBaseMessage
 	{
 		super(messageHeader,signature);
 	}
+
+	public EbMSResponseMessage(MessageHeader messageHeader, Memoized<SignatureType> signature)
+	{
+		super(messageHeader,signature);
+	}
 }
@@ -40,4 +40,10 @@ public class EbMSStatusRequest extends EbMSRequestMessage
 		super(messageHeader,signature,syncReply);
 		this.statusRequest = statusRequest;
 	}
+
+	public EbMSStatusRequest(@NonNull MessageHeader messageHeader, @NonNull Memoized<SignatureType> signature, SyncReply syncReply, @NonNull StatusRequest statusRequest)
+	{
+		super(messageHeader,signature,syncReply);
+		this.statusRequest = statusRequest;
+	}
 }
@@ -39,4 +39,10 @@ public class EbMSStatusResponse extends EbMSResponseMessage
 		super(messageHeader,signature);
 		this.statusResponse = statusResponse;
 	}
+
+	public EbMSStatusResponse(MessageHeader messageHeader, @NonNull Memoized<SignatureType> signature, @NonNull StatusResponse statusResponse)
+	{
+		super(messageHeader,signature);
+		this.statusResponse = statusResponse;
+	}
 }
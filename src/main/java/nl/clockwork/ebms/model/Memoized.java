@@ -0,0 +1,60 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.model;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.function.Supplier;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class Memoized<T> implements Supplier<T>, Serializable
+{
+	private static final long serialVersionUID = 1L;
+	transient Supplier<? extends T> supplier;
+	T value;
+
+	private Memoized(Supplier<? extends T> supplier)
+	{
+		this.supplier = supplier;
+	}
+
+	public static <T> Memoized<T> of(@NonNull Supplier<? extends T> supplier)
+	{
+		return new Memoized<>(supplier);
+	}
+
+	@Override
+	public synchronized T get()
+	{
+		if (supplier != null)
+		{
+			value = supplier.get();
+			supplier = null;
+		}
+		return value;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		get();
+		out.defaultWriteObject();
+	}
+}
@@ -18,6 +18,7 @@ package nl.clockwork.ebms.model;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Optional;
 
 import javax.activation.DataSource;
 
@@ -27,6 +28,7 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.val;
 import lombok.experimental.FieldDefaults;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -50,6 +52,18 @@ public class PlainEbMSAttachment implements EbMSAttachment
 		return dataSource.getInputStream();
 	}
 
+	@Override
+	public long getContentLength()
+	{
+		return -1;
+	}
+
+	@Override
+	public Optional<byte[]> getDigest(String algorithm)
+	{
+		return Optional.empty();
+	}
+
 	@Override
 	public String getName()
 	{
@@ -65,7 +79,10 @@ public class PlainEbMSAttachment implements EbMSAttachment
 	@Override
 	public void writeTo(OutputStream outputStream) throws IOException
 	{
-		IOUtils.copy(getInputStream(),outputStream);
+		try (val in = getInputStream())
+		{
+			IOUtils.copy(in,outputStream);
+		}
 	}
 
 	@Override
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.commons.io.IOUtils;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.AttachmentStore;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+public class StoredEbMSAttachment implements EbMSAttachment
+{
+	@Getter
+	String name;
+	@Getter
+	String contentId;
+	@NonNull
+	@Getter
+	String contentType;
+	@NonNull
+	AttachmentStore attachmentStore;
+	@NonNull
+	String digest;
+	long contentLength;
+	@NonNull
+	Map<String,byte[]> digests;
+
+	@Override
+	public long getContentLength()
+	{
+		return contentLength;
+	}
+
+	@Override
+	public Optional<byte[]> getDigest(String algorithm)
+	{
+		return Optional.ofNullable(digests.get(algorithm));
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException
+	{
+		return attachmentStore.load(digest);
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException
+	{
+		throw new IOException("Attachment " + digest + " is read-only");
+	}
+
+	@Override
+	public void writeTo(OutputStream outputStream) throws IOException
+	{
+		try (val in = getInputStream())
+		{
+			IOUtils.copy(in,outputStream);
+		}
+	}
+
+	@Override
+	public void close()
+	{
+	}
+}
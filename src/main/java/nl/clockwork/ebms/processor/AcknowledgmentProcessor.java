@@ -42,6 +42,7 @@ import nl.clockwork.ebms.EbMSMessageUtils;
 import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.cpa.CPAUtils;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.datasource.ReplicaRouter;
 import nl.clockwork.ebms.event.listener.EventListener;
 import nl.clockwork.ebms.event.processor.EventManager;
 import nl.clockwork.ebms.model.EbMSAcknowledgment;
@@ -75,6 +76,8 @@ class AcknowledgmentProcessor
 	EbMSSignatureGenerator signatureGenerator;
 	@NonNull
 	EventListener eventListener;
+	@NonNull
+	ReplicaRouter replicaRouter;
 	boolean deleteEbMSAttachmentsOnMessageProcessed;
 
 	public EbMSDocument processAcknowledgment(final Instant timestamp, final EbMSDocument messageDocument, final EbMSMessage message, final boolean isSyncReply) throws SOAPException, JAXBException, ParserConfigurationException, SAXException, IOException, TransformerFactoryConfigurationError, TransformerException
@@ -100,8 +103,8 @@ class AcknowledgmentProcessor
 				cpaManager.getReceiveDeliveryChannel(messageHeader.getCPAId(),messageHeader.getTo().getPartyId(),messageHeader.getTo().getRole(),service,messageHeader.getAction())
 				.orElseThrow(() -> StreamUtils.illegalStateException("ReceiveDeliveryChannel",messageHeader.getCPAId(),messageHeader.getTo().getPartyId(),messageHeader.getTo().getRole(),service,messageHeader.getAction()));
 		val persistTime = CPAUtils.getPersistTime(messageHeader.getMessageData().getTimestamp(),deliveryChannel);
-		ebMSDAO.insertMessage(timestamp,persistTime,messageDocument.getMessage(),message,message.getAttachments(),EbMSMessageStatus.RECEIVED);
-		ebMSDAO.insertMessage(timestamp,persistTime,acknowledgmentDocument.getMessage(),acknowledgment,Collections.emptyList(),null);
+		ebMSDAO.insertMessage(timestamp,persistTime,messageDocument,message,message.getAttachments(),EbMSMessageStatus.RECEIVED);
+		ebMSDAO.insertMessage(timestamp,persistTime,acknowledgmentDocument,acknowledgment,Collections.emptyList(),null);
 	}
 
 	private void storeEvent(EbMSAcknowledgment acknowledgment, boolean isSyncReply)
@@ -139,7 +142,7 @@ class AcknowledgmentProcessor
 		catch (ValidatorException e)
 		{
 			val persistTime = ebMSDAO.getPersistTime(acknowledgment.getMessageHeader().getMessageData().getRefToMessageId());
-			ebMSDAO.insertMessage(timestamp,persistTime.orElse(null),acknowledgmentDocument.getMessage(),acknowledgment,Collections.emptyList(),null);
+			ebMSDAO.insertMessage(timestamp,persistTime.orElse(null),acknowledgmentDocument,acknowledgment,Collections.emptyList(),null);
 			log.warn("Unable to process Acknowledgment " + acknowledgment.getMessageHeader().getMessageData().getMessageId(),e);
 		}
 	}
@@ -155,7 +158,7 @@ class AcknowledgmentProcessor
 		val persistTime = ebMSDAO.getPersistTime(responseMessageHeader.getMessageData().getRefToMessageId());
 		Runnable runnable = () ->
 		{
-			ebMSDAO.insertMessage(timestamp,persistTime.orElse(null),acknowledgmentDocument.getMessage(),acknowledgment,Collections.emptyList(),null);
+			ebMSDAO.insertMessage(timestamp,persistTime.orElse(null),acknowledgmentDocument,acknowledgment,Collections.emptyList(),null);
 			if (ebMSDAO.updateMessage(
 					responseMessageHeader.getMessageData().getRefToMessageId(),
 					EbMSMessageStatus.CREATED,
@@ -167,5 +170,6 @@ class AcknowledgmentProcessor
 			}
 		};
 		ebMSDAO.executeTransaction(runnable);
+		replicaRouter.written(responseMessageHeader.getMessageData().getRefToMessageId());
 	}
 }
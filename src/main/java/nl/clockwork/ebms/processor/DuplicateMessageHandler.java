@@ -68,7 +68,7 @@ class DuplicateMessageHandler
 			if (messageValidator.isSyncReply(message))
 			{
 				if (storeDuplicateMessage)
-					ebMSDAO.insertDuplicateMessage(timestamp,document.getMessage(),message,storeDuplicateMessageAttachments ? message.getAttachments() : Collections.emptyList());
+					ebMSDAO.insertDuplicateMessage(timestamp,document,message,storeDuplicateMessageAttachments ? message.getAttachments() : Collections.emptyList());
 				val result = ebMSDAO.getEbMSDocumentByRefToMessageId(
 						messageHeader.getCPAId(),
 						messageHeader.getMessageData().getMessageId(),
@@ -93,7 +93,7 @@ class DuplicateMessageHandler
 				Runnable runnable = () ->
 				{
 					if (storeDuplicateMessage)
-						ebMSDAO.insertDuplicateMessage(timestamp,document.getMessage(),message,storeDuplicateMessageAttachments ? message.getAttachments() : Collections.emptyList());
+						ebMSDAO.insertDuplicateMessage(timestamp,document,message,storeDuplicateMessageAttachments ? message.getAttachments() : Collections.emptyList());
 					if (receiveDeliveryChannel != null && context.isPresent())
 						eventManager.createEvent(messageHeader.getCPAId(),sendDeliveryChannel,receiveDeliveryChannel,context.get().getMessageId(),messageHeader.getMessageData().getTimeToLive(),context.get().getTimestamp(),false);
 				};
@@ -121,7 +121,7 @@ class DuplicateMessageHandler
 		{
 			log.warn("MessageError " + responseMessage.getMessageHeader().getMessageData().getMessageId() + " is duplicate!");
 			if (storeDuplicateMessage)
-				ebMSDAO.insertDuplicateMessage(timestamp,responseDocument.getMessage(),responseMessage,Collections.emptyList());
+				ebMSDAO.insertDuplicateMessage(timestamp,responseDocument,responseMessage,Collections.emptyList());
 		}
 		else
 			throw new EbMSProcessingException("MessageId " + responseMessage.getMessageHeader().getMessageData().getMessageId() + " already used!");
@@ -133,7 +133,7 @@ class DuplicateMessageHandler
 		{
 			log.warn("Acknowledgment " + responseMessage.getMessageHeader().getMessageData().getMessageId() + " is duplicate!");
 			if (storeDuplicateMessage)
-				ebMSDAO.insertDuplicateMessage(timestamp,responseDocument.getMessage(),responseMessage,Collections.emptyList());
+				ebMSDAO.insertDuplicateMessage(timestamp,responseDocument,responseMessage,Collections.emptyList());
 		}
 		else
 			throw new EbMSProcessingException("MessageId " + responseMessage.getMessageHeader().getMessageData().getMessageId() + " already used!");
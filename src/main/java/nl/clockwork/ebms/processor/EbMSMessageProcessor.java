@@ -41,6 +41,7 @@ import nl.clockwork.ebms.EbMSMessageUtils;
 import nl.clockwork.ebms.client.DeliveryManager;
 import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.datasource.ReplicaRouter;
 import nl.clockwork.ebms.event.listener.EventListener;
 import nl.clockwork.ebms.event.processor.EventManager;
 import nl.clockwork.ebms.model.EbMSAcknowledgment;
@@ -54,7 +55,6 @@ import nl.clockwork.ebms.model.EbMSPong;
 import nl.clockwork.ebms.model.EbMSStatusRequest;
 import nl.clockwork.ebms.model.EbMSStatusResponse;
 import nl.clockwork.ebms.signing.EbMSSignatureGenerator;
-import nl.clockwork.ebms.util.DOMUtils;
 import nl.clockwork.ebms.util.LoggingUtils;
 import nl.clockwork.ebms.util.LoggingUtils.Status;
 import nl.clockwork.ebms.validation.DuplicateMessageException;
@@ -78,6 +78,8 @@ public class EbMSMessageProcessor
 	EbMSMessageValidator messageValidator;
   @NonNull
 	DuplicateMessageHandler duplicateMessageHandler;
+  @NonNull
+	ReplicaRouter replicaRouter;
 	boolean deleteEbMSAttachmentsOnMessageProcessed;
 	XSDValidator xsdValidator = new XSDValidator("/nl/clockwork/ebms/xsd/msg-header-2_0.xsd");
 	MessageErrorProcessor messageErrorProcessor;
@@ -86,7 +88,7 @@ public class EbMSMessageProcessor
 	PongProcessor pongProcessor;
 
 	@Builder
-	public EbMSMessageProcessor(@NonNull DeliveryManager deliveryManager, @NonNull EventListener eventListener, @NonNull EbMSDAO ebMSDAO, @NonNull CPAManager cpaManager, @NonNull EbMSMessageFactory ebMSMessageFactory, @NonNull EventManager eventManager, @NonNull EbMSSignatureGenerator signatureGenerator, @NonNull EbMSMessageValidator messageValidator, @NonNull DuplicateMessageHandler duplicateMessageHandler, boolean deleteEbMSAttachmentsOnMessageProcessed)
+	public EbMSMessageProcessor(@NonNull DeliveryManager deliveryManager, @NonNull EventListener eventListener, @NonNull EbMSDAO ebMSDAO, @NonNull CPAManager cpaManager, @NonNull EbMSMessageFactory ebMSMessageFactory, @NonNull EventManager eventManager, @NonNull EbMSSignatureGenerator signatureGenerator, @NonNull EbMSMessageValidator messageValidator, @NonNull DuplicateMessageHandler duplicateMessageHandler, @NonNull ReplicaRouter replicaRouter, boolean deleteEbMSAttachmentsOnMessageProcessed)
 	{
 		super();
 		this.eventListener = eventListener;
@@ -94,6 +96,7 @@ public class EbMSMessageProcessor
 		this.cpaManager = cpaManager;
 		this.messageValidator = messageValidator;
 		this.duplicateMessageHandler = duplicateMessageHandler;
+		this.replicaRouter = replicaRouter;
 		this.deleteEbMSAttachmentsOnMessageProcessed = deleteEbMSAttachmentsOnMessageProcessed;
 		this.messageErrorProcessor = MessageErrorProcessor.builder()
 				.ebMSDAO(ebMSDAO)
@@ -104,6 +107,7 @@ public class EbMSMessageProcessor
 				.ebMSMessageFactory(ebMSMessageFactory)
 				.signatureGenerator(signatureGenerator)
 				.eventListener(eventListener)
+				.replicaRouter(replicaRouter)
 				.deleteEbMSAttachmentsOnMessageProcessed(deleteEbMSAttachmentsOnMessageProcessed)
 				.build();
 		this.acknowledgmentProcessor = AcknowledgmentProcessor.builder()
@@ -115,6 +119,7 @@ public class EbMSMessageProcessor
 				.ebMSMessageFactory(ebMSMessageFactory)
 				.signatureGenerator(signatureGenerator)
 				.eventListener(eventListener)
+				.replicaRouter(replicaRouter)
 				.deleteEbMSAttachmentsOnMessageProcessed(deleteEbMSAttachmentsOnMessageProcessed)
 				.build();
 		this.statusResponseProcessor = StatusResponseProcessor.builder()
@@ -230,19 +235,19 @@ public class EbMSMessageProcessor
 					{
 						if (!messageValidator.isSyncReply(requestMessage))
 							throw new EbMSProcessingException(
-									"No sync ErrorMessage expected for message " + requestMessage.getMessageHeader().getMessageData().getMessageId() + "\n" + DOMUtils.toString(response.getMessage()));
+									"No sync ErrorMessage expected for message " + requestMessage.getMessageHeader().getMessageData().getMessageId() + "\n" + response.getContentAsString());
 						messageErrorProcessor.processMessageError(timestamp,response,requestMessage,(EbMSMessageError)responseMessage);
 					}
 					else if (responseMessage instanceof EbMSAcknowledgment)
 					{
 						if (requestMessage.getAckRequested() == null || !messageValidator.isSyncReply(requestMessage))
 							throw new EbMSProcessingException(
-									"No sync Acknowledgment expected for message " + requestMessageHeader.getMessageData().getMessageId() + "\n" + DOMUtils.toString(response.getMessage()));
+									"No sync Acknowledgment expected for message " + requestMessageHeader.getMessageData().getMessageId() + "\n" + response.getContentAsString());
 						acknowledgmentProcessor.processAcknowledgment(timestamp,response,requestMessage,(EbMSAcknowledgment)responseMessage);
 					}
 					else
 						throw new EbMSProcessingException(
-								"Unexpected response received for message " + requestMessageHeader.getMessageData().getMessageId() + "\n" + DOMUtils.toString(response.getMessage()));
+								"Unexpected response received for message " + requestMessageHeader.getMessageData().getMessageId() + "\n" + response.getContentAsString());
 				}
 				else if (requestMessage.getAckRequested() == null && requestMessage.getSyncReply() != null)
 				{
@@ -251,7 +256,7 @@ public class EbMSMessageProcessor
 			}
 			else if (response != null)
 				throw new EbMSProcessingException(
-						"Unexpected response received for message " + requestMessageHeader.getMessageData().getMessageId() + "\n" + DOMUtils.toString(response.getMessage()));
+						"Unexpected response received for message " + requestMessageHeader.getMessageData().getMessageId() + "\n" + response.getContentAsString());
 		}
 		catch (ValidationException | JAXBException | SAXException | IOException | TransformerException e)
 		{
@@ -295,7 +300,7 @@ public class EbMSMessageProcessor
 	{
 		Runnable runnable = () ->
 		{
-			ebMSDAO.insertMessage(timestamp,null,messageDocument.getMessage(),message,message.getAttachments(),EbMSMessageStatus.RECEIVED);
+			ebMSDAO.insertMessage(timestamp,null,messageDocument,message,message.getAttachments(),EbMSMessageStatus.RECEIVED);
 			eventListener.onMessageReceived(message.getMessageHeader().getMessageData().getMessageId());
 		};
 		ebMSDAO.executeTransaction(runnable);
@@ -317,6 +322,7 @@ public class EbMSMessageProcessor
 			}
 		};
 		ebMSDAO.executeTransaction(runnable);
+		replicaRouter.written(messageHeader.getMessageData().getMessageId());
 	}
 
 	private EbMSDocument processStatusRequest(Instant timestamp, EbMSStatusRequest statusRequest) throws DatatypeConfigurationException, JAXBException, SOAPException, ParserConfigurationException, SAXException, IOException, TransformerFactoryConfigurationError, TransformerException
@@ -27,6 +27,7 @@ import nl.clockwork.ebms.EbMSMessageFactory;
 import nl.clockwork.ebms.client.DeliveryManager;
 import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.datasource.ReplicaRouter;
 import nl.clockwork.ebms.event.listener.EventListener;
 import nl.clockwork.ebms.event.processor.EventManager;
 import nl.clockwork.ebms.signing.EbMSSignatureGenerator;
@@ -52,6 +53,8 @@ public class EbMSProcessorConfig
 	EbMSSignatureGenerator signatureGenerator;
 	@Autowired
 	EbMSMessageValidator messageValidator;
+	@Autowired
+	ReplicaRouter replicaRouter;
 	@Value("${ebmsMessage.deleteContentOnProcessed}")
 	boolean deleteEbMSAttachmentsOnMessageProcessed;
 	@Value("${ebmsMessage.storeDuplicate}")
@@ -80,6 +83,7 @@ public class EbMSProcessorConfig
 				.signatureGenerator(signatureGenerator)
 				.messageValidator(messageValidator)
 				.duplicateMessageHandler(duplicateMessageHandler)
+				.replicaRouter(replicaRouter)
 				.deleteEbMSAttachmentsOnMessageProcessed(deleteEbMSAttachmentsOnMessageProcessed)
 				.build();
 	}
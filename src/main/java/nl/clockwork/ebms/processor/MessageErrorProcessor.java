@@ -42,13 +42,13 @@ import nl.clockwork.ebms.EbMSMessageUtils;
 import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.cpa.CPAUtils;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.datasource.ReplicaRouter;
 import nl.clockwork.ebms.event.listener.EventListener;
 import nl.clockwork.ebms.event.processor.EventManager;
 import nl.clockwork.ebms.model.EbMSDocument;
 import nl.clockwork.ebms.model.EbMSMessage;
 import nl.clockwork.ebms.model.EbMSMessageError;
 import nl.clockwork.ebms.signing.EbMSSignatureGenerator;
-import nl.clockwork.ebms.util.DOMUtils;
 import nl.clockwork.ebms.validation.DuplicateMessageException;
 import nl.clockwork.ebms.validation.EbMSMessageValidator;
 import nl.clockwork.ebms.validation.EbMSValidationException;
@@ -76,6 +76,8 @@ class MessageErrorProcessor
 	EbMSSignatureGenerator signatureGenerator;
 	@NonNull
 	EventListener eventListener;
+	@NonNull
+	ReplicaRouter replicaRouter;
 	boolean deleteEbMSAttachmentsOnMessageProcessed;
 
 	public EbMSDocument processMessageError(final Instant timestamp, final EbMSDocument messageDocument, final EbMSMessage message, final boolean isSyncReply, final EbMSValidationException e) throws DatatypeConfigurationException, JAXBException, SOAPException, ParserConfigurationException, SAXException, IOException, TransformerFactoryConfigurationError, TransformerException
@@ -96,7 +98,7 @@ class MessageErrorProcessor
 		};
 		ebMSDAO.executeTransaction(runnable);
 		if (!isSyncReply && receiveDeliveryChannel == null)
-			throw new ValidationException(DOMUtils.toString(result.getMessage()));
+			throw new ValidationException(result.getContentAsString());
 		return result;
 	}
 
@@ -107,8 +109,8 @@ class MessageErrorProcessor
 		val deliveryChannel = cpaManager.getReceiveDeliveryChannel(messageHeader.getCPAId(),messageHeader.getTo().getPartyId(),messageHeader.getTo().getRole(),service,messageHeader.getAction())
 				.orElse(null);
 		val persistTime = deliveryChannel != null ? CPAUtils.getPersistTime(timestamp,deliveryChannel) : null;
-		ebMSDAO.insertMessage(timestamp,persistTime,messageDocument.getMessage(),message,message.getAttachments(),EbMSMessageStatus.FAILED);
-		ebMSDAO.insertMessage(timestamp,persistTime,messageErrorDocument.getMessage(),messageError,Collections.emptyList(),null);
+		ebMSDAO.insertMessage(timestamp,persistTime,messageDocument,message,message.getAttachments(),EbMSMessageStatus.FAILED);
+		ebMSDAO.insertMessage(timestamp,persistTime,messageErrorDocument,messageError,Collections.emptyList(),null);
 	}
 
 	private void storeEvent(String cpaId, DeliveryChannel sendDeliveryChannel, DeliveryChannel receiveDeliveryChannel, EbMSMessageError messageError, boolean isSyncReply)
@@ -139,7 +141,7 @@ class MessageErrorProcessor
 		catch (ValidationException e)
 		{
 			val persistTime = ebMSDAO.getPersistTime(messageError.getMessageHeader().getMessageData().getRefToMessageId());
-			ebMSDAO.insertMessage(timestamp,persistTime.orElse(null),response.getMessage(),messageError,Collections.emptyList(),null);
+			ebMSDAO.insertMessage(timestamp,persistTime.orElse(null),response,messageError,Collections.emptyList(),null);
 			log.warn("Unable to process MessageError " + messageError.getMessageHeader().getMessageData().getMessageId(),e);
 		}
 	}
@@ -158,7 +160,7 @@ class MessageErrorProcessor
 		val persistTime = ebMSDAO.getPersistTime(responseMessageHeader.getMessageData().getRefToMessageId());
 		Runnable runnable = () ->
 		{
-			ebMSDAO.insertMessage(timestamp,persistTime.orElse(null),messageErrorDocument.getMessage(),messageError,Collections.emptyList(),null);
+			ebMSDAO.insertMessage(timestamp,persistTime.orElse(null),messageErrorDocument,messageError,Collections.emptyList(),null);
 			if (ebMSDAO.updateMessage(
 					responseMessageHeader.getMessageData().getRefToMessageId(),
 					EbMSMessageStatus.CREATED,
@@ -170,5 +172,6 @@ class MessageErrorProcessor
 			}
 		};
 		ebMSDAO.executeTransaction(runnable);
+		replicaRouter.written(responseMessageHeader.getMessageData().getRefToMessageId());
 	}
 }
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.purge;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import io.vavr.Tuple2;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import nl.clockwork.ebms.dao.EbMSDAO;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+@ManagedResource(objectName = EbMSMessagePurger.OBJECT_NAME, description = "Purges messages past their persist time")
+public class EbMSMessagePurger implements Runnable
+{
+	public static final String OBJECT_NAME = "nl.clockwork.ebms:type=EbMSMessagePurger";
+	@NonNull
+	EbMSDAO ebMSDAO;
+	@NonNull
+	Duration retention;
+	@NonNull
+	Map<String,Duration> cpaRetention;
+	int batchSize;
+	double throttleFactor;
+	AtomicLong purgedMessages = new AtomicLong();
+	AtomicLong purgedBatches = new AtomicLong();
+	AtomicLong lastRunDuration = new AtomicLong();
+
+	@Override
+	public void run()
+	{
+		try
+		{
+			val start = System.currentTimeMillis();
+			val now = Instant.now();
+			var result = 0L;
+			for (val entry : cpaRetention.entrySet())
+				result += purge(now.minus(entry.getValue()),entry.getKey());
+			result += purge(now.minus(retention),null,cpaRetention.keySet().toArray(new String[0]));
+			lastRunDuration.set(System.currentTimeMillis() - start);
+			log.info("Purged " + result + " messages in " + lastRunDuration.get() + " ms");
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (Exception e)
+		{
+			log.error("",e);
+		}
+	}
+
+	private long purge(Instant persistTime, String cpaId, String...excludedCpaIds) throws InterruptedException
+	{
+		var result = 0L;
+		Tuple2<Instant,String> after = null;
+		while (true)
+		{
+			val start = System.currentTimeMillis();
+			val messageIds = ebMSDAO.getExpiredMessageIds(persistTime,after,batchSize,cpaId,excludedCpaIds);
+			if (messageIds.isEmpty())
+				return result;
+			delete(messageIds);
+			result += messageIds.size();
+			if (messageIds.size() < batchSize)
+				return result;
+			after = messageIds.get(messageIds.size() - 1);
+			Thread.sleep((long)((System.currentTimeMillis() - start) * throttleFactor));
+		}
+	}
+
+	private void delete(List<Tuple2<Instant,String>> messageIds)
+	{
+		ebMSDAO.executeTransaction(() -> ebMSDAO.deleteMessages(messageIds.stream().map(Tuple2::_2).collect(Collectors.toList())));
+		purgedMessages.addAndGet(messageIds.size());
+		purgedBatches.incrementAndGet();
+		if (log.isDebugEnabled())
+			log.debug("Purged messages " + messageIds);
+	}
+
+	@ManagedAttribute(description = "Number of messages purged since startup")
+	public long getPurgedMessages()
+	{
+		return purgedMessages.get();
+	}
+
+	@ManagedAttribute(description = "Number of batches purged since startup")
+	public long getPurgedBatches()
+	{
+		return purgedBatches.get();
+	}
+
+	@ManagedAttribute(description = "Duration of the last purge run in ms")
+	public long getLastRunDuration()
+	{
+		return lastRunDuration.get();
+	}
+}
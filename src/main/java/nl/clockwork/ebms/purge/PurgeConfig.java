@@ -0,0 +1,100 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.purge;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.google.common.base.Splitter;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.EbMSDAO;
+
+@Configuration
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PurgeConfig
+{
+	@Autowired
+	EbMSDAO ebMSDAO;
+	@Value("${purge.executionInterval}")
+	long executionInterval;
+	@Value("${purge.batchSize}")
+	int batchSize;
+	@Value("${purge.throttleFactor}")
+	double throttleFactor;
+	@Value("${purge.retention}")
+	String retention;
+	@Value("${purge.cpaRetention}")
+	String cpaRetention;
+
+	@Bean
+	@Conditional(PurgeEnabled.class)
+	public EbMSMessagePurger ebMSMessagePurger()
+	{
+		return new EbMSMessagePurger(ebMSDAO,Duration.parse(retention),parseCpaRetention(cpaRetention),batchSize,throttleFactor);
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	@Conditional(PurgeEnabled.class)
+	public ThreadPoolTaskScheduler ebMSMessagePurgeScheduler()
+	{
+		val result = new ThreadPoolTaskScheduler();
+		result.setDaemon(true);
+		result.initialize();
+		result.scheduleWithFixedDelay(ebMSMessagePurger(),executionInterval);
+		return result;
+	}
+
+	@Bean
+	@Conditional(PurgeEnabled.class)
+	public AnnotationMBeanExporter ebMSMessagePurgerExporter()
+	{
+		val result = new AnnotationMBeanExporter();
+		result.setAutodetect(false);
+		result.setBeans(Collections.singletonMap(EbMSMessagePurger.OBJECT_NAME,ebMSMessagePurger()));
+		return result;
+	}
+
+	private static Map<String,Duration> parseCpaRetention(String cpaRetention)
+	{
+		return Splitter.on(',').trimResults().omitEmptyStrings().withKeyValueSeparator('=').split(cpaRetention).entrySet().stream()
+				.collect(Collectors.toMap(e -> e.getKey(),e -> Duration.parse(e.getValue())));
+	}
+
+	public static class PurgeEnabled implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return context.getEnvironment().getProperty("purge.start",Boolean.class,false);
+		}
+	}
+}
@@ -21,14 +21,22 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.security.auth.x500.X500Principal;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
+import lombok.val;
 import lombok.experimental.FieldDefaults;
 
 @FieldDefaults(level=AccessLevel.PROTECTED, makeFinal=true)
@@ -39,6 +47,9 @@ public class EbMSTrustStore
 	private static Map<String,EbMSTrustStore> trustStores = new ConcurrentHashMap<>();
 	@NonNull
 	KeyStore keyStore;
+	@Getter(AccessLevel.NONE)
+	@ToString.Exclude
+	ListMultimap<X500Principal,X509Certificate> certificatesBySubject;
 
 	public static EbMSTrustStore of(KeyStoreType type, String path, String password) throws GeneralSecurityException, IOException
 	{
@@ -50,6 +61,19 @@ public class EbMSTrustStore
 	public EbMSTrustStore(@NonNull KeyStore keyStore) throws GeneralSecurityException, IOException
 	{
 		this.keyStore = keyStore;
+		this.certificatesBySubject = indexCertificatesBySubject(keyStore);
+	}
+
+	private static ListMultimap<X500Principal,X509Certificate> indexCertificatesBySubject(KeyStore keyStore) throws KeyStoreException
+	{
+		val result = ImmutableListMultimap.<X500Principal,X509Certificate>builder();
+		for (val alias : Collections.list(keyStore.aliases()))
+		{
+			val certificate = keyStore.getCertificate(alias);
+			if (certificate instanceof X509Certificate)
+				result.put(((X509Certificate)certificate).getSubjectX500Principal(),(X509Certificate)certificate);
+		}
+		return result.build();
 	}
 
 	public Enumeration<String> aliases() throws KeyStoreException
@@ -66,4 +90,9 @@ public class EbMSTrustStore
 	{
 		return keyStore.getCertificateAlias(cert);
 	}
+
+	public List<X509Certificate> getIssuerCertificates(X509Certificate certificate)
+	{
+		return certificatesBySubject.get(certificate.getIssuerX500Principal());
+	}
 }
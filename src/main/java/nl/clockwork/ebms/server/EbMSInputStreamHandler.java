@@ -99,7 +99,7 @@ public abstract class EbMSInputStreamHandler
 		val messageReader = new EbMSMessageReader(getRequestHeader("Content-ID"),getRequestHeader("Content-Type"));
 		val requestDocument = messageReader.read(request);
 		if (messageLog.isInfoEnabled() && !messageLog.isDebugEnabled())
-			messageLog.info("<<<<\n" + DOMUtils.toString(requestDocument.getMessage()));
+			messageLog.info("<<<<\n" + requestDocument.getContentAsString());
 		val responseDocument = messageProcessor.processRequest(requestDocument);
 		return responseDocument;
 	}
@@ -147,12 +147,12 @@ public abstract class EbMSInputStreamHandler
 		{
 			val statusCode = Integer.toString(HttpServletResponse.SC_OK);
 			if (messageLog.isInfoEnabled())
-				messageLog.info(">>>>\nStatusCode=" + statusCode + "\nContent-Type: text/xml\nSOAPAction=" + Constants.EBMS_SOAP_ACTION + "\n" + DOMUtils.toString(responseDocument.getMessage()));
+				messageLog.info(">>>>\nStatusCode=" + statusCode + "\nContent-Type: text/xml\nSOAPAction=" + Constants.EBMS_SOAP_ACTION + "\n" + responseDocument.getContentAsString());
 			writeResponseStatus(HttpServletResponse.SC_OK);
 			writeResponseHeader("Content-Type","text/xml");
 			writeResponseHeader("SOAPAction",Constants.EBMS_SOAP_ACTION);
 			val response = getOutputStream();
-			DOMUtils.write(responseDocument.getMessage(),response);
+			response.write(responseDocument.getContent());
 		}
 	}
 
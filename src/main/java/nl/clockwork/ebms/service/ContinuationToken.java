@@ -0,0 +1,44 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import lombok.val;
+
+class ContinuationToken
+{
+	private static final String SEPARATOR = "\n";
+
+	public static String encode(Tuple2<Instant,String> key)
+	{
+		return Base64.getUrlEncoder().withoutPadding().encodeToString((key._1.toString() + SEPARATOR + key._2).getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static Tuple2<Instant,String> decode(String token)
+	{
+		if (token == null || token.isEmpty())
+			return null;
+		val key = new String(Base64.getUrlDecoder().decode(token),StandardCharsets.UTF_8).split(SEPARATOR,2);
+		if (key.length != 2)
+			throw new IllegalArgumentException("Invalid continuation token " + token);
+		return Tuple.of(Instant.parse(key[0]),key[1]);
+	}
+}
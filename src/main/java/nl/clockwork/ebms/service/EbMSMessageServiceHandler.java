@@ -17,7 +17,9 @@ package nl.clockwork.ebms.service;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.parsers.ParserConfigurationException;
@@ -25,9 +27,10 @@ import javax.xml.soap.SOAPException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 
-import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -42,11 +45,13 @@ import nl.clockwork.ebms.EbMSMessageUtils;
 import nl.clockwork.ebms.client.DeliveryManager;
 import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.cpa.CPAUtils;
+import nl.clockwork.ebms.datasource.ReplicaRouter;
 import nl.clockwork.ebms.dao.EbMSDAO;
 import nl.clockwork.ebms.event.listener.EbMSMessageEventDAO;
 import nl.clockwork.ebms.event.listener.EbMSMessageEventType;
 import nl.clockwork.ebms.event.processor.EventManager;
 import nl.clockwork.ebms.model.EbMSBaseMessage;
+import nl.clockwork.ebms.model.EbMSDocument;
 import nl.clockwork.ebms.model.EbMSMessage;
 import nl.clockwork.ebms.model.EbMSStatusResponse;
 import nl.clockwork.ebms.processor.EbMSProcessingException;
@@ -55,6 +60,8 @@ import nl.clockwork.ebms.service.model.EbMSMessageContent;
 import nl.clockwork.ebms.service.model.EbMSMessageContentMTOM;
 import nl.clockwork.ebms.service.model.EbMSMessageContext;
 import nl.clockwork.ebms.service.model.EbMSMessageEvent;
+import nl.clockwork.ebms.service.model.EbMSMessageEventsPage;
+import nl.clockwork.ebms.service.model.MessageIdsPage;
 import nl.clockwork.ebms.service.model.MessageStatus;
 import nl.clockwork.ebms.signing.EbMSSignatureGenerator;
 import nl.clockwork.ebms.util.StreamUtils;
@@ -82,7 +89,10 @@ class EbMSMessageServiceHandler
 	EbMSMessageContextValidator ebMSMessageContextValidator;
   @NonNull
 	EbMSSignatureGenerator signatureGenerator;
+  @NonNull
+	ReplicaRouter replicaRouter;
 	boolean deleteEbMSAttachmentsOnMessageProcessed;
+	int fetchSize;
 
 	public void ping(String cpaId, String fromPartyId, String toPartyId) throws EbMSMessageServiceException
 	{
@@ -116,7 +126,7 @@ class EbMSMessageServiceHandler
 			val message = ebMSMessageFactory.createEbMSMessage(messageContent);
 			val document = EbMSMessageUtils.getEbMSDocument(message);
 			signatureGenerator.generate(document,message);
-			storeMessage(document.getMessage(),message);
+			storeMessage(document,message);
 			val result = message.getMessageHeader().getMessageData().getMessageId();
 			log.info("Message " + result + " created");
 			return result;
@@ -137,7 +147,7 @@ class EbMSMessageServiceHandler
 			val message = ebMSMessageFactory.createEbMSMessageMTOM(messageContent);
 			val document = EbMSMessageUtils.getEbMSDocument(message);
 			signatureGenerator.generate(document,message);
-			storeMessage(document.getMessage(),message);
+			storeMessage(document,message);
 			String result = message.getMessageHeader().getMessageData().getMessageId();
 			log.info("Message " + result + " created");
 			return result;
@@ -162,7 +172,7 @@ class EbMSMessageServiceHandler
 					val message = ebMSMessageFactory.createEbMSMessage(mc);
 					val document = EbMSMessageUtils.getEbMSDocument(message);
 					signatureGenerator.generate(document,message);
-					storeMessage(document.getMessage(),message);
+					storeMessage(document,message);
 					val newMessageId = message.getMessageHeader().getMessageData().getMessageId();
 					log.info("Message " + newMessageId + " created");
 					return newMessageId;
@@ -185,7 +195,18 @@ class EbMSMessageServiceHandler
 		try
 		{
 			log.debug("GetMessageIds");
-			return maxNr == null || maxNr == 0 ? ebMSDAO.getMessageIds(messageContext,EbMSMessageStatus.RECEIVED) : ebMSDAO.getMessageIds(messageContext,EbMSMessageStatus.RECEIVED,maxNr);
+			if (maxNr == null || maxNr == 0)
+			{
+				val result = new ArrayList<String>();
+				ebMSDAO.executeReadOnlyTransaction(() -> ebMSDAO.streamMessageIds(messageContext,EbMSMessageStatus.RECEIVED,fetchSize,id ->
+				{
+					if (!replicaRouter.isWritten(id))
+						result.add(id);
+				}));
+				return result;
+			}
+			else
+				return replicaRouter.read(() -> ebMSDAO.getMessageIds(messageContext,EbMSMessageStatus.RECEIVED,maxNr),id -> id);
 		}
 		catch (Exception e)
 		{
@@ -194,6 +215,25 @@ class EbMSMessageServiceHandler
 		}
 	}
 
+	public MessageIdsPage getUnprocessedMessageIdsPage(EbMSMessageContext messageContext, String continuationToken, int maxNr) throws EbMSMessageServiceException
+	{
+		try
+		{
+			log.debug("GetMessageIdsPage");
+			if (maxNr <= 0)
+				throw new IllegalArgumentException("MaxNr must be greater than 0");
+			val messageIds = replicaRouter.read(() -> ebMSDAO.getMessageIds(messageContext,EbMSMessageStatus.RECEIVED,ContinuationToken.decode(continuationToken),maxNr),Tuple2::_2);
+			return new MessageIdsPage(
+					messageIds.stream().map(Tuple2::_2).collect(Collectors.toList()),
+					messageIds.size() < maxNr ? null : ContinuationToken.encode(messageIds.get(messageIds.size() - 1)));
+		}
+		catch (Exception e)
+		{
+			log.error("GetMessageIdsPage " + messageContext,e);
+			throw new EbMSMessageServiceException(e);
+		}
+	}
+
 	public EbMSMessageContent getMessage(final String messageId, Boolean process) throws EbMSMessageServiceException
 	{
 		try
@@ -201,7 +241,7 @@ class EbMSMessageServiceHandler
 			log.debug("GetMessage " + messageId);
 			if (process != null && process)
 				processMessage(messageId);
-			return ebMSDAO.getMessageContent(messageId).orElse(null);
+			return replicaRouter.read(messageId,() -> ebMSDAO.getMessageContent(messageId)).orElse(null);
 		}
 		catch (Exception e)
 		{
@@ -217,7 +257,7 @@ class EbMSMessageServiceHandler
 			log.debug("GetMessage " + messageId);
 			if (process != null && process)
 				processMessage(messageId);
-			return ebMSDAO.getMessageContentMTOM(messageId).orElse(null);
+			return replicaRouter.read(messageId,() -> ebMSDAO.getMessageContentMTOM(messageId)).orElse(null);
 		}
 		catch (Exception e)
 		{
@@ -240,6 +280,7 @@ class EbMSMessageServiceHandler
 				}
 			};
 			ebMSDAO.executeTransaction(runnable);
+			replicaRouter.written(messageId);
 			log.info("Message " + messageId + " processed");
 		}
 		catch (Exception e)
@@ -254,7 +295,7 @@ class EbMSMessageServiceHandler
 		try
 		{
 			log.debug("GetMessageStatus " + messageId);
-			return ebMSDAO.getMessageContext(messageId)
+			return replicaRouter.read(messageId,() -> ebMSDAO.getMessageContext(messageId))
 					.map(mc -> getMessageStatus(messageId,mc))
 					.orElseThrow(() -> new EbMSMessageServiceException("No message found with messageId " + messageId + "!"));
 		}
@@ -297,7 +338,18 @@ class EbMSMessageServiceHandler
 		try
 		{
 			log.debug("GetMessageEvents");
-			return maxNr == null || maxNr == 0 ? ebMSMessageEventDAO.getEbMSMessageEvents(messageContext,eventTypes) : ebMSMessageEventDAO.getEbMSMessageEvents(messageContext,eventTypes,maxNr);
+			if (maxNr == null || maxNr == 0)
+			{
+				val result = new ArrayList<EbMSMessageEvent>();
+				ebMSDAO.executeReadOnlyTransaction(() -> ebMSMessageEventDAO.streamEbMSMessageEvents(messageContext,eventTypes,fetchSize,event ->
+				{
+					if (!replicaRouter.isWritten(event.getMessageId()))
+						result.add(event);
+				}));
+				return result;
+			}
+			else
+				return replicaRouter.read(() -> ebMSMessageEventDAO.getEbMSMessageEvents(messageContext,eventTypes,maxNr),EbMSMessageEvent::getMessageId);
 		}
 		catch (Exception e)
 		{
@@ -306,6 +358,26 @@ class EbMSMessageServiceHandler
 		}
 	}
 
+	public EbMSMessageEventsPage getUnprocessedMessageEventsPage(EbMSMessageContext messageContext, EbMSMessageEventType[] eventTypes, String continuationToken, int maxNr) throws EbMSMessageServiceException
+	{
+		try
+		{
+			log.debug("GetMessageEventsPage");
+			if (maxNr <= 0)
+				throw new IllegalArgumentException("MaxNr must be greater than 0");
+			val messageEvents = replicaRouter.read(() -> ebMSMessageEventDAO.getEbMSMessageEvents(messageContext,eventTypes,ContinuationToken.decode(continuationToken),maxNr),e -> e._2.getMessageId());
+			val last = messageEvents.isEmpty() ? null : messageEvents.get(messageEvents.size() - 1);
+			return new EbMSMessageEventsPage(
+					messageEvents.stream().map(Tuple2::_2).collect(Collectors.toList()),
+					messageEvents.size() < maxNr ? null : ContinuationToken.encode(Tuple.of(last._1,last._2.getMessageId())));
+		}
+		catch (Exception e)
+		{
+			log.error("GetMessageEventsPage " + messageContext,e);
+			throw new EbMSMessageServiceException(e);
+		}
+	}
+
 	public void processMessageEvent(final String messageId) throws EbMSMessageServiceException
 	{
 		try
@@ -317,6 +389,7 @@ class EbMSMessageServiceHandler
 				processMessage(messageId);
 			};
 			ebMSDAO.executeTransaction(runnable);
+			replicaRouter.written(messageId);
 		}
 		catch (Exception e)
 		{
@@ -332,7 +405,7 @@ class EbMSMessageServiceHandler
 		context.setTimestamp(null);
 	}
 
-	private void storeMessage(Document document, EbMSMessage message) throws EbMSProcessorException
+	private void storeMessage(EbMSDocument document, EbMSMessage message) throws EbMSProcessorException
 	{
 		try
 		{
@@ -351,6 +424,7 @@ class EbMSMessageServiceHandler
 				eventManager.createEvent(messageHeader.getCPAId(),sendDeliveryChannel,receiveDeliveryChannel,messageHeader.getMessageData().getMessageId(),messageHeader.getMessageData().getTimeToLive(),messageHeader.getMessageData().getTimestamp(),confidential);
 			};
 			ebMSDAO.executeTransaction(runnable);
+			replicaRouter.written(messageHeader.getMessageData().getMessageId());
 		}
 		catch (IllegalStateException | TransformerFactoryConfigurationError e)
 		{
@@ -25,6 +25,8 @@ import nl.clockwork.ebms.event.listener.EbMSMessageEventType;
 import nl.clockwork.ebms.service.model.EbMSMessageContent;
 import nl.clockwork.ebms.service.model.EbMSMessageContext;
 import nl.clockwork.ebms.service.model.EbMSMessageEvent;
+import nl.clockwork.ebms.service.model.EbMSMessageEventsPage;
+import nl.clockwork.ebms.service.model.MessageIdsPage;
 import nl.clockwork.ebms.service.model.MessageStatus;
 
 @FieldDefaults(level = AccessLevel.PACKAGE, makeFinal = true)
@@ -58,6 +60,12 @@ class EbMSMessageServiceImpl implements EbMSMessageService
 		return serviceHandler.getUnprocessedMessageIds(messageContext,maxNr);
 	}
 
+	@Override
+	public MessageIdsPage getUnprocessedMessageIdsPage(EbMSMessageContext messageContext, String continuationToken, int maxNr) throws EbMSMessageServiceException
+	{
+		return serviceHandler.getUnprocessedMessageIdsPage(messageContext,continuationToken,maxNr);
+	}
+
 	@Override
 	public EbMSMessageContent getMessage(final String messageId, Boolean process) throws EbMSMessageServiceException
 	{
@@ -82,6 +90,12 @@ class EbMSMessageServiceImpl implements EbMSMessageService
 		return serviceHandler.getUnprocessedMessageEvents(messageContext,eventTypes,maxNr);
 	}
 
+	@Override
+	public EbMSMessageEventsPage getUnprocessedMessageEventsPage(EbMSMessageContext messageContext, EbMSMessageEventType[] eventTypes, String continuationToken, int maxNr) throws EbMSMessageServiceException
+	{
+		return serviceHandler.getUnprocessedMessageEventsPage(messageContext,eventTypes,continuationToken,maxNr);
+	}
+
 	@Override
 	public void processMessageEvent(final String messageId) throws EbMSMessageServiceException
 	{
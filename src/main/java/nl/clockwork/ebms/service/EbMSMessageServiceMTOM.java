@@ -28,6 +28,8 @@ import nl.clockwork.ebms.event.listener.EbMSMessageEventType;
 import nl.clockwork.ebms.service.model.EbMSMessageContentMTOM;
 import nl.clockwork.ebms.service.model.EbMSMessageContext;
 import nl.clockwork.ebms.service.model.EbMSMessageEvent;
+import nl.clockwork.ebms.service.model.EbMSMessageEventsPage;
+import nl.clockwork.ebms.service.model.MessageIdsPage;
 import nl.clockwork.ebms.service.model.MessageStatus;
 
 @MTOM(enabled=true)
@@ -69,6 +71,7 @@ public interface EbMSMessageServiceMTOM
 
 	/**
 	 * Gets all messageIds of messages with the RECEIVED status that satisfy the filter messageContext. If maxNr is given, then maxNr messageIds are returned
+	 * Without maxNr all messageIds are collected in memory before they are returned. Use getUnprocessedMessageIdsPage to read a large number of messageIds
 	 * 
 	 * @param messageContext
 	 * @param maxNr
@@ -79,6 +82,19 @@ public interface EbMSMessageServiceMTOM
 	@WebMethod(operationName="GetUnprocessedMessageIds")
 	List<String> getUnprocessedMessageIds(@WebParam(name="MessageContext") @XmlElement(required=true) EbMSMessageContext messageContext, @WebParam(name="MaxNr") Integer maxNr) throws EbMSMessageServiceException;
 
+	/**
+	 * Gets at most maxNr messageIds of messages with the RECEIVED status that satisfy the filter messageContext, ordered by timestamp and messageId, starting after continuationToken. The returned continuationToken is used to get the next page and is empty when there are no more messageIds
+	 * 
+	 * @param messageContext
+	 * @param continuationToken
+	 * @param maxNr
+	 * @return The page of messageIds
+	 * @throws EbMSMessageServiceException
+	 */
+	@WebResult(name="MessageIdsPage")
+	@WebMethod(operationName="GetUnprocessedMessageIdsPage")
+	MessageIdsPage getUnprocessedMessageIdsPage(@WebParam(name="MessageContext") @XmlElement(required=true) EbMSMessageContext messageContext, @WebParam(name="ContinuationToken") String continuationToken, @WebParam(name="MaxNr") @XmlElement(required=true) int maxNr) throws EbMSMessageServiceException;
+
 	/**
 	 * Gets the message content of the message identified by messageId using MTOM/XOP. If process is true, the message is given the status PROCESSED, which means that it is no longer returned in the list of getMessageIds
 	 * 
@@ -112,7 +128,7 @@ public interface EbMSMessageServiceMTOM
 	MessageStatus getMessageStatus(@WebParam(name="MessageId") @XmlElement(required=true) String messageId) throws EbMSMessageServiceException;
 
 	/**
-	 * Gets the events that satisfy the messageContext filter and the eventTypes eventTypes. If maxNr is included, then maxNr events are returned. The possible event types are:
+	 * Gets the events that satisfy the messageContext filter and the eventTypes eventTypes. If maxNr is included, then maxNr events are returned. Without maxNr all events are collected in memory before they are returned. Use getUnprocessedMessageEventsPage to read a large number of events. The possible event types are:
 	 * - RECEIVED – when a message is received
 	 * - DELIVERED – if a message has been sent successfully
 	 * - FAILED – if a message returns an error while sending
@@ -128,6 +144,20 @@ public interface EbMSMessageServiceMTOM
 	@WebMethod(operationName="GetUnprocessedMessageEvents")
 	List<EbMSMessageEvent> getUnprocessedMessageEvents(@WebParam(name="MessageContext") @XmlElement(required=true) EbMSMessageContext messageContext, @WebParam(name="EventType") @XmlElement(required=true) EbMSMessageEventType[] eventTypes, @WebParam(name="MaxNr") Integer maxNr) throws EbMSMessageServiceException;
 
+	/**
+	 * Gets at most maxNr events that satisfy the messageContext filter and the eventTypes eventTypes, ordered by timestamp and messageId, starting after continuationToken. The returned continuationToken is used to get the next page and is empty when there are no more events
+	 * 
+	 * @param messageContext
+	 * @param eventTypes
+	 * @param continuationToken
+	 * @param maxNr
+	 * @return The page of events
+	 * @throws EbMSMessageServiceException
+	 */
+	@WebResult(name="MessageEventsPage")
+	@WebMethod(operationName="GetUnprocessedMessageEventsPage")
+	EbMSMessageEventsPage getUnprocessedMessageEventsPage(@WebParam(name="MessageContext") @XmlElement(required=true) EbMSMessageContext messageContext, @WebParam(name="EventType") @XmlElement(required=true) EbMSMessageEventType[] eventTypes, @WebParam(name="ContinuationToken") String continuationToken, @WebParam(name="MaxNr") @XmlElement(required=true) int maxNr) throws EbMSMessageServiceException;
+
 	/**
 	 * Sets processed to true for all the current events for the message identified by messageId, so that it is no longer returned in the list of getUnprocessedMessageEvents (and getUnprocessedMessageIds)
 	 * 
@@ -24,6 +24,8 @@ import nl.clockwork.ebms.event.listener.EbMSMessageEventType;
 import nl.clockwork.ebms.service.model.EbMSMessageContentMTOM;
 import nl.clockwork.ebms.service.model.EbMSMessageContext;
 import nl.clockwork.ebms.service.model.EbMSMessageEvent;
+import nl.clockwork.ebms.service.model.EbMSMessageEventsPage;
+import nl.clockwork.ebms.service.model.MessageIdsPage;
 import nl.clockwork.ebms.service.model.MessageStatus;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -56,6 +58,12 @@ class EbMSMessageServiceMTOMImpl implements EbMSMessageServiceMTOM
 		return serviceHandler.getUnprocessedMessageIds(messageContext,maxNr);
 	}
 
+	@Override
+	public MessageIdsPage getUnprocessedMessageIdsPage(EbMSMessageContext messageContext, String continuationToken, int maxNr) throws EbMSMessageServiceException
+	{
+		return serviceHandler.getUnprocessedMessageIdsPage(messageContext,continuationToken,maxNr);
+	}
+
 	@Override
 	public EbMSMessageContentMTOM getMessageMTOM(String messageId, Boolean process) throws EbMSMessageServiceException
 	{
@@ -80,6 +88,12 @@ class EbMSMessageServiceMTOMImpl implements EbMSMessageServiceMTOM
 		return serviceHandler.getUnprocessedMessageEvents(messageContext,eventTypes,maxNr);
 	}
 
+	@Override
+	public EbMSMessageEventsPage getUnprocessedMessageEventsPage(EbMSMessageContext messageContext, EbMSMessageEventType[] eventTypes, String continuationToken, int maxNr) throws EbMSMessageServiceException
+	{
+		return serviceHandler.getUnprocessedMessageEventsPage(messageContext,eventTypes,continuationToken,maxNr);
+	}
+
 	@Override
 	public void processMessageEvent(String messageId) throws EbMSMessageServiceException
 	{
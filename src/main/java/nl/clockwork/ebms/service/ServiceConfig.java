@@ -28,6 +28,7 @@ import nl.clockwork.ebms.cpa.CPAManager;
 import nl.clockwork.ebms.cpa.CertificateMapper;
 import nl.clockwork.ebms.cpa.URLMapper;
 import nl.clockwork.ebms.dao.EbMSDAO;
+import nl.clockwork.ebms.datasource.ReplicaRouter;
 import nl.clockwork.ebms.event.listener.EbMSMessageEventDAO;
 import nl.clockwork.ebms.event.processor.EventManager;
 import nl.clockwork.ebms.service.cpa.CPAService;
@@ -66,8 +67,12 @@ public class ServiceConfig
 	EbMSMessageContextValidator ebMSMessageContextValidator;
 	@Autowired
 	EbMSSignatureGenerator signatureGenerator;
+	@Autowired
+	ReplicaRouter replicaRouter;
 	@Value("${ebmsMessage.deleteContentOnProcessed}")
 	boolean deleteEbMSAttachmentsOnMessageProcessed;
+	@Value("${ebmsMessage.fetchSize}")
+	int fetchSize;
 
 	@Bean
 	public CPAService cpaService()
@@ -112,6 +117,8 @@ public class ServiceConfig
 				.ebMSMessageContextValidator(ebMSMessageContextValidator)
 				.signatureGenerator(signatureGenerator)
 				.deleteEbMSAttachmentsOnMessageProcessed(deleteEbMSAttachmentsOnMessageProcessed)
+				.fetchSize(fetchSize)
+				.replicaRouter(replicaRouter)
 				.build();
 	}
 }
@@ -122,7 +122,7 @@ public class EbMSSignatureGenerator
 		val keyPair = SecurityUtils.getKeyPair(keyStore,alias,keyStore.getKeyPassword());
 		val signatureAlgorithm = CPAUtils.getSignatureAlgorithm(deliveryChannel);
 		val hashFunction = CPAUtils.getHashFunction(deliveryChannel);
-		sign(keyStore,keyPair,alias,document.getMessage(),attachments,signatureAlgorithm,hashFunction);
+		sign(keyStore,keyPair,alias,document.getMessageForUpdate(),attachments,signatureAlgorithm,hashFunction);
 	}
 	
 	private void sign(EbMSKeyStore keyStore, KeyPair keyPair, String alias, Document document, List<EbMSAttachment> attachments, String signatureMethodAlgorithm, String digestAlgorithm) throws XMLSecurityException, KeyStoreException
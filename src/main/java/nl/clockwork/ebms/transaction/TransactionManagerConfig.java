@@ -43,6 +43,9 @@ import bitronix.tm.TransactionManagerServices;
 import lombok.AccessLevel;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.EmbeddedStore;
+import nl.clockwork.ebms.dao.EmbeddedTransactionManager;
+import nl.clockwork.ebms.datasource.DataSourceConfig.EmbeddedStoreType;
 
 @Configuration
 @EnableTransactionManagement
@@ -61,12 +64,19 @@ public class TransactionManagerConfig
 	ConnectionFactory connectionFactory;
 
 	@Bean("dataSourceTransactionManager")
-	@Conditional(DefaultTransactionManagerType.class)
+	@Conditional(DataSourceTransactionManagerType.class)
 	public PlatformTransactionManager dataSourceTransactionManager()
 	{
 		return new DataSourceTransactionManager(dataSource);
 	}
 
+	@Bean("dataSourceTransactionManager")
+	@Conditional(EmbeddedTransactionManagerType.class)
+	public PlatformTransactionManager embeddedTransactionManager(EmbeddedStore embeddedStore)
+	{
+		return new EmbeddedTransactionManager(embeddedStore);
+	}
+
 	@Bean("jmsTransactionManager")
 	@Conditional(DefaultTransactionManagerType.class)
 	public PlatformTransactionManager jmsTransactionManager()
@@ -112,6 +122,22 @@ public class TransactionManagerConfig
 			return context.getEnvironment().getProperty("transactionManager.type",TransactionManagerType.class,TransactionManagerType.DEFAULT) == TransactionManagerType.DEFAULT;
 		}
 	}
+	public static class DataSourceTransactionManagerType implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return new DefaultTransactionManagerType().matches(context,metadata) && !new EmbeddedStoreType().matches(context,metadata);
+		}
+	}
+	public static class EmbeddedTransactionManagerType implements Condition
+	{
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata)
+		{
+			return new DefaultTransactionManagerType().matches(context,metadata) && new EmbeddedStoreType().matches(context,metadata);
+		}
+	}
 	public static class BitronixTransactionManagerType implements Condition
 	{
 		@Override
@@ -95,6 +95,14 @@ public class DOMUtils
 			child = child.getNextSibling();
 		return (Element)child;
 	}
+
+	public static Element getNextSiblingElement(Node node)
+	{
+		var sibling = node.getNextSibling();
+		while ((sibling != null) && (sibling.getNodeType() != Node.ELEMENT_NODE))
+			sibling = sibling.getNextSibling();
+		return (Element)sibling;
+	}
 	
 	public static Document read(String s) throws ParserConfigurationException, SAXException, IOException
 	{
@@ -31,6 +31,11 @@ import javax.crypto.SecretKey;
 
 import org.apache.xml.security.encryption.XMLCipher;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 import nl.clockwork.ebms.security.EbMSKeyStore;
@@ -43,6 +48,8 @@ public class SecurityUtils
 	private static final int KEYSIZE_192 = 192;
 	private static final int KEYSIZE_128 = 128;
 	private static final int KEYSIZE_256 = 256;
+	private static final LoadingCache<EbMSTrustStore,Cache<X509Certificate,Boolean>> trustedCertificates =
+			CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(t -> CacheBuilder.newBuilder().weakKeys().build()));
 	
 
 	public static KeyPair getKeyPair(EbMSKeyStore keyStore, String alias, String password) throws GeneralSecurityException
@@ -62,18 +69,16 @@ public class SecurityUtils
 		try
 		{
 			certificate.checkValidity(Date.from(date));
-			val aliases = trustStore.aliases();
-			while (aliases.hasMoreElements())
+			val verified = trustedCertificates.getUnchecked(trustStore);
+			if (verified.getIfPresent(certificate) != null)
+				return;
+			for (val c : trustStore.getIssuerCertificates(certificate))
 			{
 				try
 				{
-					val c = trustStore.getCertificate(aliases.nextElement());
-					if (c instanceof X509Certificate)
-						if (certificate.getIssuerDN().getName().equals(((X509Certificate)c).getSubjectDN().getName()))
-						{
-							certificate.verify(c.getPublicKey());
-							return;
-						}
+					certificate.verify(c.getPublicKey());
+					verified.put(certificate,Boolean.TRUE);
+					return;
 				}
 				catch (GeneralSecurityException e)
 				{
@@ -16,12 +16,16 @@
 package nl.clockwork.ebms.xml.dsig;
 
 import java.io.IOException;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 
+import org.apache.xml.security.algorithms.JCEMapper;
 import org.apache.xml.security.signature.XMLSignatureInput;
 import org.apache.xml.security.utils.resolver.ResourceResolverContext;
 import org.apache.xml.security.utils.resolver.ResourceResolverException;
 import org.apache.xml.security.utils.resolver.ResourceResolverSpi;
+import org.w3c.dom.Element;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -59,7 +63,8 @@ public class EbMSAttachmentResolver extends ResourceResolverSpi
 				.orElseThrow(() -> new ResourceResolverException(context.uriToResolve,new Object[]{"Reference URI = " + context.uriToResolve + " does not exist!"},context.uriToResolve,context.baseUri));
 		try
 		{
-			val input = new XMLSignatureInput(result.getInputStream());
+			val digest = getDigest(context,result);
+			val input = digest.isPresent() ? new XMLSignatureInput(Base64.getEncoder().encodeToString(digest.get())) : new XMLSignatureInput(result.getInputStream());
 			input.setSourceURI(context.uriToResolve);
 			input.setMIMEType(result.getContentType());
 			return input;
@@ -69,4 +74,18 @@ public class EbMSAttachmentResolver extends ResourceResolverSpi
 			throw new ResourceResolverException(e,context.uriToResolve,context.baseUri,context.uriToResolve);
 		}
 	}
+
+	private Optional<byte[]> getDigest(ResourceResolverContext context, EbMSAttachment attachment)
+	{
+		if (context.attr == null)
+			return Optional.empty();
+		val reference = context.attr.getOwnerElement();
+		if (reference.getElementsByTagNameNS(org.apache.xml.security.utils.Constants.SignatureSpecNS,org.apache.xml.security.utils.Constants._TAG_TRANSFORMS).getLength() > 0)
+			return Optional.empty();
+		val digestMethod = (Element)reference.getElementsByTagNameNS(org.apache.xml.security.utils.Constants.SignatureSpecNS,org.apache.xml.security.utils.Constants._TAG_DIGESTMETHOD).item(0);
+		if (digestMethod == null)
+			return Optional.empty();
+		val algorithm = JCEMapper.translateURItoJCEID(digestMethod.getAttributeNS(null,org.apache.xml.security.utils.Constants._ATT_ALGORITHM));
+		return algorithm == null ? Optional.empty() : attachment.getDigest(algorithm);
+	}
 }
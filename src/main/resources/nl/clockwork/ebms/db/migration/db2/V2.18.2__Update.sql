@@ -0,0 +1,21 @@
+--
+-- Copyright 2011 Clockwork
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+CREATE INDEX i_ebms_message_status ON ebms_message (status,message_nr,time_stamp);
+CREATE INDEX i_ebms_attachment ON ebms_attachment (message_id,message_nr);
+CREATE INDEX i_ebms_attachment_digest ON ebms_attachment (content_digest);
+CREATE INDEX i_ebms_event_server ON ebms_event (server_id,time_stamp);
+CREATE INDEX i_ebms_message_event_processed ON ebms_message_event (processed,event_type,message_id);
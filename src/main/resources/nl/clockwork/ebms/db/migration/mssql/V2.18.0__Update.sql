@@ -0,0 +1,23 @@
+--
+-- Copyright 2011 Clockwork
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+ALTER TABLE ebms_message ADD content_codec SMALLINT DEFAULT 0 NOT NULL;
+ALTER TABLE ebms_message ADD binary_content IMAGE NULL;
+
+ALTER TABLE ebms_attachment ADD content_digest VARCHAR(64) NULL;
+ALTER TABLE ebms_attachment ALTER COLUMN content IMAGE NULL;
+ALTER TABLE ebms_attachment ADD time_stamp DATETIME NULL;
+CREATE INDEX i_ebms_message_persist_time ON ebms_message (persist_time);
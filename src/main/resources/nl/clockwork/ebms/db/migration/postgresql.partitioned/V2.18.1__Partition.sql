@@ -0,0 +1,125 @@
+--
+-- Copyright 2011 Clockwork
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Optional layout, applied when ebms.jdbc.partitioned=true. Requires PostgreSQL 12 or later.
+-- ebms_message and ebms_attachment are range partitioned on time_stamp, so expired messages can be removed by dropping whole partitions.
+-- The partitions follow ebmsMessage.partition.interval and ebmsMessage.partition.precreate.
+-- A partitioned primary key must contain time_stamp, so uniqueness of (message_id,message_nr) is enforced through ebms_message_id.
+
+ALTER TABLE ebms_attachment RENAME TO ebms_attachment_old;
+ALTER TABLE ebms_message RENAME TO ebms_message_old;
+ALTER TABLE ebms_message_old RENAME CONSTRAINT ebms_message_pkey TO ebms_message_old_pkey;
+DROP INDEX IF EXISTS i_ebms_ref_to_message;
+DROP INDEX IF EXISTS i_ebms_message_persist_time;
+DROP INDEX IF EXISTS i_ebms_message_status;
+DROP INDEX IF EXISTS i_ebms_attachment;
+DROP INDEX IF EXISTS i_ebms_attachment_digest;
+
+CREATE TABLE ebms_message
+(
+	time_stamp				TIMESTAMP				NOT NULL,
+	cpa_id						VARCHAR(256)		NOT NULL,
+	conversation_id		VARCHAR(256)		NOT NULL,
+	message_id				VARCHAR(256)		NOT NULL,
+	message_nr				SMALLINT				NOT NULL DEFAULT 0,
+	ref_to_message_id	VARCHAR(256)		NULL,
+	time_to_live			TIMESTAMP				NULL,
+	from_party_id			VARCHAR(256)		NOT NULL,
+	from_role					VARCHAR(256)		NULL,
+	to_party_id				VARCHAR(256)		NOT NULL,
+	to_role						VARCHAR(256)		NULL,
+	service						VARCHAR(256)		NOT NULL,
+	action						VARCHAR(256)		NOT NULL,
+	content						TEXT						NULL,
+	status						SMALLINT				NULL,
+	status_time				TIMESTAMP				NULL,
+	persist_time			TIMESTAMP				NULL,
+	content_codec			SMALLINT				DEFAULT 0 NOT NULL,
+	binary_content		BYTEA						NULL,
+	PRIMARY KEY (message_id,message_nr,time_stamp)
+) PARTITION BY RANGE (time_stamp);
+
+CREATE INDEX i_ebms_ref_to_message ON ebms_message (ref_to_message_id,message_nr);
+CREATE INDEX i_ebms_message_persist_time ON ebms_message (persist_time);
+CREATE INDEX i_ebms_message_status ON ebms_message (status,message_nr,time_stamp);
+
+CREATE TABLE ebms_message_id
+(
+	message_id				VARCHAR(256)		NOT NULL,
+	message_nr				SMALLINT				NOT NULL,
+	PRIMARY KEY (message_id,message_nr)
+);
+
+CREATE FUNCTION ebms_message_id_insert() RETURNS TRIGGER AS $$
+BEGIN
+	INSERT INTO ebms_message_id (message_id,message_nr) VALUES (NEW.message_id,NEW.message_nr);
+	RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+CREATE FUNCTION ebms_message_id_delete() RETURNS TRIGGER AS $$
+BEGIN
+	DELETE FROM ebms_message_id WHERE message_id = OLD.message_id AND message_nr = OLD.message_nr;
+	RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+CREATE TRIGGER t_ebms_message_id_insert AFTER INSERT ON ebms_message FOR EACH ROW EXECUTE FUNCTION ebms_message_id_insert();
+CREATE TRIGGER t_ebms_message_id_delete AFTER DELETE ON ebms_message FOR EACH ROW EXECUTE FUNCTION ebms_message_id_delete();
+
+CREATE TABLE ebms_attachment
+(
+	message_id				VARCHAR(256)		NOT NULL,
+	message_nr				SMALLINT				NOT NULL,
+	order_nr					SMALLINT				NOT NULL,
+	name							VARCHAR(256)		NULL,
+	content_id 				VARCHAR(256) 		NOT NULL,
+	content_type			VARCHAR(255)		NOT NULL,
+	content						BYTEA						NULL,
+	content_digest		VARCHAR(64)			NULL,
+	time_stamp				TIMESTAMP				NOT NULL,
+	FOREIGN KEY (message_id,message_nr,time_stamp) REFERENCES ebms_message (message_id,message_nr,time_stamp)
+) PARTITION BY RANGE (time_stamp);
+
+CREATE INDEX i_ebms_attachment ON ebms_attachment (message_id,message_nr);
+CREATE INDEX i_ebms_attachment_digest ON ebms_attachment (content_digest);
+
+DO $$
+DECLARE
+	unit TEXT := CASE '${partitionInterval}' WHEN 'DAILY' THEN 'day' ELSE 'month' END;
+	step INTERVAL := ('1 ' || unit)::INTERVAL;
+	start_date TIMESTAMP := date_trunc(unit,coalesce((SELECT min(time_stamp) FROM ebms_message_old),localtimestamp));
+	end_date TIMESTAMP := date_trunc(unit,localtimestamp) + (${partitionPrecreate} + 1) * step;
+BEGIN
+	WHILE start_date < end_date LOOP
+		EXECUTE format('CREATE TABLE %I PARTITION OF ebms_message FOR VALUES FROM (%L) TO (%L)','ebms_message_' || to_char(start_date,'YYYYMMDD'),start_date,start_date + step);
+		EXECUTE format('CREATE TABLE %I PARTITION OF ebms_attachment FOR VALUES FROM (%L) TO (%L)','ebms_attachment_' || to_char(start_date,'YYYYMMDD'),start_date,start_date + step);
+		start_date := start_date + step;
+	END LOOP;
+END $$;
+
+CREATE TABLE ebms_message_default PARTITION OF ebms_message DEFAULT;
+CREATE TABLE ebms_attachment_default PARTITION OF ebms_attachment DEFAULT;
+
+INSERT INTO ebms_message (time_stamp,cpa_id,conversation_id,message_id,message_nr,ref_to_message_id,time_to_live,from_party_id,from_role,to_party_id,to_role,service,action,content,status,status_time,persist_time,content_codec,binary_content)
+SELECT time_stamp,cpa_id,conversation_id,message_id,message_nr,ref_to_message_id,time_to_live,from_party_id,from_role,to_party_id,to_role,service,action,content,status,status_time,persist_time,content_codec,binary_content
+FROM ebms_message_old;
+
+INSERT INTO ebms_attachment (message_id,message_nr,order_nr,name,content_id,content_type,content,content_digest,time_stamp)
+SELECT a.message_id,a.message_nr,a.order_nr,a.name,a.content_id,a.content_type,a.content,a.content_digest,m.time_stamp
+FROM ebms_attachment_old a
+JOIN ebms_message_old m ON m.message_id = a.message_id AND m.message_nr = a.message_nr;
+
+DROP TABLE ebms_attachment_old;
+DROP TABLE ebms_message_old;
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+import nl.clockwork.ebms.model.EbMSDocument;
+import nl.clockwork.ebms.util.DOMUtils;
+
+public class EbMSMessageReaderTest
+{
+	@Test
+	public void testReuseReceivedContent() throws Exception
+	{
+		val content = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><a b=\"1\"/>".getBytes(StandardCharsets.UTF_8);
+		val document = new EbMSMessageReader("cid","text/xml; charset=\"utf-8\"").read(new ByteArrayInputStream(content));
+		document.getMessage().getDocumentElement().setAttribute("b","2");
+		assertArrayEquals(content,document.getContent());
+		document.getMessageForUpdate().getDocumentElement().setAttribute("b","3");
+		assertEquals("3",getAttribute(document));
+	}
+
+	@Test
+	public void testReuseContentWithoutDeclaration() throws Exception
+	{
+		val content = "<a b=\"1\"/>".getBytes(StandardCharsets.UTF_8);
+		val document = new EbMSMessageReader("cid","text/xml").read(new ByteArrayInputStream(content));
+		document.getMessage().getDocumentElement().setAttribute("b","2");
+		assertArrayEquals(content,document.getContent());
+	}
+
+	@Test
+	public void testSerialiseDeclaredEncoding() throws Exception
+	{
+		testSerialise("text/xml","<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><a b=\"1\"/>",StandardCharsets.ISO_8859_1);
+	}
+
+	@Test
+	public void testSerialiseContentTypeCharset() throws Exception
+	{
+		testSerialise("text/xml; charset=ISO-8859-1","<a b=\"1\"/>",StandardCharsets.ISO_8859_1);
+	}
+
+	@Test
+	public void testSerialiseUTF16() throws Exception
+	{
+		testSerialise("text/xml","<?xml version=\"1.0\" encoding=\"UTF-16\"?><a b=\"1\"/>",StandardCharsets.UTF_16);
+	}
+
+	private void testSerialise(String contentType, String xml, Charset charset) throws Exception
+	{
+		val document = new EbMSMessageReader("cid",contentType).read(new ByteArrayInputStream(xml.getBytes(charset)));
+		document.getMessage().getDocumentElement().setAttribute("b","2");
+		assertEquals("2",getAttribute(document));
+	}
+
+	private String getAttribute(EbMSDocument document) throws Exception
+	{
+		return DOMUtils.read(new ByteArrayInputStream(document.getContent())).getDocumentElement().getAttribute("b");
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CollaborationProtocolAgreement;
+
+import lombok.val;
+import nl.clockwork.ebms.jaxb.JAXBParser;
+
+public class CacheWeigherTest
+{
+	@Test
+	public void testWeighCPA() throws Exception
+	{
+		val xml = IOUtils.toString(getClass().getResourceAsStream("/nl/clockwork/ebms/cpa/cpaStubEBF.rm.https.signed.xml"),StandardCharsets.UTF_8);
+		val cpa = JAXBParser.getInstance(CollaborationProtocolAgreement.class).handle(xml);
+		val size = xml.length() / 1024;
+		val weight = new CacheWeigher().weigh("key",Optional.of(cpa));
+		assertTrue(weight > size / 2 && weight < size * 2);
+	}
+
+	@Test
+	public void testWeighOther()
+	{
+		assertEquals(1,new CacheWeigher().weigh("key",Optional.empty()));
+		assertEquals(1,new CacheWeigher().weigh("key","value"));
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.PartyId;
+import org.springframework.util.SerializationUtils;
+
+import lombok.val;
+import nl.clockwork.ebms.service.model.Party;
+
+public class EbMSKeyGeneratorTest
+{
+	EbMSKeyGenerator keyGenerator = new EbMSKeyGenerator();
+
+	@Test
+	public void testGenerate() throws Exception
+	{
+		val canSend = getClass().getDeclaredMethod("canSend",String.class,List.class,String.class);
+		val canReceive = getClass().getDeclaredMethod("canReceive",String.class,List.class,String.class);
+		val key = keyGenerator.generate(this,canSend,"cpa",createPartyId("1"),"action");
+		assertEquals(key,keyGenerator.generate(this,canSend,"cpa",createPartyId("1"),"action"));
+		assertEquals(key.hashCode(),keyGenerator.generate(this,canSend,"cpa",createPartyId("1"),"action").hashCode());
+		assertNotEquals(key,keyGenerator.generate(this,canSend,"cpa",createPartyId("2"),"action"));
+		assertNotEquals(key,keyGenerator.generate(this,canReceive,"cpa",createPartyId("1"),"action"));
+		assertNotEquals(key,keyGenerator.generate(this,canSend,"cpa",createPartyId("1"),null));
+		assertEquals(key,SerializationUtils.deserialize(SerializationUtils.serialize(key)));
+		assertEquals(keyGenerator.generate(this,canSend,"cpa",new Party("1","role")),keyGenerator.generate(this,canSend,"cpa",new Party("1","role")));
+	}
+
+	private List<PartyId> createPartyId(String value)
+	{
+		val result = new PartyId();
+		result.setType("type");
+		result.setValue(value);
+		return Arrays.asList(result);
+	}
+
+	boolean canSend(String cpaId, List<PartyId> partyId, String action)
+	{
+		return true;
+	}
+
+	boolean canReceive(String cpaId, List<PartyId> partyId, String action)
+	{
+		return true;
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class JMSInvalidatingCacheTest
+{
+	NamespacedKeyGenerator keyGenerator = new NamespacedKeyGenerator();
+	CachingConnectionFactory connectionFactory;
+	DefaultMessageListenerContainer listener1;
+	DefaultMessageListenerContainer listener2;
+	Cache cache1;
+	Cache cache2;
+
+	@BeforeEach
+	public void init()
+	{
+		connectionFactory = new CachingConnectionFactory(new ActiveMQConnectionFactory("vm://cache?broker.persistent=false&broker.useJmx=false"));
+		val invalidator1 = createCacheInvalidator();
+		val invalidator2 = createCacheInvalidator();
+		cache1 = invalidator1.register(new JMSInvalidatingCache(new ConcurrentMapCache("CPA"),invalidator1));
+		cache2 = invalidator2.register(new JMSInvalidatingCache(new ConcurrentMapCache("CPA"),invalidator2));
+		listener1 = createListener(invalidator1);
+		listener2 = createListener(invalidator2);
+	}
+
+	@AfterEach
+	public void close()
+	{
+		listener1.shutdown();
+		listener2.shutdown();
+		connectionFactory.destroy();
+	}
+
+	@Test
+	public void testInvalidate() throws Exception
+	{
+		val method = String.class.getMethod("valueOf",Object.class);
+		val evicted = new CopyOnWriteArrayList<String>();
+		((NamespacedCache)cache2).addEvictionListener(evicted::add);
+		cache1.put(key(method,"cpa1"),"1");
+		cache2.put(key(method,"cpa1"),"1");
+		cache2.put(key(method,"cpa2"),"2");
+		cache2.put("other","other");
+		cache1.evict(NamespacedKey.namespace("cpa1"));
+		assertNull(cache1.get(key(method,"cpa1")));
+		waitFor(() -> cache2.get(key(method,"cpa1")) == null);
+		waitFor(() -> evicted.contains("cpa1"));
+		assertNotNull(cache2.get(key(method,"cpa2")));
+		assertNotNull(cache2.get("other"));
+		cache1.clear();
+		waitFor(() -> cache2.get("other") == null);
+		waitFor(() -> evicted.contains(null));
+	}
+
+	private JMSCacheInvalidator createCacheInvalidator()
+	{
+		val jmsTemplate = new JmsTemplate(connectionFactory);
+		jmsTemplate.setPubSubDomain(true);
+		return new JMSCacheInvalidator(jmsTemplate,JMSCacheInvalidator.JMS_DESTINATION_NAME);
+	}
+
+	private DefaultMessageListenerContainer createListener(JMSCacheInvalidator cacheInvalidator)
+	{
+		val result = new DefaultMessageListenerContainer();
+		result.setConnectionFactory(connectionFactory);
+		result.setPubSubDomain(true);
+		result.setDestinationName(JMSCacheInvalidator.JMS_DESTINATION_NAME);
+		result.setMessageListener(cacheInvalidator);
+		result.afterPropertiesSet();
+		result.start();
+		while (!result.isRegisteredWithDestination())
+			Thread.yield();
+		return result;
+	}
+
+	private Object key(Method method, Object...params)
+	{
+		return keyGenerator.generate(this,method,params);
+	}
+
+	private void waitFor(BooleanSupplier condition) throws InterruptedException
+	{
+		for (int i = 0; i < 100 && !condition.getAsBoolean(); i++)
+			Thread.sleep(50);
+		assertTrue(condition.getAsBoolean());
+	}
+}
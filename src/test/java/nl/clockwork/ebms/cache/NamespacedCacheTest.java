@@ -0,0 +1,91 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class NamespacedCacheTest
+{
+	NamespacedKeyGenerator keyGenerator = new NamespacedKeyGenerator();
+
+	@Test
+	public void testEvictNamespace() throws Exception
+	{
+		testEvictNamespace(new NamespacedCache(new ConcurrentMapCache("CPA")));
+	}
+
+	@Test
+	public void testEvictNamespaceCaffeine() throws Exception
+	{
+		testEvictNamespace(new NamespacedCache(new CaffeineCache("CPA",Caffeine.newBuilder().maximumWeight(100).weigher(new CacheWeigher()).build())));
+	}
+
+	@Test
+	public void testEvictionListener() throws Exception
+	{
+		val method = String.class.getMethod("valueOf",Object.class);
+		val cache = new NamespacedCache(new ConcurrentMapCache("CPA"));
+		val evicted = new ArrayList<String>();
+		cache.addEvictionListener(evicted::add);
+		cache.put(key(method,"cpa1","a"),"1a");
+		cache.evict(key(method,"cpa1","a"));
+		cache.evict(NamespacedKey.namespace("cpa1"));
+		cache.evictIfPresent(NamespacedKey.namespace("cpa2"));
+		cache.clear();
+		assertEquals(Arrays.asList("cpa1","cpa2",null),evicted);
+	}
+
+	private void testEvictNamespace(Cache cache) throws Exception
+	{
+		val method = String.class.getMethod("valueOf",Object.class);
+		cache.put(key(method,"cpa1","a"),"1a");
+		cache.put(key(method,"cpa1","b"),"1b");
+		cache.put(key(method,"cpa2","a"),"2a");
+		cache.put(key(method),"all");
+		cache.put("other","other");
+		cache.evict(NamespacedKey.namespace("cpa1"));
+		assertNull(cache.get(key(method,"cpa1","a")));
+		assertNull(cache.get(key(method,"cpa1","b")));
+		assertNull(cache.get(key(method)));
+		assertEquals("2a",cache.get(key(method,"cpa2","a")).get());
+		assertNotNull(cache.get("other"));
+		cache.evict(key(method,"cpa2","a"));
+		assertNull(cache.get(key(method,"cpa2","a")));
+	}
+
+	private Object key(Method method, Object...params)
+	{
+		return keyGenerator.generate(this,method,params);
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.client;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.KeyStoreException;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.DeliveryChannel;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.Transport;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.TransportSender;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.cache.NamespacedCache;
+import nl.clockwork.ebms.cache.NamespacedKey;
+import nl.clockwork.ebms.cpa.CertificateMapper;
+import nl.clockwork.ebms.security.EbMSKeyStore;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class EbMSHttpClientFactoryTest
+{
+	EbMSKeyStore keyStore = mock(EbMSKeyStore.class);
+	CertificateMapper certificateMapper = mock(CertificateMapper.class);
+	X509Certificate certificate = mock(X509Certificate.class);
+	EbMSClient client = mock(EbMSClient.class);
+	Map<String,EbMSClient> clients = new ConcurrentHashMap<>();
+	NamespacedCache cache = new NamespacedCache(new ConcurrentMapCache("CertificateMapping"));
+	EbMSHttpClientFactory factory;
+
+	@BeforeEach
+	public void init() throws Exception
+	{
+		when(certificateMapper.getCertificate(any(),any())).thenReturn(certificate);
+		when(keyStore.getCertificateAlias(certificate)).thenReturn("alias");
+		clients.put("alias",client);
+		factory = EbMSHttpClientFactory.builder()
+				.keyStore(keyStore)
+				.certificateMapper(certificateMapper)
+				.useClientCertificate(true)
+				.clients(clients)
+				.clientAliases(cache)
+				.build();
+	}
+
+	@Test
+	public void testClientAliasKey() throws Exception
+	{
+		assertSame(client,factory.getEbMSClient("cpa1",createDeliveryChannel("channel1")));
+		assertSame(client,factory.getEbMSClient("cpa1",createDeliveryChannel("channel1")));
+		verify(keyStore,times(1)).getCertificateAlias(certificate);
+		factory.getEbMSClient("cpa1",createDeliveryChannel("channel2"));
+		factory.getEbMSClient("cpa2",createDeliveryChannel("channel1"));
+		verify(keyStore,times(3)).getCertificateAlias(certificate);
+		verify(certificateMapper,times(2)).getCertificate(any(),eq("cpa1"));
+	}
+
+	@Test
+	public void testEvictCPA() throws Exception
+	{
+		factory.getEbMSClient("cpa1",createDeliveryChannel("channel1"));
+		factory.getEbMSClient("cpa2",createDeliveryChannel("channel1"));
+		cache.evict(NamespacedKey.namespace("cpa1"));
+		factory.getEbMSClient("cpa1",createDeliveryChannel("channel1"));
+		factory.getEbMSClient("cpa2",createDeliveryChannel("channel1"));
+		verify(certificateMapper,times(2)).getCertificate(any(),eq("cpa1"));
+		verify(certificateMapper,times(1)).getCertificate(any(),eq("cpa2"));
+	}
+
+	@Test
+	public void testEvictCertificateMappings() throws Exception
+	{
+		factory.getEbMSClient("cpa1",createDeliveryChannel("channel1"));
+		cache.clear();
+		factory.getEbMSClient("cpa1",createDeliveryChannel("channel1"));
+		verify(keyStore,times(2)).getCertificateAlias(certificate);
+	}
+
+	@Test
+	public void testClientAliasException() throws Exception
+	{
+		val exception = new KeyStoreException();
+		when(keyStore.getCertificateAlias(certificate)).thenThrow(exception);
+		val e = assertThrows(IllegalStateException.class,() -> factory.getEbMSClient("cpa1",createDeliveryChannel("channel1")));
+		assertSame(exception,e.getCause());
+		val uncachedFactory = EbMSHttpClientFactory.builder()
+				.keyStore(keyStore)
+				.certificateMapper(certificateMapper)
+				.useClientCertificate(true)
+				.clients(clients)
+				.build();
+		assertSame(exception,assertThrows(IllegalStateException.class,() -> uncachedFactory.getEbMSClient("cpa1",createDeliveryChannel("channel1"))).getCause());
+	}
+
+	private DeliveryChannel createDeliveryChannel(String channelId)
+	{
+		val transport = new Transport();
+		transport.setTransportSender(new TransportSender());
+		val result = new DeliveryChannel();
+		result.setChannelId(channelId);
+		result.setTransportId(transport);
+		return result;
+	}
+}
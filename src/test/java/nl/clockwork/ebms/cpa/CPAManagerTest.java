@@ -0,0 +1,187 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cpa;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.oasis_open.committees.ebxml_cppa.schema.cpp_cpa_2_0.CollaborationProtocolAgreement;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.PartyId;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.cache.NamespacedCache;
+import nl.clockwork.ebms.cache.NamespacedKey;
+import nl.clockwork.ebms.jaxb.JAXBParser;
+import nl.clockwork.ebms.service.model.Party;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CPAManagerTest
+{
+	static final String cpaId = "cpaStubEBF.rm.https.signed";
+	static final String service = "urn:osb:services:osb:afleveren:1.1$1.0";
+	CPADAO cpaDAO;
+	URLMappingDAO urlMappingDAO;
+	CPAManager cpaManager;
+
+	@BeforeEach
+	public void init() throws IOException, JAXBException
+	{
+		cpaDAO = Mockito.mock(CPADAO.class);
+		Mockito.when(cpaDAO.getCPA(cpaId)).thenReturn(loadCPA(cpaId));
+		Mockito.when(cpaDAO.getCPA("unknown")).thenReturn(Optional.empty());
+		Mockito.when(cpaDAO.getCPAIds()).thenReturn(Arrays.asList(cpaId,"unknown"));
+		urlMappingDAO = Mockito.mock(URLMappingDAO.class);
+		cpaManager = new CPAManager(cpaDAO,new URLMapper(urlMappingDAO));
+	}
+
+	@Test
+	public void testCPAIndexCache()
+	{
+		val cache = new NamespacedCache(new ConcurrentMapCache("CPA"));
+		cache.addEvictionListener(cpaManager::evictCPAIndex);
+		val partyId = createPartyId("00000000000000000000");
+		assertTrue(cpaManager.canSend(cpaId,partyId,"DIGIPOORT",service,"afleveren"));
+		assertTrue(cpaManager.canReceive(cpaId,partyId,"DIGIPOORT",service,"bevestigAfleveren"));
+		assertFalse(cpaManager.existsPartyId("unknown","urn:osb:oin:00000000000000000001"));
+		assertFalse(cpaManager.existsPartyId("unknown","urn:osb:oin:00000000000000000001"));
+		Mockito.verify(cpaDAO,Mockito.times(1)).getCPA(cpaId);
+		Mockito.verify(cpaDAO,Mockito.times(1)).getCPA("unknown");
+		cache.evict(NamespacedKey.namespace(cpaId));
+		assertTrue(cpaManager.canSend(cpaId,partyId,"DIGIPOORT",service,"afleveren"));
+		assertFalse(cpaManager.existsPartyId("unknown","urn:osb:oin:00000000000000000001"));
+		Mockito.verify(cpaDAO,Mockito.times(2)).getCPA(cpaId);
+		Mockito.verify(cpaDAO,Mockito.times(1)).getCPA("unknown");
+		cache.clear();
+		assertTrue(cpaManager.canSend(cpaId,partyId,"DIGIPOORT",service,"afleveren"));
+		assertFalse(cpaManager.existsPartyId("unknown","urn:osb:oin:00000000000000000001"));
+		Mockito.verify(cpaDAO,Mockito.times(3)).getCPA(cpaId);
+		Mockito.verify(cpaDAO,Mockito.times(2)).getCPA("unknown");
+	}
+
+	@Test
+	public void testPartyInfo()
+	{
+		assertTrue(cpaManager.existsPartyId(cpaId,"urn:osb:oin:00000000000000000001"));
+		assertFalse(cpaManager.existsPartyId(cpaId,"urn:osb:oin:00000000000000000002"));
+		assertFalse(cpaManager.existsPartyId("unknown","urn:osb:oin:00000000000000000001"));
+		assertEquals("OVERHEID",cpaManager.getPartyInfo(cpaId,createPartyId("00000000000000000001")).get().getCollaborationRole().get(0).getRole().getName());
+		assertFalse(cpaManager.getPartyInfo(cpaId,createPartyId("00000000000000000002")).isPresent());
+	}
+
+	@Test
+	public void testFromToPartyInfo()
+	{
+		val fromParty = new Party("urn:osb:oin:00000000000000000000","DIGIPOORT");
+		val fromPartyInfo = cpaManager.getFromPartyInfo(cpaId,fromParty,service,"afleveren").get();
+		assertEquals("DIGIPOORT",fromPartyInfo.getRole());
+		assertEquals("afleveren",fromPartyInfo.getCanSend().getThisPartyActionBinding().getAction());
+		assertFalse(cpaManager.getFromPartyInfo(cpaId,fromParty,service,"bevestigAfleveren").isPresent());
+		assertEquals("DIGIPOORT",cpaManager.getFromPartyInfo(cpaId,null,service,"afleveren").get().getRole());
+		val toPartyInfo = cpaManager.getToPartyInfoByFromPartyActionBinding(cpaId,fromParty,service,"afleveren").get();
+		assertEquals("OVERHEID",toPartyInfo.getRole());
+		assertEquals("00000000000000000001",toPartyInfo.getPartyIds().get(0).getValue());
+		assertSame(toPartyInfo.getCanReceive(),cpaManager.getToPartyInfo(cpaId,new Party("urn:osb:oin:00000000000000000001","OVERHEID"),service,"afleveren").get().getCanReceive());
+	}
+
+	@Test
+	public void testCanSendReceive()
+	{
+		val partyId = createPartyId("00000000000000000000");
+		assertTrue(cpaManager.canSend(cpaId,partyId,"DIGIPOORT",service,"afleveren"));
+		assertFalse(cpaManager.canSend(cpaId,partyId,"DIGIPOORT",service,"bevestigAfleveren"));
+		assertTrue(cpaManager.canReceive(cpaId,partyId,"DIGIPOORT",service,"bevestigAfleveren"));
+		assertFalse(cpaManager.canReceive(cpaId,createPartyId("00000000000000000001"),"DIGIPOORT",service,"bevestigAfleveren"));
+	}
+
+	@Test
+	public void testDeliveryChannel()
+	{
+		val partyId = createPartyId("00000000000000000000");
+		val deliveryChannel = cpaManager.getSendDeliveryChannel(cpaId,partyId,"DIGIPOORT",service,"afleveren").get();
+		assertSame(deliveryChannel,cpaManager.getDeliveryChannel(cpaId,deliveryChannel.getChannelId()).get());
+		assertTrue(cpaManager.getReceiveDeliveryChannel(cpaId,partyId,"DIGIPOORT",service,"bevestigAfleveren").isPresent());
+		assertFalse(cpaManager.getSendDeliveryChannel(cpaId,partyId,"OVERHEID",service,"afleveren").isPresent());
+		assertFalse(cpaManager.getDeliveryChannel(cpaId,"unknown").isPresent());
+		assertTrue(cpaManager.isNonRepudiationRequired(cpaId,partyId,"DIGIPOORT",service,"afleveren"));
+		assertFalse(cpaManager.isConfidential(cpaId,partyId,"DIGIPOORT",service,"afleveren"));
+	}
+
+	@Test
+	public void testX509Certificate() throws CertificateException
+	{
+		val partyId = createPartyId("00000000000000000000");
+		val deliveryChannel = cpaManager.getSendDeliveryChannel(cpaId,partyId,"DIGIPOORT",service,"afleveren").get();
+		val certificate = CPAUtils.getX509Certificate(CPAUtils.getSigningCertificate(deliveryChannel));
+		assertNotNull(certificate);
+		assertSame(certificate,CPAUtils.getX509Certificate(CPAUtils.getSigningCertificate(deliveryChannel)));
+		assertNull(CPAUtils.getX509Certificate(null));
+	}
+
+	@Test
+	public void testX509CertificateReloadedCPA() throws CertificateException, IOException, JAXBException
+	{
+		val partyId = createPartyId("00000000000000000000");
+		val certificate = CPAUtils.getX509Certificate(CPAUtils.getSigningCertificate(cpaManager.getSendDeliveryChannel(cpaId,partyId,"DIGIPOORT",service,"afleveren").get()));
+		Mockito.when(cpaDAO.getCPA(cpaId)).thenReturn(loadCPA(cpaId));
+		cpaManager.evictCPAIndex(cpaId);
+		val reloaded = CPAUtils.getX509Certificate(CPAUtils.getSigningCertificate(cpaManager.getSendDeliveryChannel(cpaId,partyId,"DIGIPOORT",service,"afleveren").get()));
+		assertEquals(certificate,reloaded);
+		assertNotSame(certificate,reloaded);
+	}
+
+	@Test
+	public void testWarmUp()
+	{
+		new CPACacheWarmer(cpaManager,new URLMapper(urlMappingDAO),2).warmUp();
+		Mockito.verify(urlMappingDAO).loadURLMappings();
+	}
+
+	private List<PartyId> createPartyId(String value)
+	{
+		val partyId = new PartyId();
+		partyId.setType("urn:osb:oin");
+		partyId.setValue(value);
+		return Collections.singletonList(partyId);
+	}
+
+	private Optional<CollaborationProtocolAgreement> loadCPA(String cpaId) throws IOException, JAXBException
+	{
+		val s = IOUtils.toString(this.getClass().getResourceAsStream("/nl/clockwork/ebms/cpa/" + cpaId + ".xml"),Charset.forName("UTF-8"));
+		return Optional.of(JAXBParser.getInstance(CollaborationProtocolAgreement.class).handle(s));
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.cpa;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import lombok.val;
+import nl.clockwork.ebms.service.cpa.url.URLMapping;
+
+public class URLMapperTest
+{
+	@Test
+	public void testGetURL()
+	{
+		val urlMappingDAO = Mockito.mock(URLMappingDAO.class);
+		Mockito.when(urlMappingDAO.loadURLMappings()).thenReturn(Arrays.asList(new URLMapping("http://a","http://b")));
+		val urlMapper = new URLMapper(urlMappingDAO);
+		assertEquals("http://b",urlMapper.getURL("http://a"));
+		assertEquals("http://c",urlMapper.getURL("http://c"));
+		assertEquals("http://c",urlMapper.getURL("http://c"));
+		Mockito.verify(urlMappingDAO,Mockito.times(1)).loadURLMappings();
+		Mockito.verify(urlMappingDAO,Mockito.never()).getURLMapping(Mockito.anyString());
+		Mockito.when(urlMappingDAO.loadURLMappings()).thenReturn(Arrays.asList(new URLMapping("http://c","http://d")));
+		urlMapper.setURLMapping(new URLMapping("http://c","http://d"));
+		assertEquals("http://d",urlMapper.getURL("http://c"));
+		assertEquals("http://a",urlMapper.getURL("http://a"));
+	}
+}
@@ -17,12 +17,16 @@ package nl.clockwork.ebms.dao;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.beans.PropertyVetoException;
+import java.nio.file.Path;
+import java.time.Duration;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
@@ -127,4 +131,27 @@ public class DAOFactoryTest
 		assertNotNull(dao);
 		assertEquals(PostgreSQLEbMSDAO.class,dao.getClass());
 	}
+
+	@Test
+	public void testEmbedded(@TempDir Path directory) throws Exception
+	{
+		ds.setDriverClassName("org.postgresql.Driver");
+		try (val embeddedStore = new EmbeddedStore(null,16,1000,false))
+		{
+			val attachmentStore = new FileSystemAttachmentStore(directory,Duration.ZERO);
+			dao = new EbMSDAOFactory(ds,embeddedStore,new TransactionTemplate(new EmbeddedTransactionManager(embeddedStore)),new JdbcTemplate(ds),EbMSContentCodec.NONE,attachmentStore).getObject();
+			assertNotNull(dao);
+			assertEquals(EmbeddedEbMSDAO.class,dao.getClass());
+		}
+	}
+
+	@Test
+	public void testEmbeddedWithoutAttachmentStore() throws Exception
+	{
+		try (val embeddedStore = new EmbeddedStore(null,16,1000,false))
+		{
+			val factory = new EbMSDAOFactory(ds,embeddedStore,new TransactionTemplate(new EmbeddedTransactionManager(embeddedStore)),new JdbcTemplate(ds),EbMSContentCodec.NONE,null);
+			assertThrows(IllegalStateException.class,() -> factory.getObject());
+		}
+	}
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+
+public class EbMSContentCodecTest
+{
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		val content = ("<soap:Envelope>" + StringUtils.repeat("<eb:PartyId>party</eb:PartyId>",100) + "</soap:Envelope>").getBytes(StandardCharsets.UTF_8);
+		for (val contentCodec : EbMSContentCodec.values())
+		{
+			val encoded = contentCodec.encode(content);
+			assertArrayEquals(content,contentCodec.decode(encoded));
+			assertArrayEquals(new byte[0],contentCodec.decode(contentCodec.encode(new byte[0])));
+			assertEquals(contentCodec,EbMSContentCodec.get(contentCodec.getId()).get());
+		}
+	}
+
+	@Test
+	public void testCompress() throws Exception
+	{
+		val content = StringUtils.repeat("<eb:PartyId>party</eb:PartyId>",100).getBytes(StandardCharsets.UTF_8);
+		assertTrue(EbMSContentCodec.GZIP.encode(content).length < content.length);
+		assertTrue(EbMSContentCodec.DEFLATE.encode(content).length < content.length);
+		assertArrayEquals(content,EbMSContentCodec.NONE.encode(content));
+	}
+
+	@Test
+	public void testUnknownId()
+	{
+		assertFalse(EbMSContentCodec.get(-1).isPresent());
+	}
+}
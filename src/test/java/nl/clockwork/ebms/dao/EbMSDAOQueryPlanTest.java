@@ -0,0 +1,350 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.From;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.MessageData;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.MessageHeader;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.PartyId;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.Service;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.To;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import lombok.val;
+import nl.clockwork.ebms.EbMSAction;
+import nl.clockwork.ebms.EbMSAttachmentFactory;
+import nl.clockwork.ebms.EbMSMessageStatus;
+import nl.clockwork.ebms.EbMSMessageUtils;
+import nl.clockwork.ebms.dao.QueryPlanChecker.Database;
+import nl.clockwork.ebms.model.EbMSAttachment;
+import nl.clockwork.ebms.model.EbMSDocument;
+import nl.clockwork.ebms.model.EbMSMessage;
+import nl.clockwork.ebms.service.model.EbMSMessageContent;
+import nl.clockwork.ebms.service.model.EbMSMessageContentMTOM;
+import nl.clockwork.ebms.service.model.EbMSMessageContext;
+import nl.clockwork.ebms.service.model.Party;
+
+public class EbMSDAOQueryPlanTest
+{
+	@TempDir
+	Path attachmentStoreDirectory;
+
+	@Test
+	public void testH2() throws Exception
+	{
+		test(Database.H2);
+	}
+
+	@Test
+	public void testHSQLDB() throws Exception
+	{
+		test(Database.HSQLDB);
+	}
+
+	private void test(Database database) throws Exception
+	{
+		val checker = QueryPlanChecker.of(database);
+		val dao = new EbMSDAOFactory(
+				checker.getDataSource(),
+				checker.getTransactionTemplate(),
+				checker.getJdbcTemplate(),
+				EbMSContentCodec.NONE,
+				new FileSystemAttachmentStore(attachmentStoreDirectory,Duration.ofDays(1))).getObject();
+		val attachments = Arrays.asList(EbMSAttachmentFactory.createCachedEbMSAttachment("name","cid","text/plain",new ByteArrayInputStream("content".getBytes())));
+		val message = EbMSMessage.builder().messageHeader(createMessageHeader("m1",null)).attachments(attachments).build();
+		val document = EbMSMessageUtils.getEbMSDocument(message);
+		dao.executeTransaction(() -> dao.insertMessage(Instant.now(),Instant.now(),document,message,attachments,EbMSMessageStatus.CREATED));
+		dao.insertDuplicateMessage(Instant.now(),document,message,attachments);
+		val acknowledgment = EbMSMessage.builder().messageHeader(createMessageHeader("m2","m1")).build();
+		dao.insertMessage(Instant.now(),null,EbMSMessageUtils.getEbMSDocument(acknowledgment),acknowledgment,Collections.emptyList(),null);
+		dao.existsMessage("m1");
+		dao.existsIdenticalMessage(message);
+		dao.getMessageContent("m1");
+		dao.getMessageContentMTOM("m1");
+		dao.getMessageContext("m1");
+		dao.getMessageContextByRefToMessageId("cpa","m1");
+		dao.getMessageContextByRefToMessageId("cpa","m1",EbMSAction.ACKNOWLEDGMENT,EbMSAction.MESSAGE_ERROR);
+		dao.getDocument("m1");
+		dao.getEbMSDocumentIfUnsent("m1");
+		dao.getEbMSDocumentByRefToMessageId("cpa","m1");
+		dao.getEbMSDocumentByRefToMessageId("cpa","m1",EbMSAction.ACKNOWLEDGMENT);
+		dao.getPersistTime("m1");
+		dao.getMessageAction("m1");
+		dao.getMessageIds(null,EbMSMessageStatus.CREATED);
+		dao.getMessageIds(createMessageContext(),EbMSMessageStatus.CREATED,10);
+		dao.getMessageIds(null,EbMSMessageStatus.CREATED,Tuple.of(Instant.now(),"m1"),10);
+		dao.getMessageIds(createMessageContext(),EbMSMessageStatus.CREATED,null,10);
+		dao.streamMessageIds(createMessageContext(),EbMSMessageStatus.CREATED,10,messageId -> {});
+		dao.getExpiredMessageIds(Instant.now(),null,10,null);
+		dao.getExpiredMessageIds(Instant.now(),Tuple.of(Instant.now(),"m1"),10,"cpa");
+		dao.getExpiredMessageIds(Instant.now(),null,10,null,"cpa");
+		dao.updateMessage("m1",EbMSMessageStatus.CREATED,EbMSMessageStatus.DELIVERED);
+		dao.getReferencedAttachmentContent(Arrays.asList(DigestUtils.sha256Hex("content")));
+		dao.executeTransaction(() -> dao.deleteAttachments("m1"));
+		dao.executeTransaction(() -> dao.deleteMessages(Arrays.asList("m1","m2")));
+		checker.assertNoFullScans();
+	}
+
+	@Test
+	public void testDatabaseAttachmentsH2() throws Exception
+	{
+		testDatabaseAttachments(Database.H2);
+	}
+
+	@Test
+	public void testDatabaseAttachmentsHSQLDB() throws Exception
+	{
+		testDatabaseAttachments(Database.HSQLDB);
+	}
+
+	@Test
+	public void testDatabaseAttachmentsOracle() throws Exception
+	{
+		val checker = QueryPlanChecker.of(Database.H2_ORACLE);
+		testDatabaseAttachments(checker,new OracleEbMSDAO(checker.getTransactionTemplate(),checker.getJdbcTemplate(),EbMSContentCodec.NONE,null));
+	}
+
+	@Test
+	public void testDatabaseAttachmentsDB2() throws Exception
+	{
+		val checker = QueryPlanChecker.of(Database.H2_DB2);
+		testDatabaseAttachments(checker,new DB2EbMSDAO(checker.getTransactionTemplate(),checker.getJdbcTemplate(),EbMSContentCodec.NONE,null));
+	}
+
+	private void testDatabaseAttachments(Database database) throws Exception
+	{
+		val checker = QueryPlanChecker.of(database);
+		testDatabaseAttachments(checker,null);
+	}
+
+	private void testDatabaseAttachments(QueryPlanChecker checker, EbMSDAO reader) throws Exception
+	{
+		val dao = new EbMSDAOFactory(
+				checker.getDataSource(),
+				checker.getTransactionTemplate(),
+				checker.getJdbcTemplate(),
+				EbMSContentCodec.NONE,
+				null).getObject();
+		val readDAO = reader == null ? dao : reader;
+		val attachments = Arrays.asList(
+				EbMSAttachmentFactory.createCachedEbMSAttachment("name1","cid1","text/plain",new ByteArrayInputStream("content1".getBytes())),
+				EbMSAttachmentFactory.createCachedEbMSAttachment("name2","cid2","text/plain",new ByteArrayInputStream("content2".getBytes())));
+		val message = EbMSMessage.builder().messageHeader(createMessageHeader("m1",null)).attachments(attachments).build();
+		val document = EbMSMessageUtils.getEbMSDocument(message);
+		dao.executeTransaction(() -> dao.insertMessage(Instant.now(),Instant.now(),document,message,attachments,EbMSMessageStatus.CREATED));
+		val acknowledgment = EbMSMessage.builder().messageHeader(createMessageHeader("m2","m1")).build();
+		dao.insertMessage(Instant.now(),null,EbMSMessageUtils.getEbMSDocument(acknowledgment),acknowledgment,Collections.emptyList(),null);
+		val result = new AtomicReference<EbMSDocument>();
+		assertEquals(1,checker.countStatements(() -> result.set(readDAO.getEbMSDocumentIfUnsent("m1").get())));
+		assertNotNull(result.get().getMessage());
+		assertEquals(2,result.get().getAttachments().size());
+		assertEquals("cid2",result.get().getAttachments().get(1).getContentId());
+		assertEquals(0,checker.countStatements(() ->
+		{
+			try
+			{
+				assertEquals("content2",IOUtils.toString(result.get().getAttachments().get(1).getInputStream(),StandardCharsets.UTF_8));
+				assertEquals("content1",IOUtils.toString(result.get().getAttachments().get(0).getInputStream(),StandardCharsets.UTF_8));
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}));
+		val messageContentMTOM = new AtomicReference<EbMSMessageContentMTOM>();
+		assertEquals(1,checker.countStatements(() -> messageContentMTOM.set(readDAO.getMessageContentMTOM("m1").get())));
+		assertEquals("content1",IOUtils.toString(messageContentMTOM.get().getDataSources().get(0).getAttachment().getInputStream(),StandardCharsets.UTF_8));
+		val messageContent = new AtomicReference<EbMSMessageContent>();
+		assertEquals(1,checker.countStatements(() -> messageContent.set(readDAO.getMessageContent("m1").get())));
+		assertEquals("content2",new String(messageContent.get().getDataSources().get(1).getContent(),StandardCharsets.UTF_8));
+		val response = new AtomicReference<EbMSDocument>();
+		assertEquals(1,checker.countStatements(() -> response.set(readDAO.getEbMSDocumentByRefToMessageId("cpa","m1").get())));
+		assertEquals("m2",response.get().getContentId());
+		assertNotNull(response.get().getMessage());
+		assertEquals(0,response.get().getAttachments().size());
+		val duplicate = EbMSMessage.builder().messageHeader(createMessageHeader("m3","m1")).build();
+		dao.insertMessage(Instant.now(),null,EbMSMessageUtils.getEbMSDocument(duplicate),duplicate,Collections.emptyList(),null);
+		assertThrows(IncorrectResultSizeDataAccessException.class,() -> readDAO.getEbMSDocumentByRefToMessageId("cpa","m1"));
+		checker.assertNoFullScans();
+	}
+
+	@Test
+	public void testInsertAttachments() throws Exception
+	{
+		val checker = QueryPlanChecker.of(Database.H2);
+		val dao = new EbMSDAOFactory(
+				checker.getDataSource(),
+				checker.getTransactionTemplate(),
+				checker.getJdbcTemplate(),
+				EbMSContentCodec.NONE,
+				null).getObject();
+		val opened = new AtomicInteger();
+		val closed = new AtomicInteger();
+		val attachments = new ArrayList<EbMSAttachment>();
+		for (int i = 0; i < 3; i++)
+		{
+			val content = ("content" + i).getBytes();
+			val attachment = mock(EbMSAttachment.class);
+			when(attachment.getName()).thenReturn("name" + i);
+			when(attachment.getContentId()).thenReturn("cid" + i);
+			when(attachment.getContentType()).thenReturn("text/plain");
+			when(attachment.getContentLength()).thenReturn(-1L);
+			when(attachment.getInputStream()).thenAnswer(invocation ->
+			{
+				opened.incrementAndGet();
+				return new FilterInputStream(new ByteArrayInputStream(content))
+				{
+					@Override
+					public void close() throws IOException
+					{
+						closed.incrementAndGet();
+						super.close();
+					}
+				};
+			});
+			attachments.add(attachment);
+		}
+		val message = EbMSMessage.builder().messageHeader(createMessageHeader("m1",null)).attachments(attachments).build();
+		val document = EbMSMessageUtils.getEbMSDocument(message);
+		dao.executeTransaction(() -> dao.insertMessage(Instant.now(),Instant.now(),document,message,attachments,EbMSMessageStatus.CREATED));
+		assertEquals(3,opened.get());
+		assertEquals(3,closed.get());
+		attachments.forEach(a -> verify(a).close());
+		val result = dao.getMessageContent("m1").get().getDataSources();
+		assertEquals(3,result.size());
+		for (int i = 0; i < 3; i++)
+			assertEquals("content" + i,new String(result.get(i).getContent(),StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testKeysetPagingH2() throws Exception
+	{
+		testKeysetPaging(Database.H2);
+	}
+
+	@Test
+	public void testKeysetPagingHSQLDB() throws Exception
+	{
+		testKeysetPaging(Database.HSQLDB);
+	}
+
+	private void testKeysetPaging(Database database) throws Exception
+	{
+		val checker = QueryPlanChecker.of(database);
+		val dao = new EbMSDAOFactory(
+				checker.getDataSource(),
+				checker.getTransactionTemplate(),
+				checker.getJdbcTemplate(),
+				EbMSContentCodec.NONE,
+				null).getObject();
+		val timestamp = Instant.parse("2021-02-17T12:00:00.123Z");
+		insertMessage(dao,"m4",timestamp);
+		insertMessage(dao,"m0",timestamp.plusSeconds(1));
+		insertMessage(dao,"m2",timestamp);
+		insertMessage(dao,"m9",timestamp.minusSeconds(1));
+		insertMessage(dao,"m5",timestamp);
+		insertMessage(dao,"m1",timestamp);
+		insertMessage(dao,"m3",timestamp);
+		val messageIds = new ArrayList<String>();
+		Tuple2<Instant,String> after = null;
+		for (val expected : Arrays.asList(Arrays.asList("m9","m1"),Arrays.asList("m2","m3"),Arrays.asList("m4","m5"),Arrays.asList("m0")))
+		{
+			val page = dao.getMessageIds(createMessageContext(),EbMSMessageStatus.RECEIVED,after,2);
+			assertEquals(expected,page.stream().map(Tuple2::_2).collect(Collectors.toList()));
+			page.stream().map(Tuple2::_2).forEach(messageIds::add);
+			val last = page.get(page.size() - 1);
+			after = Tuple.of(Instant.parse(last._1.toString()),last._2);
+		}
+		assertEquals(timestamp.plusSeconds(1),after._1);
+		assertTrue(dao.getMessageIds(createMessageContext(),EbMSMessageStatus.RECEIVED,after,2).isEmpty());
+		assertEquals(Arrays.asList("m9","m1","m2","m3","m4","m5","m0"),messageIds);
+		assertEquals(Arrays.asList("m3","m4"),dao.getMessageIds(null,EbMSMessageStatus.RECEIVED,Tuple.of(timestamp,"m2"),2).stream().map(Tuple2::_2).collect(Collectors.toList()));
+	}
+
+	private void insertMessage(EbMSDAO dao, String messageId, Instant timestamp) throws Exception
+	{
+		val message = EbMSMessage.builder().messageHeader(createMessageHeader(messageId,null)).build();
+		dao.insertMessage(timestamp,null,EbMSMessageUtils.getEbMSDocument(message),message,Collections.emptyList(),EbMSMessageStatus.RECEIVED);
+	}
+
+	private MessageHeader createMessageHeader(String messageId, String refToMessageId)
+	{
+		val result = new MessageHeader();
+		result.setCPAId("cpa");
+		result.setConversationId("conversation");
+		result.setFrom(new From());
+		result.getFrom().getPartyId().add(createPartyId("from"));
+		result.getFrom().setRole("fromRole");
+		result.setTo(new To());
+		result.getTo().getPartyId().add(createPartyId("to"));
+		result.getTo().setRole("toRole");
+		result.setService(new Service());
+		result.getService().setValue("service");
+		result.setAction("action");
+		result.setMessageData(new MessageData());
+		result.getMessageData().setMessageId(messageId);
+		result.getMessageData().setRefToMessageId(refToMessageId);
+		result.getMessageData().setTimestamp(Instant.now());
+		return result;
+	}
+
+	private PartyId createPartyId(String value)
+	{
+		val result = new PartyId();
+		result.setValue(value);
+		return result;
+	}
+
+	private EbMSMessageContext createMessageContext()
+	{
+		return EbMSMessageContext.builder()
+				.cpaId("cpa")
+				.fromParty(new Party("from","fromRole"))
+				.toParty(new Party("to","toRole"))
+				.service("service")
+				.action("action")
+				.conversationId("conversation")
+				.build();
+	}
+}
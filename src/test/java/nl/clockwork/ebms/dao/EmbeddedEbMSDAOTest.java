@@ -0,0 +1,268 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.From;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.MessageData;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.MessageHeader;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.PartyId;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.Service;
+import org.oasis_open.committees.ebxml_msg.schema.msg_header_2_0.To;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.vavr.Tuple2;
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.EbMSAttachmentFactory;
+import nl.clockwork.ebms.EbMSMessageStatus;
+import nl.clockwork.ebms.EbMSMessageUtils;
+import nl.clockwork.ebms.model.EbMSAttachment;
+import nl.clockwork.ebms.model.EbMSDocument;
+import nl.clockwork.ebms.model.EbMSMessage;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class EmbeddedEbMSDAOTest
+{
+	Path directory;
+	EmbeddedStore embeddedStore;
+	EbMSDAO dao;
+
+	@BeforeEach
+	public void init(@TempDir Path directory)
+	{
+		this.directory = directory;
+		open();
+	}
+
+	@AfterEach
+	public void close()
+	{
+		embeddedStore.close();
+	}
+
+	@Test
+	public void testInsertMessage() throws Exception
+	{
+		insertMessage("m1",null,EbMSMessageStatus.CREATED,"content");
+		insertMessage("m2","m1",null);
+		assertTrue(dao.existsMessage("m1"));
+		assertFalse(dao.existsMessage("m3"));
+		assertThrows(DuplicateKeyException.class,() -> insertMessage("m1",null,EbMSMessageStatus.CREATED));
+		val duplicate = createMessage("m1",null);
+		assertEquals(1,(int)dao.insertDuplicateMessage(Instant.now(),createDocument(duplicate),duplicate,Collections.emptyList())._2);
+		val messageContext = dao.getMessageContext("m1").get();
+		assertEquals("cpa",messageContext.getCpaId());
+		assertEquals("from",messageContext.getFromParty().getPartyId());
+		assertEquals(EbMSMessageStatus.CREATED,messageContext.getMessageStatus());
+		val messageContent = dao.getMessageContent("m1").get();
+		assertEquals(1,messageContent.getDataSources().size());
+		assertEquals("content",new String(messageContent.getDataSources().get(0).getContent()));
+		val document = dao.getEbMSDocumentIfUnsent("m1").get();
+		assertEquals("content",IOUtils.toString(document.getAttachments().get(0).getInputStream(),"UTF-8"));
+		assertEquals("m2",dao.getMessageContextByRefToMessageId("cpa","m1").get().getMessageId());
+		assertEquals(Arrays.asList("m1"),dao.getMessageIds(null,EbMSMessageStatus.CREATED));
+		assertEquals(1,dao.updateMessage("m1",EbMSMessageStatus.CREATED,EbMSMessageStatus.DELIVERED));
+		assertEquals(0,dao.updateMessage("m1",EbMSMessageStatus.CREATED,EbMSMessageStatus.DELIVERED));
+		assertTrue(dao.getMessageIds(null,EbMSMessageStatus.CREATED).isEmpty());
+		assertFalse(dao.getEbMSDocumentIfUnsent("m1").isPresent());
+	}
+
+	@Test
+	public void testKeysetPaging()
+	{
+		val timestamp = Instant.now();
+		for (int i = 0; i < 7; i++)
+			insertMessage(timestamp,null,"m" + i,EbMSMessageStatus.RECEIVED);
+		val result = new ArrayList<String>();
+		Tuple2<Instant,String> after = null;
+		for (int i = 0; i < 4; i++)
+		{
+			val page = dao.getMessageIds(null,EbMSMessageStatus.RECEIVED,after,2);
+			page.forEach(p -> result.add(p._2));
+			after = page.isEmpty() ? after : page.get(page.size() - 1);
+		}
+		assertEquals(Arrays.asList("m0","m1","m2","m3","m4","m5","m6"),result);
+		val streamed = new ArrayList<String>();
+		dao.streamMessageIds(null,EbMSMessageStatus.RECEIVED,2,streamed::add);
+		assertEquals(result,streamed);
+	}
+
+	@Test
+	public void testRollback()
+	{
+		assertThrows(IllegalStateException.class,() -> dao.executeTransaction(() ->
+		{
+			insertMessage("m1",null,EbMSMessageStatus.RECEIVED);
+			throw new IllegalStateException();
+		}));
+		assertFalse(dao.existsMessage("m1"));
+		assertTrue(dao.getMessageIds(null,EbMSMessageStatus.RECEIVED).isEmpty());
+	}
+
+	@Test
+	public void testReopen()
+	{
+		dao.executeTransaction(() -> insertMessage("m1",null,EbMSMessageStatus.RECEIVED));
+		embeddedStore.close();
+		open();
+		assertTrue(dao.existsMessage("m1"));
+		assertEquals(Arrays.asList("m1"),dao.getMessageIds(null,EbMSMessageStatus.RECEIVED));
+	}
+
+	@Test
+	public void testPurge()
+	{
+		val persistTime = Instant.now().minus(1,ChronoUnit.DAYS);
+		insertMessage(Instant.now(),persistTime,"m1",EbMSMessageStatus.DELIVERED,"content");
+		insertMessage(Instant.now(),persistTime,"m2",EbMSMessageStatus.RECEIVED);
+		insertMessage(Instant.now(),Instant.now().plus(1,ChronoUnit.DAYS),"m3",EbMSMessageStatus.DELIVERED);
+		val expired = dao.getExpiredMessageIds(Instant.now(),null,10,null).stream().map(Tuple2::_2).collect(Collectors.toList());
+		assertEquals(Arrays.asList("m1"),expired);
+		dao.executeTransaction(() -> dao.deleteMessages(expired));
+		assertFalse(dao.existsMessage("m1"));
+		assertTrue(dao.existsMessage("m2"));
+		assertTrue(dao.getExpiredMessageIds(Instant.now(),null,10,null).isEmpty());
+	}
+
+	@Test
+	public void testAttachmentStore() throws Exception
+	{
+		val attachmentStore = new FileSystemAttachmentStore(directory.resolve("attachments"),Duration.ZERO);
+		embeddedStore.close();
+		open(attachmentStore);
+		insertMessage("m1",null,EbMSMessageStatus.RECEIVED,"content");
+		insertMessage("m2",null,EbMSMessageStatus.RECEIVED,"content");
+		val digest = DigestUtils.sha256Hex("content");
+		assertEquals(Collections.singleton(digest),dao.getReferencedAttachmentContent(Arrays.asList(digest,"other")));
+		assertEquals("content",new String(dao.getMessageContent("m1").get().getDataSources().get(0).getContent()));
+		dao.executeTransaction(() -> dao.deleteAttachments("m1"));
+		assertEquals(Collections.singleton(digest),dao.getReferencedAttachmentContent(Arrays.asList(digest)));
+		Thread.sleep(10);
+		assertEquals(0,attachmentStore.collectGarbage(dao::getReferencedAttachmentContent));
+		dao.executeTransaction(() -> dao.deleteAttachments("m2"));
+		assertTrue(dao.getReferencedAttachmentContent(Arrays.asList(digest)).isEmpty());
+		Thread.sleep(10);
+		assertEquals(1,attachmentStore.collectGarbage(dao::getReferencedAttachmentContent));
+	}
+
+	private void open()
+	{
+		open(new FileSystemAttachmentStore(directory.resolve("attachments"),Duration.ZERO));
+	}
+
+	private void open(AttachmentStore attachmentStore)
+	{
+		embeddedStore = new EmbeddedStore(directory.resolve("ebms.mv.db").toString(),16,1000,true);
+		val dataSource = new HikariDataSource();
+		dao = new EbMSDAOFactory(
+				dataSource,
+				embeddedStore,
+				new TransactionTemplate(new EmbeddedTransactionManager(embeddedStore)),
+				new JdbcTemplate(dataSource),
+				EbMSContentCodec.NONE,
+				attachmentStore).getObject();
+	}
+
+	private void insertMessage(String messageId, String refToMessageId, EbMSMessageStatus status, String...attachments)
+	{
+		val message = createMessage(messageId,refToMessageId);
+		dao.insertMessage(Instant.now(),null,createDocument(message),message,createAttachments(attachments),status);
+	}
+
+	private void insertMessage(Instant timestamp, Instant persistTime, String messageId, EbMSMessageStatus status, String...attachments)
+	{
+		val message = createMessage(messageId,null);
+		dao.insertMessage(timestamp,persistTime,createDocument(message),message,createAttachments(attachments),status);
+	}
+
+	private List<EbMSAttachment> createAttachments(String...contents)
+	{
+		return Arrays.stream(contents)
+				.map(c -> EbMSAttachmentFactory.createEbMSAttachment("name","cid","text/plain",c.getBytes()))
+				.collect(Collectors.toList());
+	}
+
+	private EbMSMessage createMessage(String messageId, String refToMessageId)
+	{
+		return EbMSMessage.builder().messageHeader(createMessageHeader(messageId,refToMessageId)).build();
+	}
+
+	private EbMSDocument createDocument(EbMSMessage message)
+	{
+		try
+		{
+			return EbMSMessageUtils.getEbMSDocument(message);
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private MessageHeader createMessageHeader(String messageId, String refToMessageId)
+	{
+		val result = new MessageHeader();
+		result.setCPAId("cpa");
+		result.setConversationId("conversation");
+		result.setFrom(new From());
+		result.getFrom().getPartyId().add(createPartyId("from"));
+		result.getFrom().setRole("fromRole");
+		result.setTo(new To());
+		result.getTo().getPartyId().add(createPartyId("to"));
+		result.getTo().setRole("toRole");
+		result.setService(new Service());
+		result.getService().setValue("service");
+		result.setAction("action");
+		result.setMessageData(new MessageData());
+		result.getMessageData().setMessageId(messageId);
+		result.getMessageData().setRefToMessageId(refToMessageId);
+		result.getMessageData().setTimestamp(Instant.now());
+		return result;
+	}
+
+	private PartyId createPartyId(String value)
+	{
+		val result = new PartyId();
+		result.setValue(value);
+		return result;
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.EbMSAttachmentFactory;
+import nl.clockwork.ebms.model.EbMSAttachment;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FileSystemAttachmentStoreTest
+{
+	Path directory;
+	FileSystemAttachmentStore attachmentStore;
+
+	@BeforeEach
+	public void init(@TempDir Path directory)
+	{
+		this.directory = directory;
+		attachmentStore = new FileSystemAttachmentStore(directory,Duration.ofHours(1));
+	}
+
+	@Test
+	public void testStore() throws IOException
+	{
+		val digest = attachmentStore.store(createAttachment("content"));
+		assertEquals(DigestUtils.sha256Hex("content"),digest);
+		assertTrue(Files.exists(directory.resolve(digest.substring(0,2)).resolve(digest.substring(2,4)).resolve(digest)));
+		assertEquals(digest,attachmentStore.store(createCachedAttachment("content")));
+		assertEquals(digest,attachmentStore.store(createAttachment("content")));
+		try (val in = attachmentStore.load(digest))
+		{
+			assertEquals("content",IOUtils.toString(in,"UTF-8"));
+		}
+	}
+
+	@Test
+	public void testCollectGarbage() throws IOException
+	{
+		val referenced = attachmentStore.store(createAttachment("referenced"));
+		val unreferenced = attachmentStore.store(createAttachment("unreferenced"));
+		val recent = attachmentStore.store(createAttachment("recent"));
+		val tmp = Files.createTempFile(directory,"attachment",".tmp");
+		Arrays.asList(getPath(referenced),getPath(unreferenced),tmp).forEach(this::expire);
+		Arrays.asList(referenced,unreferenced,recent).forEach(d -> expire(getCandidatePath(d)));
+		val calls = new AtomicInteger();
+		assertEquals(1,attachmentStore.collectGarbage(digests ->
+		{
+			calls.incrementAndGet();
+			assertEquals(3,digests.size());
+			return getReferenced(referenced).apply(digests);
+		}));
+		assertEquals(1,calls.get());
+		assertTrue(Files.exists(getPath(referenced)));
+		assertFalse(Files.exists(getPath(unreferenced)));
+		assertTrue(Files.exists(getPath(recent)));
+		assertFalse(Files.exists(tmp));
+		assertFalse(Files.exists(getCandidatePath(referenced)));
+		assertFalse(Files.exists(getCandidatePath(unreferenced)));
+		assertTrue(Files.exists(getCandidatePath(recent)));
+	}
+
+	@Test
+	public void testCollectReleasedContent() throws IOException
+	{
+		val digest = attachmentStore.store(createAttachment("content"));
+		expire(getPath(digest));
+		assertEquals(0,attachmentStore.collectGarbage(getReferenced()));
+		assertTrue(Files.exists(getCandidatePath(digest)));
+		expire(getCandidatePath(digest));
+		assertEquals(0,attachmentStore.collectGarbage(getReferenced(digest)));
+		assertFalse(Files.exists(getCandidatePath(digest)));
+		assertEquals(0,attachmentStore.collectGarbage(getReferenced()));
+		assertTrue(Files.exists(getPath(digest)));
+		attachmentStore.release(Collections.singletonList(digest));
+		assertTrue(Files.exists(getCandidatePath(digest)));
+		expire(getCandidatePath(digest));
+		assertEquals(1,attachmentStore.collectGarbage(getReferenced()));
+		assertFalse(Files.exists(getPath(digest)));
+		assertFalse(Files.exists(getCandidatePath(digest)));
+	}
+
+	@Test
+	public void testStoreRenewsExistingContent() throws IOException
+	{
+		val digest = attachmentStore.store(createAttachment("content"));
+		expire(getPath(digest));
+		expire(getCandidatePath(digest));
+		attachmentStore.store(createCachedAttachment("content"));
+		assertEquals(0,attachmentStore.collectGarbage(getReferenced()));
+		assertTrue(Files.exists(getPath(digest)));
+	}
+
+	@Test
+	public void testSpoolAttachment() throws IOException
+	{
+		EbMSAttachmentFactory.init(attachmentStore);
+		try
+		{
+			val attachment = EbMSAttachmentFactory.createSpooledEbMSAttachment("name","cid","text/plain",new ByteArrayInputStream("content".getBytes()));
+			val digest = DigestUtils.sha256Hex("content");
+			assertTrue(Files.exists(getPath(digest)));
+			assertEquals(7,attachment.getContentLength());
+			assertArrayEquals(DigestUtils.sha1("content"),attachment.getDigest("SHA-1").get());
+			assertArrayEquals(DigestUtils.sha256("content"),attachment.getDigest("SHA-256").get());
+			expire(getPath(digest));
+			assertEquals(digest,attachmentStore.store(attachment));
+			expire(getCandidatePath(digest));
+			assertEquals(0,attachmentStore.collectGarbage(getReferenced()));
+		}
+		finally
+		{
+			EbMSAttachmentFactory.init(null);
+		}
+	}
+
+	private EbMSAttachment createAttachment(String content)
+	{
+		return EbMSAttachmentFactory.createEbMSAttachment("name","cid","text/plain",content.getBytes());
+	}
+
+	private EbMSAttachment createCachedAttachment(String content) throws IOException
+	{
+		return EbMSAttachmentFactory.createCachedEbMSAttachment("name","cid","text/plain",new ByteArrayInputStream(content.getBytes()));
+	}
+
+	private Path getPath(String digest)
+	{
+		return directory.resolve(digest.substring(0,2)).resolve(digest.substring(2,4)).resolve(digest);
+	}
+
+	private Path getCandidatePath(String digest)
+	{
+		return directory.resolve("candidates").resolve(digest);
+	}
+
+	private Function<Collection<String>,Set<String>> getReferenced(String...referenced)
+	{
+		return digests -> digests.stream().filter(Arrays.asList(referenced)::contains).collect(Collectors.toSet());
+	}
+
+	private void expire(Path path)
+	{
+		try
+		{
+			Files.setLastModifiedTime(path,FileTime.from(Instant.now().minus(2,ChronoUnit.HOURS)));
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.dao.PostgreSQLPartitionManager.PartitionInterval;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PostgreSQLPartitionManagerTest
+{
+	List<String> statements = new ArrayList<>();
+	List<List<Object>> parameters = new ArrayList<>();
+	boolean defaultRows;
+	TransactionTemplate transactionTemplate = new TransactionTemplate()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public <T> T execute(TransactionCallback<T> action) throws TransactionException
+		{
+			return action.doInTransaction(null);
+		}
+	};
+	JdbcTemplate jdbcTemplate = new JdbcTemplate()
+	{
+		@Override
+		public <T> List<T> query(String sql, RowMapper<T> rowMapper)
+		{
+			return Collections.emptyList();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T queryForObject(String sql, Class<T> requiredType, Object...args)
+		{
+			if (sql.startsWith("select format"))
+				return (T)String.format("create table %s partition of %s for values from ('%s') to ('%s')",args);
+			record(sql,args);
+			return (T)Boolean.valueOf(defaultRows);
+		}
+
+		@Override
+		public void execute(String sql)
+		{
+			record(sql);
+		}
+
+		@Override
+		public int update(String sql, Object...args)
+		{
+			record(sql,args);
+			return 0;
+		}
+	};
+
+	@Test
+	public void testPartitionInterval()
+	{
+		val timestamp = LocalDateTime.of(2021,2,17,13,45);
+		assertEquals(LocalDateTime.of(2021,2,1,0,0),PartitionInterval.MONTHLY.getStart(timestamp));
+		assertEquals(LocalDateTime.of(2021,3,1,0,0),PartitionInterval.MONTHLY.getEnd(LocalDateTime.of(2021,2,1,0,0)));
+		assertEquals(LocalDateTime.of(2021,2,17,0,0),PartitionInterval.DAILY.getStart(timestamp));
+		assertEquals(LocalDateTime.of(2021,2,18,0,0),PartitionInterval.DAILY.getEnd(LocalDateTime.of(2021,2,17,0,0)));
+	}
+
+	@Test
+	public void testCreatePartitions()
+	{
+		new PostgreSQLPartitionManager(transactionTemplate,jdbcTemplate,PartitionInterval.MONTHLY,2,3,null).run();
+		val start = PartitionInterval.MONTHLY.getStart(LocalDateTime.now());
+		val expected = new ArrayList<String>();
+		for (int i = 0; i < 3; i++)
+		{
+			val from = start.plusMonths(i);
+			val suffix = String.format("%04d%02d01",from.getYear(),from.getMonthValue());
+			expected.add(createTable("ebms_message",suffix,from,from.plusMonths(1)));
+			expected.add(createTable("ebms_attachment",suffix,from,from.plusMonths(1)));
+		}
+		assertEquals(expected,statements.stream().filter(s -> s.startsWith("create table")).collect(Collectors.toList()));
+		assertFalse(statements.stream().anyMatch(s -> s.startsWith("insert") || s.startsWith("delete")));
+	}
+
+	@Test
+	public void testMoveDefaultRows()
+	{
+		defaultRows = true;
+		new PostgreSQLPartitionManager(transactionTemplate,jdbcTemplate,PartitionInterval.DAILY,0,3,null).run();
+		val start = PartitionInterval.DAILY.getStart(LocalDateTime.now());
+		val range = Arrays.<Object>asList(Timestamp.valueOf(start),Timestamp.valueOf(start.plusDays(1)));
+		assertEquals(Arrays.asList(
+				"select exists (select 1 from ebms_message_default where time_stamp >= ? and time_stamp < ?)",
+				"create temporary table ebms_message_moved (like ebms_message_default) on commit drop",
+				"create temporary table ebms_attachment_moved (like ebms_attachment_default) on commit drop",
+				"insert into ebms_message_moved select * from ebms_message_default where time_stamp >= ? and time_stamp < ?",
+				"insert into ebms_attachment_moved select * from ebms_attachment_default where time_stamp >= ? and time_stamp < ?",
+				"delete from ebms_attachment_default where time_stamp >= ? and time_stamp < ?",
+				"delete from ebms_message_default where time_stamp >= ? and time_stamp < ?"),
+				statements.subList(0,7));
+		parameters.subList(0,1).forEach(p -> assertEquals(range,p));
+		parameters.subList(3,7).forEach(p -> assertEquals(range,p));
+		assertTrue(statements.contains("insert into ebms_message select * from ebms_message_moved"));
+		assertTrue(statements.contains("insert into ebms_attachment select * from ebms_attachment_moved"));
+	}
+
+	private String createTable(String table, String suffix, LocalDateTime start, LocalDateTime end)
+	{
+		return "create table " + table + "_" + suffix + " partition of " + table + " for values from ('" + Timestamp.valueOf(start) + "') to ('" + Timestamp.valueOf(end) + "')";
+	}
+
+	private void record(String sql, Object...args)
+	{
+		statements.add(sql);
+		parameters.add(Arrays.asList(args));
+	}
+}
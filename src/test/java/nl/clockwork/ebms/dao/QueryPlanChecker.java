@@ -0,0 +1,181 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.dao;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class QueryPlanChecker
+{
+	@AllArgsConstructor
+	@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+	public enum Database
+	{
+		H2("org.h2.Driver","h2",null,"explain ",".tableScan"),
+		H2_ORACLE("org.h2.Driver","h2","Oracle","explain ",".tableScan"),
+		H2_DB2("org.h2.Driver","h2","DB2","explain ",".tableScan"),
+		HSQLDB("org.hsqldb.jdbcDriver","hsqldb",null,"explain plan for ","access=FULL SCAN");
+
+		String driverClassName;
+		String location;
+		String mode;
+		String explain;
+		String fullScan;
+	}
+	Database database;
+	DataSource target;
+	Set<String> queries = new LinkedHashSet<>();
+	AtomicInteger statements = new AtomicInteger();
+	@Getter
+	HikariDataSource dataSource = new HikariDataSource();
+
+	private QueryPlanChecker(Database database)
+	{
+		this.database = database;
+		this.target = createDataSource(database);
+		Flyway.configure()
+				.dataSource(target)
+				.locations("classpath:nl/clockwork/ebms/db/migration/" + database.location)
+				.load()
+				.migrate();
+		dataSource.setDriverClassName(database.driverClassName);
+		dataSource.setDataSource(record(target));
+	}
+
+	public static QueryPlanChecker of(Database database)
+	{
+		return new QueryPlanChecker(database);
+	}
+
+	private static DataSource createDataSource(Database database)
+	{
+		switch (database)
+		{
+			case H2:
+			case H2_ORACLE:
+			case H2_DB2:
+				val h2 = new JdbcDataSource();
+				h2.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1" + (database.mode == null ? "" : ";MODE=" + database.mode));
+				h2.setUser("sa");
+				return h2;
+			default:
+				val hsqldb = new JDBCDataSource();
+				hsqldb.setUrl("jdbc:hsqldb:mem:" + UUID.randomUUID());
+				hsqldb.setUser("sa");
+				return hsqldb;
+		}
+	}
+
+	private DataSource record(DataSource dataSource)
+	{
+		return (DataSource)Proxy.newProxyInstance(getClass().getClassLoader(),new Class<?>[]{DataSource.class},(proxy,method,args) ->
+		{
+			val result = invoke(dataSource,method,args);
+			return result instanceof Connection ? record((Connection)result) : result;
+		});
+	}
+
+	private Connection record(Connection connection)
+	{
+		return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),new Class<?>[]{Connection.class},(proxy,method,args) ->
+		{
+			if (method.getName().startsWith("prepare"))
+			{
+				queries.add((String)args[0]);
+				statements.incrementAndGet();
+			}
+			return invoke(connection,method,args);
+		});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable
+	{
+		try
+		{
+			return method.invoke(target,args);
+		}
+		catch (InvocationTargetException e)
+		{
+			throw e.getCause();
+		}
+	}
+
+	public JdbcTemplate getJdbcTemplate()
+	{
+		return new JdbcTemplate(dataSource);
+	}
+
+	public TransactionTemplate getTransactionTemplate()
+	{
+		return new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+	}
+
+	public int countStatements(Runnable runnable)
+	{
+		val start = statements.get();
+		runnable.run();
+		return statements.get() - start;
+	}
+
+	public void assertNoFullScans() throws SQLException
+	{
+		val fullScans = new LinkedHashSet<String>();
+		try (val c = target.getConnection())
+		{
+			for (val query : queries)
+				if (query.trim().matches("(?is)(select|update|delete|insert .* select) .*"))
+					try (val ps = c.prepareStatement(database.explain + query);
+							val rs = ps.executeQuery())
+					{
+						val plan = new StringBuilder();
+						while (rs.next())
+							plan.append(rs.getString(1));
+						if (plan.indexOf(database.fullScan) >= 0)
+							fullScans.add(query);
+					}
+		}
+		assertTrue(!queries.isEmpty(),"No queries recorded");
+		assertTrue(fullScans.isEmpty(),() -> "Full table scan on " + database + " for:\n" + fullScans.stream().collect(Collectors.joining("\n")));
+	}
+}
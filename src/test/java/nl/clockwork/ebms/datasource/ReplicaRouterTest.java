@@ -0,0 +1,149 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReplicaRouterTest
+{
+	ReplicaRouter replicaRouter = new ReplicaRouter(Duration.ofMillis(200));
+
+	@Test
+	public void testRoutingKey() throws Exception
+	{
+		val primary = Mockito.mock(DataSource.class);
+		val primaryConnection = Mockito.mock(Connection.class);
+		Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+		val replica = Mockito.mock(DataSource.class);
+		val replicaConnection = Mockito.mock(Connection.class);
+		Mockito.when(replica.getConnection()).thenReturn(replicaConnection);
+		val dataSource = new ReplicaRoutingDataSource(primary,replica);
+		assertSame(primaryConnection,dataSource.getConnection());
+		assertSame(replicaConnection,replicaRouter.read(() -> getConnection(dataSource)));
+		assertSame(primaryConnection,dataSource.getConnection());
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		try
+		{
+			assertSame(replicaConnection,dataSource.getConnection());
+		}
+		finally
+		{
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+		}
+		assertSame(primaryConnection,dataSource.getConnection());
+	}
+
+	@Test
+	public void testReadWriteTransaction() throws Exception
+	{
+		val primary = Mockito.mock(DataSource.class);
+		val primaryConnection = Mockito.mock(Connection.class);
+		Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+		val dataSource = new ReplicaRoutingDataSource(primary,Mockito.mock(DataSource.class));
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		try
+		{
+			assertSame(primaryConnection,replicaRouter.read(() -> getConnection(dataSource)));
+		}
+		finally
+		{
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+		}
+	}
+
+	@Test
+	public void testNestedRead()
+	{
+		replicaRouter.read(() ->
+		{
+			replicaRouter.read(() -> ReplicaRouter.isReplica());
+			assertTrue(ReplicaRouter.isReplica());
+			return null;
+		});
+		assertFalse(ReplicaRouter.isReplica());
+	}
+
+	@Test
+	public void testRecentWrite() throws Exception
+	{
+		val calls = new AtomicInteger();
+		replicaRouter.written("m1");
+		assertTrue(replicaRouter.isWritten("m1"));
+		assertFalse(replicaRouter.isWritten("m2"));
+		assertEquals(Optional.of("primary"),replicaRouter.read("m1",message(calls,true)));
+		assertEquals(1,calls.get());
+		assertEquals(Arrays.asList("primary"),replicaRouter.read(() -> Arrays.asList(ReplicaRouter.isReplica() ? "m1" : "primary"),id -> id));
+		assertEquals(Arrays.asList("m2"),replicaRouter.read(() -> Arrays.asList(ReplicaRouter.isReplica() ? "m2" : "primary"),id -> id));
+		Thread.sleep(400);
+		assertFalse(replicaRouter.isWritten("m1"));
+		assertEquals(Arrays.asList("m1"),replicaRouter.read(() -> Arrays.asList(ReplicaRouter.isReplica() ? "m1" : "primary"),id -> id));
+	}
+
+	@Test
+	public void testEmptyResultFallback()
+	{
+		val calls = new AtomicInteger();
+		assertEquals(Optional.of("primary"),replicaRouter.read("m1",message(calls,false)));
+		assertEquals(2,calls.get());
+		calls.set(0);
+		assertEquals(Optional.of("replica"),replicaRouter.read("m1",message(calls,true)));
+		assertEquals(1,calls.get());
+	}
+
+	private Supplier<Optional<String>> message(AtomicInteger calls, boolean onReplica)
+	{
+		return () ->
+		{
+			calls.incrementAndGet();
+			return !ReplicaRouter.isReplica() ? Optional.of("primary") : onReplica ? Optional.of("replica") : Optional.empty();
+		};
+	}
+
+	private Connection getConnection(DataSource dataSource)
+	{
+		try
+		{
+			return dataSource.getConnection();
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.event.listener;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import io.vavr.Tuple;
+import lombok.val;
+import nl.clockwork.ebms.dao.QueryPlanChecker;
+import nl.clockwork.ebms.dao.QueryPlanChecker.Database;
+import nl.clockwork.ebms.service.model.EbMSMessageContext;
+
+public class EbMSMessageEventDAOQueryPlanTest
+{
+	@Test
+	public void testH2() throws Exception
+	{
+		test(Database.H2);
+	}
+
+	@Test
+	public void testHSQLDB() throws Exception
+	{
+		test(Database.HSQLDB);
+	}
+
+	private void test(Database database) throws Exception
+	{
+		val checker = QueryPlanChecker.of(database);
+		val dao = new EbMSMessageEventDAOFactory(checker.getDataSource(),checker.getJdbcTemplate()).getObject();
+		dao.insertEbMSMessageEvent("m1",EbMSMessageEventType.RECEIVED);
+		dao.getEbMSMessageEvents(null,null);
+		dao.getEbMSMessageEvents(EbMSMessageContext.builder().cpaId("cpa").service("service").build(),new EbMSMessageEventType[]{EbMSMessageEventType.RECEIVED},10);
+		dao.getEbMSMessageEvents(null,null,Tuple.of(Instant.now(),"m1"),10);
+		dao.streamEbMSMessageEvents(null,null,10,messageEvent -> {});
+		dao.processEbMSMessageEvent("m1");
+		checker.assertNoFullScans();
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.event.processor;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+import nl.clockwork.ebms.dao.QueryPlanChecker;
+import nl.clockwork.ebms.dao.QueryPlanChecker.Database;
+
+public class EbMSEventDAOQueryPlanTest
+{
+	@Test
+	public void testH2() throws Exception
+	{
+		test(Database.H2);
+	}
+
+	@Test
+	public void testHSQLDB() throws Exception
+	{
+		test(Database.HSQLDB);
+	}
+
+	private void test(Database database) throws Exception
+	{
+		val checker = QueryPlanChecker.of(database);
+		val dao = new EbMSEventDAOFactory(checker.getDataSource(),checker.getJdbcTemplate()).getObject();
+		val event = EbMSEvent.builder()
+				.cpaId("cpa")
+				.receiveDeliveryChannelId("channel")
+				.messageId("m1")
+				.timestamp(Instant.now())
+				.build();
+		dao.insertEvent(event,null);
+		dao.getEventsBefore(Instant.now(),null);
+		dao.getEventsBefore(Instant.now(),"server",10);
+		dao.updateEvent(event.createNextEvent(Instant.now()));
+		dao.insertEventLog("m1",Instant.now(),"http://localhost",EbMSEventStatus.SUCCEEDED,null);
+		dao.deleteEvent("m1");
+		checker.assertNoFullScans();
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.purge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+
+import io.vavr.Tuple;
+import lombok.val;
+import nl.clockwork.ebms.dao.EbMSDAO;
+
+public class EbMSMessagePurgerTest
+{
+	@Test
+	public void testPurge() throws Exception
+	{
+		val ebMSDAO = mock(EbMSDAO.class);
+		doAnswer(i -> {((Runnable)i.getArgument(0)).run(); return null;}).when(ebMSDAO).executeTransaction(any());
+		when(ebMSDAO.getExpiredMessageIds(any(),isNull(),anyInt(),isNull()))
+				.thenReturn(Arrays.asList(Tuple.of(Instant.now(),"m1"),Tuple.of(Instant.now(),"m2")));
+		val purger = new EbMSMessagePurger(ebMSDAO,Duration.ofDays(1),Collections.emptyMap(),10,0);
+		val exporter = new AnnotationMBeanExporter();
+		exporter.setAutodetect(false);
+		exporter.setBeans(Collections.singletonMap(EbMSMessagePurger.OBJECT_NAME,purger));
+		exporter.afterPropertiesSet();
+		exporter.afterSingletonsInstantiated();
+		try
+		{
+			purger.run();
+			verify(ebMSDAO).deleteMessages(Arrays.asList("m1","m2"));
+			val mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			val objectName = new ObjectName(EbMSMessagePurger.OBJECT_NAME);
+			assertEquals(2L,mBeanServer.getAttribute(objectName,"PurgedMessages"));
+			assertEquals(1L,mBeanServer.getAttribute(objectName,"PurgedBatches"));
+		}
+		finally
+		{
+			exporter.destroy();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Arrays;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.util.SecurityUtils;
+import nl.clockwork.ebms.validation.ValidationException;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class EbMSTrustStoreTest
+{
+	static final X500Principal clientName = new X500Principal("CN=Client, O=Clockwork");
+	static final X500Principal issuerName = new X500Principal("CN=Issuer, O=Clockwork");
+	static final X500Principal otherName = new X500Principal("CN=Other, O=Clockwork");
+	KeyStore keyStore;
+
+	@BeforeEach
+	public void init() throws Exception
+	{
+		keyStore = KeyStore.getInstance("JKS");
+		keyStore.load(null,null);
+	}
+
+	@Test
+	public void testIssuerCertificates() throws Exception
+	{
+		val issuer = createCertificate(issuerName,otherName);
+		val other = createCertificate(otherName,otherName);
+		keyStore.setCertificateEntry("issuer",issuer);
+		keyStore.setCertificateEntry("other",other);
+		val trustStore = new EbMSTrustStore(keyStore);
+		assertEquals(Arrays.asList(issuer),trustStore.getIssuerCertificates(createCertificate(clientName,issuerName)));
+		assertEquals(Arrays.asList(other),trustStore.getIssuerCertificates(createCertificate(clientName,otherName)));
+		assertTrue(trustStore.getIssuerCertificates(createCertificate(clientName,new X500Principal("CN=Unknown"))).isEmpty());
+	}
+
+	@Test
+	public void testIssuerCertificatesSameSubject() throws Exception
+	{
+		val oldIssuer = createCertificate(issuerName,issuerName);
+		val oldPublicKey = oldIssuer.getPublicKey();
+		val newIssuer = createCertificate(issuerName,issuerName);
+		val newPublicKey = newIssuer.getPublicKey();
+		keyStore.setCertificateEntry("old",oldIssuer);
+		keyStore.setCertificateEntry("new",newIssuer);
+		val trustStore = new EbMSTrustStore(keyStore);
+		val certificate = createCertificate(clientName,issuerName);
+		assertEquals(2,trustStore.getIssuerCertificates(certificate).size());
+		doThrow(new SignatureException()).when(certificate).verify(oldPublicKey);
+		SecurityUtils.validateCertificate(trustStore,certificate,Instant.now());
+		verify(certificate).verify(newPublicKey);
+	}
+
+	@Test
+	public void testIssuerNotFound() throws Exception
+	{
+		keyStore.setCertificateEntry("other",createCertificate(otherName,otherName));
+		val trustStore = new EbMSTrustStore(keyStore);
+		val certificate = createCertificate(clientName,issuerName);
+		assertThrows(ValidationException.class,() -> SecurityUtils.validateCertificate(trustStore,certificate,Instant.now()));
+	}
+
+	private X509Certificate createCertificate(X500Principal subject, X500Principal issuer)
+	{
+		val result = mock(X509Certificate.class);
+		val publicKey = mock(PublicKey.class);
+		when(result.getSubjectX500Principal()).thenReturn(subject);
+		when(result.getIssuerX500Principal()).thenReturn(issuer);
+		when(result.getPublicKey()).thenReturn(publicKey);
+		return result;
+	}
+}
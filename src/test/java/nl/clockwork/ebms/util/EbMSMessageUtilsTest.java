@@ -18,6 +18,7 @@ package nl.clockwork.ebms.util;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -55,6 +56,7 @@ import org.w3c.dom.Document;
 import lombok.val;
 import lombok.var;
 import nl.clockwork.ebms.Constants;
+import nl.clockwork.ebms.EbMSAction;
 import nl.clockwork.ebms.EbMSAttachmentFactory;
 import nl.clockwork.ebms.EbMSErrorCode;
 import nl.clockwork.ebms.EbMSMessageStatus;
@@ -65,6 +67,7 @@ import nl.clockwork.ebms.model.EbMSMessage;
 import nl.clockwork.ebms.model.EbMSMessageError;
 import nl.clockwork.ebms.model.EbMSStatusRequest;
 import nl.clockwork.ebms.model.EbMSStatusResponse;
+import nl.clockwork.ebms.processor.EbMSProcessingException;
 import nl.clockwork.ebms.validation.ValidationException;
 
 @TestInstance(value = Lifecycle.PER_CLASS)
@@ -298,6 +301,30 @@ public class EbMSMessageUtilsTest
 	}
 
 	
+	@Test
+	public void getMalformedManifest() throws Exception
+	{
+		val result = (EbMSMessage)EbMSMessageUtils.getEbMSMessage(createDocument("serviceValue","test","<eb:Manifest eb:version=\"2.0\"><eb:Reference xlink:href=\"cid:1\"><eb:Description xml:lang=\"en\"><eb:Reference/></eb:Description></eb:Reference></eb:Manifest>",""));
+		assertEquals("test",result.getMessageHeader().getAction());
+		assertThrows(EbMSProcessingException.class,() -> result.getManifest());
+	}
+
+	@Test
+	public void getMalformedErrorList() throws Exception
+	{
+		val result = (EbMSMessageError)EbMSMessageUtils.getEbMSMessage(createDocument(EbMSAction.EBMS_SERVICE_URI,EbMSAction.MESSAGE_ERROR.getAction(),"<eb:ErrorList eb:highestSeverity=\"Error\" eb:version=\"2.0\" soap:mustUnderstand=\"1\"><eb:Error eb:errorCode=\"ValueNotRecognized\" eb:severity=\"Error\"><eb:Description xml:lang=\"en\"><eb:Error/></eb:Description></eb:Error></eb:ErrorList>",""));
+		assertEquals(EbMSAction.MESSAGE_ERROR.getAction(),result.getMessageHeader().getAction());
+		assertThrows(EbMSProcessingException.class,() -> result.getErrorList());
+	}
+
+	@Test
+	public void getMalformedSignature() throws Exception
+	{
+		val result = EbMSMessageUtils.getEbMSMessage(createDocument("serviceValue","test","","<ds:Signature><ds:SignedInfo><ds:CanonicalizationMethod Algorithm=\"http://www.w3.org/2001/10/xml-exc-c14n#\"/><ds:SignatureMethod Algorithm=\"http://www.w3.org/2000/09/xmldsig#hmac-sha1\"><ds:HMACOutputLength>abc</ds:HMACOutputLength></ds:SignatureMethod></ds:SignedInfo><ds:SignatureValue/></ds:Signature>"));
+		assertEquals("test",result.getMessageHeader().getAction());
+		assertThrows(EbMSProcessingException.class,() -> result.getSignature());
+	}
+
 	@Test
 	public void getEbMSDocument()
 	{
@@ -397,6 +424,19 @@ public class EbMSMessageUtilsTest
 		assertTrue(documentString.contains("http://www.w3.org/1999/xlink"));
 	}
 
+	private Document createDocument(String service, String action, String body, String signature) throws Exception
+	{
+		return DOMUtils.read(
+				"<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:eb=\"http://www.oasis-open.org/committees/ebxml-msg/schema/msg-header-2_0.xsd\" xmlns:ds=\"http://www.w3.org/2000/09/xmldsig#\" xmlns:xlink=\"http://www.w3.org/1999/xlink\">" +
+				"<soap:Header><eb:MessageHeader eb:version=\"2.0\" soap:mustUnderstand=\"1\">" +
+				"<eb:From><eb:PartyId>from</eb:PartyId></eb:From><eb:To><eb:PartyId>to</eb:PartyId></eb:To>" +
+				"<eb:CPAId>cpaId</eb:CPAId><eb:ConversationId>conversationId</eb:ConversationId>" +
+				"<eb:Service>" + service + "</eb:Service><eb:Action>" + action + "</eb:Action>" +
+				"<eb:MessageData><eb:MessageId>messageId</eb:MessageId><eb:Timestamp>2020-01-01T00:00:00Z</eb:Timestamp></eb:MessageData>" +
+				"</eb:MessageHeader>" + signature + "</soap:Header>" +
+				"<soap:Body>" + body + "</soap:Body></soap:Envelope>");
+	}
+
 	private MessageHeader createMessageHeader()
 	{
 		val result = new MessageHeader();
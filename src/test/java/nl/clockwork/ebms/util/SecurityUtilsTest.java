@@ -0,0 +1,94 @@
+/**
+ * Copyright 2011 Clockwork
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.clockwork.ebms.util;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import nl.clockwork.ebms.security.EbMSTrustStore;
+import nl.clockwork.ebms.validation.ValidationException;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SecurityUtilsTest
+{
+	EbMSTrustStore trustStore = mock(EbMSTrustStore.class);
+	X509Certificate issuer = mock(X509Certificate.class);
+	PublicKey publicKey = mock(PublicKey.class);
+	X509Certificate certificate = mock(X509Certificate.class);
+
+	@BeforeEach
+	public void init()
+	{
+		when(issuer.getPublicKey()).thenReturn(publicKey);
+		when(trustStore.getIssuerCertificates(certificate)).thenReturn(Collections.singletonList(issuer));
+	}
+
+	@Test
+	public void testTrustedCertificateCached() throws Exception
+	{
+		SecurityUtils.validateCertificate(trustStore,certificate,Instant.now());
+		SecurityUtils.validateCertificate(trustStore,certificate,Instant.now());
+		verify(certificate,times(2)).checkValidity(any(Date.class));
+		verify(trustStore,times(1)).getIssuerCertificates(certificate);
+		verify(certificate,times(1)).verify(publicKey);
+	}
+
+	@Test
+	public void testUntrustedCertificateNotCached() throws Exception
+	{
+		doThrow(new SignatureException()).when(certificate).verify(publicKey);
+		assertThrows(ValidationException.class,() -> SecurityUtils.validateCertificate(trustStore,certificate,Instant.now()));
+		assertThrows(ValidationException.class,() -> SecurityUtils.validateCertificate(trustStore,certificate,Instant.now()));
+		verify(certificate,times(2)).verify(publicKey);
+	}
+
+	@Test
+	public void testCachedCertificateExpired() throws Exception
+	{
+		SecurityUtils.validateCertificate(trustStore,certificate,Instant.now());
+		doThrow(new CertificateExpiredException()).when(certificate).checkValidity(any(Date.class));
+		assertThrows(ValidationException.class,() -> SecurityUtils.validateCertificate(trustStore,certificate,Instant.now()));
+		verify(certificate,times(1)).verify(publicKey);
+	}
+
+	@Test
+	public void testCachedPerTrustStore() throws Exception
+	{
+		SecurityUtils.validateCertificate(trustStore,certificate,Instant.now());
+		val otherTrustStore = mock(EbMSTrustStore.class);
+		when(otherTrustStore.getIssuerCertificates(certificate)).thenReturn(Collections.emptyList());
+		assertThrows(ValidationException.class,() -> SecurityUtils.validateCertificate(otherTrustStore,certificate,Instant.now()));
+	}
+}